@@ -0,0 +1,303 @@
+package storage;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import storage.SlottedPage.OverflowException;
+
+/**
+ * A JMH microbenchmark suite for the per-record operations of {@code SlottedPage}s ({@code add}, {@code get},
+ * {@code put} in place and with relocation, {@code remove}, {@code iterator}, and {@code compact}). Each benchmark is
+ * run for every combination of page sizes and record sizes, and the allocation rate of each benchmark is reported by
+ * the GC profiler.
+ * 
+ * This suite is kept in the {@code bench} source folder (so that the {@code storage} package can be built without
+ * JMH) and belongs to the {@code storage} package (so that protected methods such as {@code compact()} can be
+ * measured). It can be run as follows once the JMH jars (and an annotation processor) are available:
+ * 
+ * <pre>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar -d bin src/storage/*.java bench/storage/*.java
+ * java -cp bin:jmh-core.jar:jopt-simple.jar:commons-math3.jar storage.SlottedPageBenchmark [JMH options]
+ * </pre>
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlottedPageBenchmark {
+
+	/**
+	 * The size (in bytes) of {@code SlottedPage}s.
+	 */
+	@Param({ "2048", "8192", "65536" })
+	int pageSize;
+
+	/**
+	 * The size (in bytes) of the payload of each record.
+	 */
+	@Param({ "16", "128", "1024" })
+	int recordSize;
+
+	/**
+	 * A record.
+	 */
+	byte[] record;
+
+	/**
+	 * A record that is larger than {@link #record} (and thus must be relocated when it replaces {@link #record}).
+	 */
+	byte[] largerRecord;
+
+	/**
+	 * The number of bytes of free space that relocating {@link #largerRecord} within a {@code SlottedPage} requires.
+	 */
+	int relocationSize;
+
+	/**
+	 * A {@code SlottedPage} filled with records.
+	 */
+	SlottedPage full;
+
+	/**
+	 * A {@code SlottedPage} filled with records up to half of its capacity.
+	 */
+	SlottedPage half;
+
+	/**
+	 * A {@code SlottedPage} from which every other record has been removed (the input of {@code compact}).
+	 */
+	SlottedPage sparse;
+
+	/**
+	 * The {@code SlottedPage} modified by the benchmarks.
+	 */
+	SlottedPage page;
+
+	/**
+	 * The index of the next record to access.
+	 */
+	int index;
+
+	/**
+	 * Prepares the {@code SlottedPage}s used by the benchmarks.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Setup
+	public void setup() throws Exception {
+		record = new byte[recordSize];
+		largerRecord = new byte[recordSize + 8];
+		full = fill(new SlottedPage(0, pageSize));
+		relocationSize = SlottedPage.toByteArray(largerRecord).length + Integer.BYTES;
+		int recordCost = SlottedPage.toByteArray(record).length + Integer.BYTES;
+		half = new SlottedPage(0, pageSize); // leaves room for relocating at least one record
+		while (half.freeSpaceSize() - recordCost >= Math.max(pageSize / 2, relocationSize))
+			half.add(record);
+		sparse = fill(new SlottedPage(0, pageSize));
+		for (int i = 0; i < sparse.entryCount(); i += 2)
+			sparse.remove(i);
+		page = copy(full);
+		index = 0;
+	}
+
+	/**
+	 * Measures {@code SlottedPage.add(Object)} (a new {@code SlottedPage} is used whenever the current one becomes
+	 * full).
+	 * 
+	 * @return the index of the added record
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Benchmark
+	public int add() throws Exception {
+		try {
+			return page.add(record);
+		} catch (OverflowException e) {
+			page = new SlottedPage(0, pageSize);
+			return page.add(record);
+		}
+	}
+
+	/**
+	 * Measures {@code SlottedPage.get(int)}.
+	 * 
+	 * @return the record at the next index
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Benchmark
+	public Object get() throws Exception {
+		return full.get(next(full));
+	}
+
+	/**
+	 * Measures {@code SlottedPage.put(int, Object)} with a record that fits in the space of the previous record.
+	 * 
+	 * @return the previous record
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Benchmark
+	public Object putInPlace() throws Exception {
+		return page.put(next(page), record);
+	}
+
+	/**
+	 * Measures {@code SlottedPage.put(int, Object)} with a record that needs to be relocated within the
+	 * {@code SlottedPage}. Each call replaces a record that has not been replaced yet, and a fresh copy of a half-full
+	 * {@code SlottedPage} is used whenever every record has been replaced or the free space cannot accommodate another
+	 * relocation (so neither an in-place update nor compaction is measured).
+	 * 
+	 * @return the previous record
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Benchmark
+	public Object putRelocating() throws Exception {
+		if (half.entryCount() == 0)
+			throw new IllegalStateException("a record of " + (recordSize + 8)
+					+ " bytes cannot be relocated within a half-full page of " + pageSize + " bytes");
+		if (index == 0 || page.freeSpaceSize() < relocationSize) {
+			page = copy(half);
+			index = 0;
+		}
+		return page.put(next(page), largerRecord);
+	}
+
+	/**
+	 * Measures {@code SlottedPage.remove(int)} (a fresh copy of a full {@code SlottedPage} is used once all of the
+	 * records are removed).
+	 * 
+	 * @return the removed record
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Benchmark
+	public Object remove() throws Exception {
+		if (index == 0)
+			page = copy(full);
+		return page.remove(next(page));
+	}
+
+	/**
+	 * Measures iterating over all of the records in a full {@code SlottedPage}.
+	 * 
+	 * @param b
+	 *            a {@code Blackhole}
+	 */
+	@Benchmark
+	public void iterator(Blackhole b) {
+		for (Iterator<Object> i = full.iterator(); i.hasNext();)
+			b.consume(i.next());
+	}
+
+	/**
+	 * Measures {@code SlottedPage.compact()} on a copy of a {@code SlottedPage} from which every other record has been
+	 * removed (see {@link #copy()} for the cost of copying).
+	 * 
+	 * @return the free space after compaction
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Benchmark
+	public int compact() throws IOException {
+		SlottedPage p = copy(sparse);
+		p.compact();
+		return p.freeSpaceSize();
+	}
+
+	/**
+	 * Measures copying a {@code SlottedPage} (the baseline for {@link #compact()}).
+	 * 
+	 * @return a copy of a {@code SlottedPage}
+	 */
+	@Benchmark
+	public SlottedPage copy() {
+		return copy(sparse);
+	}
+
+	/**
+	 * Returns the next index within the specified {@code SlottedPage} (in a round-robin manner).
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return the next index within the specified {@code SlottedPage}
+	 */
+	int next(SlottedPage p) {
+		int i = index;
+		index = (index + 1) % p.entryCount();
+		return i;
+	}
+
+	/**
+	 * Fills the specified {@code SlottedPage} with records.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return the specified {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	SlottedPage fill(SlottedPage p) throws IOException {
+		try {
+			while (true)
+				p.add(record);
+		} catch (OverflowException e) {
+		}
+		if (p.entryCount() == 0)
+			throw new IllegalArgumentException("a record of " + recordSize + " bytes does not fit in a page of "
+					+ pageSize + " bytes");
+		return p;
+	}
+
+	/**
+	 * Returns a copy of the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return a copy of the specified {@code SlottedPage}
+	 */
+	static SlottedPage copy(SlottedPage p) {
+		SlottedPage c = new SlottedPage(p.pageID(), p.data().length);
+		System.arraycopy(p.data(), 0, c.data(), 0, p.data().length);
+		return c;
+	}
+
+	/**
+	 * Runs all of the benchmarks with the GC profiler (which reports allocation rates).
+	 * 
+	 * @param args
+	 *            JMH options (e.g., "-p pageSize=8192")
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder().parent(new org.openjdk.jmh.runner.options.CommandLineOptions(args))
+				.include(SlottedPageBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+
+}
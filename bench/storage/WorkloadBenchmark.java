@@ -0,0 +1,502 @@
+package storage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import storage.StorageManager.InvalidLocationException;
+
+/**
+ * An end-to-end workload benchmark for {@code FileManager}s and {@code BufferedFileManager}s. After loading a number
+ * of records into a file, a number of threads perform a mix of {@code add}, {@code get}, {@code put},
+ * {@code remove}, and scan operations on records chosen according to a uniform, Zipfian, or latest distribution. For
+ * each combination of page sizes, buffer sizes, and thread counts, the throughput, the latency percentiles of each
+ * kind of operation, and the numbers of reads, writes, and seeks performed by the underlying
+ * {@code SlottedPageFile}s are reported (together with the number of operations that found their records removed).
+ *
+ * The benchmark is configured by arguments of the form {@code name=value} (see {@link #WorkloadBenchmark(String...)}
+ * for the names and default values). For example, the following command compares a {@code FileManager} (buffer size
+ * 0) with {@code BufferedFileManager}s on a read-mostly workload with a skewed access pattern:
+ *
+ * <pre>
+ * java -cp bin storage.WorkloadBenchmark bufferSize=0,16,256 threads=1,4 mix=get:90,put:10 distribution=zipfian
+ * </pre>
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class WorkloadBenchmark {
+
+	/**
+	 * The kinds of operations.
+	 */
+	enum Operation {
+		ADD, GET, PUT, REMOVE, SCAN
+	}
+
+	/**
+	 * The ID of the file used by the benchmark.
+	 */
+	int fileID = 0;
+
+	/**
+	 * The sizes (in bytes) of {@code SlottedPage}s to try.
+	 */
+	int[] pageSizes = { 2048 };
+
+	/**
+	 * The buffer sizes (in {@code SlottedPage}s) to try (0 means a {@code FileManager} without buffering).
+	 */
+	int[] bufferSizes = { 0, 16, 256 };
+
+	/**
+	 * The numbers of threads to try.
+	 */
+	int[] threadCounts = { 1, 4 };
+
+	/**
+	 * The number of records loaded before each run.
+	 */
+	int records = 10000;
+
+	/**
+	 * The number of operations performed in each run (by all threads).
+	 */
+	int operations = 100000;
+
+	/**
+	 * The size (in bytes) of the payload of each record.
+	 */
+	int recordSize = 100;
+
+	/**
+	 * The relative frequency of each kind of operation.
+	 */
+	double[] mix = { 5, 75, 15, 0, 5 };
+
+	/**
+	 * The distribution of the records accessed ("uniform", "zipfian", or "latest").
+	 */
+	String distribution = "uniform";
+
+	/**
+	 * The skew of the Zipfian and latest distributions (between 0 and 1, exclusive).
+	 */
+	double theta = 0.99;
+
+	/**
+	 * The number of records read by each scan operation.
+	 */
+	int scanLength = 100;
+
+	/**
+	 * The seed for the random number generators.
+	 */
+	long seed = 0;
+
+	/**
+	 * Constructs a {@code WorkloadBenchmark}.
+	 *
+	 * @param args
+	 *            arguments of the form {@code name=value}, where the name is one of {@code pageSize},
+	 *            {@code bufferSize}, {@code threads} (comma-separated lists; defaults 2048, 0,16,256, and 1,4),
+	 *            {@code records} (default 10000), {@code operations} (default 100000), {@code recordSize} (default
+	 *            100), {@code mix} (e.g., the default add:5,get:75,put:15,remove:0,scan:5), {@code distribution}
+	 *            (uniform, zipfian, or latest; default uniform), {@code theta} (default 0.99), {@code scanLength}
+	 *            (default 100), and {@code seed} (default 0)
+	 * @throws IllegalArgumentException
+	 *             if an argument is invalid
+	 */
+	public WorkloadBenchmark(String... args) {
+		for (String arg : args) {
+			int i = arg.indexOf('=');
+			if (i < 0)
+				throw new IllegalArgumentException(arg);
+			String name = arg.substring(0, i);
+			String value = arg.substring(i + 1);
+			switch (name) {
+			case "pageSize":
+				pageSizes = ints(value);
+				break;
+			case "bufferSize":
+				bufferSizes = ints(value);
+				break;
+			case "threads":
+				threadCounts = ints(value);
+				break;
+			case "records":
+				records = Integer.parseInt(value);
+				break;
+			case "operations":
+				operations = Integer.parseInt(value);
+				break;
+			case "recordSize":
+				recordSize = Integer.parseInt(value);
+				break;
+			case "mix":
+				mix = new double[Operation.values().length];
+				for (String s : value.split(",")) {
+					String[] pair = s.split(":");
+					mix[Operation.valueOf(pair[0].toUpperCase()).ordinal()] = Double.parseDouble(pair[1]);
+				}
+				break;
+			case "distribution":
+				distribution = value;
+				chooser(new Random()); // validates the distribution
+				break;
+			case "theta":
+				theta = Double.parseDouble(value);
+				if (theta <= 0 || theta >= 1)
+					throw new IllegalArgumentException(arg);
+				break;
+			case "scanLength":
+				scanLength = Integer.parseInt(value);
+				break;
+			case "seed":
+				seed = Long.parseLong(value);
+				break;
+			default:
+				throw new IllegalArgumentException(arg);
+			}
+		}
+	}
+
+	/**
+	 * Runs this {@code WorkloadBenchmark} for each combination of page sizes, buffer sizes, and thread counts.
+	 *
+	 * @param out
+	 *            a {@code PrintStream} to which the results are printed
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void run(PrintStream out) throws Exception {
+		out.println("records=" + records + ", operations=" + operations + ", recordSize=" + recordSize + ", mix="
+				+ mix() + ", distribution=" + distribution + (distribution.equals("uniform") ? "" : "(" + theta + ")"));
+		for (int pageSize : pageSizes)
+			for (int bufferSize : bufferSizes)
+				for (int threads : threadCounts)
+					run(pageSize, bufferSize, threads, out);
+	}
+
+	/**
+	 * Runs this {@code WorkloadBenchmark} once.
+	 *
+	 * @param pageSize
+	 *            the size (in bytes) of {@code SlottedPage}s
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the buffer can maintain (0 means a {@code FileManager}
+	 *            without buffering)
+	 * @param threads
+	 *            the number of threads
+	 * @param out
+	 *            a {@code PrintStream} to which the results are printed
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void run(int pageSize, int bufferSize, int threads, PrintStream out) throws Exception {
+		FileManager m = bufferSize == 0 ? new FileManager(pageSize) : new BufferedFileManager(pageSize, bufferSize);
+		m.clear(fileID);
+		AtomicLongArray locations = new AtomicLongArray(records + operations); // location + 1 (0 if not yet added)
+		AtomicInteger size = new AtomicInteger();
+		for (int i = 0; i < records; i++)
+			locations.set(size.getAndIncrement(), m.add(fileID, new byte[recordSize]) + 1);
+		LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+		for (int i = 0; i < latencies.length; i++)
+			latencies[i] = new LatencyHistogram();
+		AtomicLong invalid = new AtomicLong(); // operations on removed records
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		long[] before = io(m);
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			Random random = new Random(seed + t);
+			int count = operations / threads + (t < operations % threads ? 1 : 0);
+			workers.add(new Thread(() -> {
+				KeyChooser chooser = chooser(random);
+				for (int i = 0; i < count; i++) {
+					Operation op = operation(random);
+					long start = System.nanoTime();
+					try {
+						perform(m, op, chooser, locations, size);
+					} catch (InvalidLocationException e) {
+						invalid.incrementAndGet();
+					} catch (Exception e) {
+						failure.compareAndSet(null, e);
+						return;
+					}
+					latencies[op.ordinal()].recordSince(start);
+				}
+			}));
+		}
+		long start = System.nanoTime();
+		for (Thread t : workers)
+			t.start();
+		for (Thread t : workers)
+			t.join();
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		if (failure.get() != null)
+			throw failure.get();
+		long[] after = io(m);
+		m.clear(fileID);
+		m.shutdown();
+		LatencyHistogram all = new LatencyHistogram();
+		for (LatencyHistogram h : latencies)
+			all.add(h);
+		out.printf("%s(pageSize=%d%s), threads=%d: %.0f ops/s, reads=%d, writes=%d, seeks=%d, invalid=%d%n",
+				m.getClass().getSimpleName(), pageSize, bufferSize == 0 ? "" : ", bufferSize=" + bufferSize, threads,
+				operations / elapsed, after[0] - before[0], after[1] - before[1], after[2] - before[2], invalid.get());
+		out.println("  all (us): " + all);
+		for (Operation op : Operation.values())
+			if (latencies[op.ordinal()].count() > 0)
+				out.println("  " + op.name().toLowerCase() + " (us): " + latencies[op.ordinal()]);
+	}
+
+	/**
+	 * Performs the specified operation.
+	 *
+	 * @param m
+	 *            a {@code FileManager}
+	 * @param op
+	 *            the operation to perform
+	 * @param chooser
+	 *            the {@code KeyChooser} for choosing the record to access
+	 * @param locations
+	 *            the locations of the records (each incremented by 1 so that 0 indicates a record being added)
+	 * @param size
+	 *            the number of records added so far
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	void perform(FileManager m, Operation op, KeyChooser chooser, AtomicLongArray locations, AtomicInteger size)
+			throws Exception {
+		if (op == Operation.ADD) {
+			int i = size.getAndIncrement();
+			locations.set(i, m.add(fileID, new byte[recordSize]) + 1);
+		} else if (op == Operation.SCAN) {
+			Iterator<Object> i = m.iterator(fileID);
+			for (int n = 0; n < scanLength && i.hasNext(); n++)
+				i.next();
+		} else {
+			int i = chooser.next(size.get());
+			long location = locations.get(i);
+			while (location == 0 && i > 0) // the record is still being added
+				location = locations.get(--i);
+			if (op == Operation.GET)
+				m.get(fileID, location - 1);
+			else if (op == Operation.PUT)
+				m.put(fileID, location - 1, new byte[recordSize]);
+			else
+				m.remove(fileID, location - 1);
+		}
+	}
+
+	/**
+	 * Chooses an operation according to the operation mix.
+	 *
+	 * @param random
+	 *            a {@code Random}
+	 * @return the chosen operation
+	 */
+	Operation operation(Random random) {
+		double total = 0;
+		for (double w : mix)
+			total += w;
+		double r = random.nextDouble() * total;
+		for (Operation op : Operation.values()) {
+			r -= mix[op.ordinal()];
+			if (r < 0)
+				return op;
+		}
+		return Operation.GET;
+	}
+
+	/**
+	 * Returns a {@code KeyChooser} for the distribution of this {@code WorkloadBenchmark}.
+	 *
+	 * @param random
+	 *            the {@code Random} used by the {@code KeyChooser}
+	 * @return a {@code KeyChooser} for the distribution of this {@code WorkloadBenchmark}
+	 * @throws IllegalArgumentException
+	 *             if the distribution is unknown
+	 */
+	KeyChooser chooser(Random random) {
+		switch (distribution) {
+		case "uniform":
+			return n -> random.nextInt(n);
+		case "zipfian":
+			Zipfian z = new Zipfian(theta, random);
+			return n -> (int) Long.remainderUnsigned(hash(z.next(n)), n); // hot records spread over the file
+		case "latest":
+			Zipfian l = new Zipfian(theta, random);
+			return n -> n - 1 - l.next(n); // the most recently added records are the hottest
+		default:
+			throw new IllegalArgumentException("unknown distribution: " + distribution);
+		}
+	}
+
+	/**
+	 * Returns a string representation of the operation mix.
+	 *
+	 * @return a string representation of the operation mix
+	 */
+	String mix() {
+		String s = "";
+		for (Operation op : Operation.values())
+			if (mix[op.ordinal()] > 0)
+				s += (s.isEmpty() ? "" : ",") + op.name().toLowerCase() + ":" + mix[op.ordinal()];
+		return s;
+	}
+
+	/**
+	 * Returns the total numbers of reads, writes, and seeks performed on the files of the specified
+	 * {@code FileManager}.
+	 *
+	 * @param m
+	 *            a {@code FileManager}
+	 * @return the total numbers of reads, writes, and seeks performed on the files of the specified
+	 *         {@code FileManager}
+	 */
+	static long[] io(FileManager m) {
+		long[] io = new long[3];
+		synchronized (m) {
+			for (IOMetrics metrics : m.id2metrics.values()) {
+				io[0] += metrics.getReads();
+				io[1] += metrics.getWrites();
+				io[2] += metrics.getSeeks();
+			}
+		}
+		return io;
+	}
+
+	/**
+	 * Parses the specified comma-separated list of integers.
+	 *
+	 * @param s
+	 *            a comma-separated list of integers
+	 * @return the integers in the specified list
+	 */
+	static int[] ints(String s) {
+		String[] tokens = s.split(",");
+		int[] values = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++)
+			values[i] = Integer.parseInt(tokens[i].trim());
+		return values;
+	}
+
+	/**
+	 * Returns the FNV-1a hash of the specified value.
+	 *
+	 * @param v
+	 *            a value
+	 * @return the FNV-1a hash of the specified value
+	 */
+	static long hash(long v) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < 8; i++) {
+			h ^= (v >>> (i * 8)) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Runs a {@code WorkloadBenchmark}.
+	 *
+	 * @param args
+	 *            arguments of the form {@code name=value} (see {@link #WorkloadBenchmark(String...)})
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public static void main(String[] args) throws Exception {
+		new WorkloadBenchmark(args).run(System.out);
+	}
+
+	/**
+	 * A {@code KeyChooser} chooses the index of a record to access.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	interface KeyChooser {
+
+		/**
+		 * Returns the index of a record to access.
+		 *
+		 * @param n
+		 *            the number of records
+		 * @return the index of a record to access (between 0 and {@code n - 1})
+		 */
+		int next(int n);
+
+	}
+
+	/**
+	 * A {@code Zipfian} generates integers according to a Zipfian distribution in which 0 is the most popular (see
+	 * Gray et al., "Quickly Generating Billion-Record Synthetic Databases", SIGMOD 1994). The number of items may grow
+	 * over time, in which case the zeta constant is updated incrementally.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Zipfian {
+
+		/**
+		 * The skew of the distribution.
+		 */
+		double theta;
+
+		/**
+		 * The {@code Random} used by this {@code Zipfian}.
+		 */
+		Random random;
+
+		/**
+		 * The number of items for which {@link #zetan} has been computed.
+		 */
+		long items = 0;
+
+		/**
+		 * The sum of {@code 1 / i^theta} for {@code i = 1, ..., items}.
+		 */
+		double zetan = 0;
+
+		/**
+		 * Constructs a {@code Zipfian}.
+		 *
+		 * @param theta
+		 *            the skew of the distribution (between 0 and 1, exclusive)
+		 * @param random
+		 *            the {@code Random} used by the {@code Zipfian}
+		 */
+		Zipfian(double theta, Random random) {
+			this.theta = theta;
+			this.random = random;
+		}
+
+		/**
+		 * Returns an integer between 0 and {@code n - 1}.
+		 *
+		 * @param n
+		 *            the number of items
+		 * @return an integer between 0 and {@code n - 1}
+		 */
+		int next(int n) {
+			for (; items < n; items++)
+				zetan += 1 / Math.pow(items + 1, theta);
+			double zeta2 = 1 + Math.pow(0.5, theta);
+			double eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+			double u = random.nextDouble();
+			double uz = u * zetan;
+			if (uz < 1)
+				return 0;
+			if (uz < zeta2)
+				return Math.min(1, n - 1);
+			return (int) Math.min(n - 1, n * Math.pow(eta * u - eta + 1, 1 / (1 - theta)));
+		}
+
+	}
+
+}
@@ -0,0 +1,729 @@
+package storage;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import storage.SlottedPage.OverflowException;
+
+/**
+ * A {@code BPlusTree} is a disk-resident index that associates keys with locations (e.g., the locations returned by
+ * {@link FileManager#add(int, Object)}). Each node of a {@code BPlusTree} is stored in a {@code SlottedPage} of a
+ * file managed by a {@code FileManager} and thus is accessed through the same buffer as data (if the
+ * {@code FileManager} is a {@code BufferedFileManager}) and is protected by the same write-ahead log (if any). The
+ * root is always stored in {@code SlottedPage} 0 so that no additional metadata is needed to open a
+ * {@code BPlusTree}. A node is split when it no longer fits in a {@code SlottedPage}, so point look-ups and insertions
+ * read O(log n) {@code SlottedPage}s. Leaves are linked in the order of keys for range scans. Removals do not merge
+ * underfilled nodes (a bulk build re-creates a compact {@code BPlusTree}).
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ * @param <K>
+ *            the type of keys
+ */
+public class BPlusTree<K extends Comparable<? super K>> {
+
+	/**
+	 * The {@code FileManager} that manages the file storing the nodes of this {@code BPlusTree}.
+	 */
+	FileManager m;
+
+	/**
+	 * The ID of the file storing the nodes of this {@code BPlusTree}.
+	 */
+	int fileID;
+
+	/**
+	 * The fraction of each {@code SlottedPage} that a bulk build fills.
+	 */
+	double fillFactor = 0.9;
+
+	/**
+	 * Constructs a {@code BPlusTree} whose nodes are stored in the specified file.
+	 *
+	 * @param m
+	 *            the {@code FileManager} that manages the file
+	 * @param fileID
+	 *            the ID of the file storing the nodes of the {@code BPlusTree}
+	 */
+	public BPlusTree(FileManager m, int fileID) {
+		this.m = m;
+		this.fileID = fileID;
+	}
+
+	/**
+	 * Sets the fraction of each {@code SlottedPage} that {@link #build(Iterator)} fills (the remaining space
+	 * accommodates later insertions without splits).
+	 *
+	 * @param fillFactor
+	 *            a value greater than 0 and no greater than 1
+	 */
+	public void setFillFactor(double fillFactor) {
+		if (fillFactor <= 0 || fillFactor > 1)
+			throw new IllegalArgumentException("fill factor: " + fillFactor);
+		this.fillFactor = fillFactor;
+	}
+
+	/**
+	 * Returns the location associated with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @return the location associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long get(K key) throws IOException {
+		synchronized (m) {
+			Node n = leaf(key, null);
+			if (n == null)
+				return null;
+			int i = n.search(key);
+			return i >= 0 ? n.values.get(i) : null;
+		}
+	}
+
+	/**
+	 * Associates the specified location with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @param location
+	 *            a location
+	 * @return the location previously associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long put(K key, long location) throws IOException {
+		Long old;
+		synchronized (m) {
+			old = update(key, location);
+		}
+		m.commit();
+		return old;
+	}
+
+	/**
+	 * Associates the specified location with the specified key without making the update durable (the caller must
+	 * hold the lock on the {@code FileManager}).
+	 *
+	 * @param key
+	 *            a key
+	 * @param location
+	 *            a location
+	 * @return the location previously associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Long update(K key, long location) throws IOException {
+		Node root = node(0);
+		if (root == null) {
+			root = new Node(true);
+			root.keys.add(key);
+			root.values.add(location);
+			write(0, root);
+			return null;
+		}
+		Long[] previous = new Long[1];
+		Split s = insert(0, root, key, location, previous);
+		if (s != null) { // the root is moved to a new page so that the new root is stored in page 0
+			int left = m.size(fileID);
+			write(left, s.left);
+			Node r = new Node(false);
+			r.keys.add(s.key);
+			r.values.add((long) left);
+			r.values.add((long) s.right);
+			write(0, r);
+		}
+		return previous[0];
+	}
+
+	/**
+	 * Removes the specified key from this {@code BPlusTree}.
+	 *
+	 * @param key
+	 *            a key
+	 * @return the location previously associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long remove(K key) throws IOException {
+		Long old;
+		synchronized (m) {
+			old = delete(key);
+		}
+		if (old != null)
+			m.commit();
+		return old;
+	}
+
+	/**
+	 * Removes the specified key from this {@code BPlusTree} without making the update durable (the caller must hold
+	 * the lock on the {@code FileManager}).
+	 *
+	 * @param key
+	 *            a key
+	 * @return the location previously associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Long delete(K key) throws IOException {
+		int[] pageID = new int[1];
+		Node n = leaf(key, pageID);
+		if (n == null)
+			return null;
+		int i = n.search(key);
+		if (i < 0)
+			return null;
+		n.keys.remove(i);
+		Long old = n.values.remove(i);
+		write(pageID[0], n);
+		return old;
+	}
+
+	/**
+	 * Returns an iterator over the entries of this {@code BPlusTree} whose keys are in the specified range (in the
+	 * order of keys). The leaves are read one at a time while the iterator advances.
+	 *
+	 * @param from
+	 *            the lower bound (inclusive) of the range ({@code null} if unbounded)
+	 * @param to
+	 *            the upper bound (exclusive) of the range ({@code null} if unbounded)
+	 * @return an iterator over the entries of this {@code BPlusTree} whose keys are in the specified range
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Iterator<Map.Entry<K, Long>> range(K from, K to) throws IOException {
+		Node first;
+		synchronized (m) {
+			first = leaf(from, null);
+		}
+		int start = first == null || from == null ? 0 : first.search(from);
+		return new Iterator<Map.Entry<K, Long>>() {
+
+			Node n = first;
+
+			int i = start < 0 ? -start - 1 : start;
+
+			@Override
+			public boolean hasNext() {
+				while (n != null && i >= n.keys.size()) { // moves to the next leaf
+					try {
+						synchronized (m) {
+							n = n.next < 0 ? null : node(n.next);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					i = 0;
+				}
+				return n != null && (to == null || key(n, i).compareTo(to) < 0);
+			}
+
+			@Override
+			public Map.Entry<K, Long> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Map.Entry<K, Long> e = new AbstractMap.SimpleImmutableEntry<K, Long>(key(n, i), n.values.get(i));
+				i++;
+				return e;
+			}
+		};
+	}
+
+	/**
+	 * Replaces the content of this {@code BPlusTree} with the specified entries. The {@code BPlusTree} is built
+	 * bottom-up: the leaves are filled up to the fill factor and written one after another, and then each level of
+	 * internal nodes is built from the first keys of the nodes in the level below.
+	 *
+	 * @param entries
+	 *            an iterator over entries sorted by key (without duplicate keys)
+	 * @return the number of entries
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws IllegalArgumentException
+	 *             if the entries are not sorted by key
+	 */
+	public long build(Iterator<? extends Map.Entry<K, Long>> entries) throws IOException {
+		long count = 0;
+		synchronized (m) {
+			m.clear(fileID);
+			List<Object> firstKeys = new ArrayList<Object>(); // the first key of each node in the current level
+			List<Long> pageIDs = new ArrayList<Long>(); // the page ID of each node in the current level
+			Builder leaves = new Builder(true, firstKeys, pageIDs);
+			K previous = null;
+			while (entries.hasNext()) {
+				Map.Entry<K, Long> e = entries.next();
+				if (previous != null && previous.compareTo(e.getKey()) >= 0)
+					throw new IllegalArgumentException("unsorted key: " + e.getKey());
+				previous = e.getKey();
+				leaves.add(e.getKey(), e.getValue());
+				count++;
+			}
+			leaves.finish();
+			while (pageIDs.size() > 1) {
+				List<Object> keys = new ArrayList<Object>(firstKeys);
+				List<Long> children = new ArrayList<Long>(pageIDs);
+				firstKeys.clear();
+				pageIDs.clear();
+				Builder internal = new Builder(false, firstKeys, pageIDs);
+				for (int i = 0; i < children.size(); i++)
+					internal.add(keys.get(i), children.get(i));
+				internal.finish();
+			}
+		}
+		m.commit();
+		return count;
+	}
+
+	/**
+	 * Returns the height of this {@code BPlusTree} (i.e., the number of {@code SlottedPage}s that a point look-up
+	 * reads).
+	 *
+	 * @return the height of this {@code BPlusTree}; 0 if this {@code BPlusTree} is empty
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int height() throws IOException {
+		synchronized (m) {
+			int height = 0;
+			for (Node n = node(0); n != null; n = n.leaf ? null : node(n.values.get(0).intValue()))
+				height++;
+			return height;
+		}
+	}
+
+	/**
+	 * Removes all entries from this {@code BPlusTree}.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void clear() throws IOException {
+		m.clear(fileID);
+	}
+
+	/**
+	 * Returns the leaf that may contain the specified key.
+	 *
+	 * @param key
+	 *            a key ({@code null} for the leftmost leaf)
+	 * @param pageID
+	 *            an array for returning the ID of the {@code SlottedPage} storing the leaf ({@code null} if not needed)
+	 * @return the leaf that may contain the specified key; {@code null} if this {@code BPlusTree} is empty
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Node leaf(K key, int[] pageID) throws IOException {
+		int id = 0;
+		Node n = node(id);
+		while (n != null && !n.leaf) {
+			id = n.values.get(key == null ? 0 : n.child(key)).intValue();
+			n = node(id);
+		}
+		if (pageID != null)
+			pageID[0] = id;
+		return n;
+	}
+
+	/**
+	 * Inserts the specified entry into the subtree rooted at the specified node.
+	 *
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage} storing the node
+	 * @param n
+	 *            the node
+	 * @param key
+	 *            a key
+	 * @param location
+	 *            a location
+	 * @param previous
+	 *            an array for returning the location previously associated with the key
+	 * @return a {@code Split} if the node had to be split; {@code null} otherwise
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Split insert(int pageID, Node n, K key, long location, Long[] previous) throws IOException {
+		if (n.leaf) {
+			int i = n.search(key);
+			if (i >= 0) {
+				previous[0] = n.values.set(i, location);
+				write(pageID, n);
+				return null;
+			}
+			n.keys.add(-i - 1, key);
+			n.values.add(-i - 1, location);
+		} else {
+			int i = n.child(key);
+			int child = n.values.get(i).intValue();
+			Split s = insert(child, node(child), key, location, previous);
+			if (s == null)
+				return null;
+			write(child, s.left);
+			n.keys.add(i, s.key);
+			n.values.add(i + 1, (long) s.right);
+		}
+		if (write(pageID, n))
+			return null;
+		return split(n);
+	}
+
+	/**
+	 * Splits the specified node into two halves. The right half is written to a new {@code SlottedPage} while the left
+	 * half is to be written by the caller.
+	 *
+	 * @param n
+	 *            a node
+	 * @return a {@code Split} describing the two halves
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Split split(Node n) throws IOException {
+		int middle = n.keys.size() / 2;
+		Node right = new Node(n.leaf);
+		Object key = n.keys.get(middle);
+		if (n.leaf) {
+			right.keys.addAll(n.keys.subList(middle, n.keys.size()));
+			right.values.addAll(n.values.subList(middle, n.values.size()));
+			n.values.subList(middle, n.values.size()).clear();
+		} else { // the middle key moves up to the parent
+			right.keys.addAll(n.keys.subList(middle + 1, n.keys.size()));
+			right.values.addAll(n.values.subList(middle + 1, n.values.size()));
+			n.values.subList(middle + 1, n.values.size()).clear();
+		}
+		n.keys.subList(middle, n.keys.size()).clear();
+		int rightID = m.size(fileID);
+		right.next = n.next;
+		if (n.leaf)
+			n.next = rightID;
+		if (!write(rightID, right))
+			throw new IOException("a node does not fit in a page after a split");
+		return new Split(n, key, rightID);
+	}
+
+	/**
+	 * Returns the node stored in the specified {@code SlottedPage}.
+	 *
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @return the node stored in the specified {@code SlottedPage}; {@code null} if no such {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Node node(int pageID) throws IOException {
+		SlottedPage p = m.page(fileID, pageID);
+		if (p == null || p.entryCount() == 0)
+			return null;
+		return (Node) FileManager.object(p, 0);
+	}
+
+	/**
+	 * Writes the specified node to the specified {@code SlottedPage}.
+	 *
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @param n
+	 *            a node
+	 * @return {@code true} if the node is written; {@code false} if the node does not fit in a {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	boolean write(int pageID, Node n) throws IOException {
+		SlottedPage p = new SlottedPage(pageID, m.slottedPageSize);
+		try {
+			p.add(n);
+		} catch (OverflowException e) {
+			return false;
+		}
+		m.updated(p, fileID);
+		return true;
+	}
+
+	/**
+	 * Returns the number of bytes representing the specified node.
+	 *
+	 * @param n
+	 *            a node
+	 * @return the number of bytes representing the specified node
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static int size(Node n) throws IOException {
+		return SlottedPage.toByteArray(n).length;
+	}
+
+	/**
+	 * Returns the maximum number of bytes that a node can occupy in a {@code SlottedPage}.
+	 *
+	 * @return the maximum number of bytes that a node can occupy in a {@code SlottedPage}
+	 */
+	int capacity() {
+		return m.slottedPageSize - 3 * Integer.BYTES; // the entry count, one slot, and the start of data storage
+	}
+
+	/**
+	 * Returns the key at the specified index in the specified node.
+	 *
+	 * @param n
+	 *            a node
+	 * @param i
+	 *            an index
+	 * @return the key at the specified index in the specified node
+	 */
+	@SuppressWarnings("unchecked")
+	K key(Node n, int i) {
+		return (K) n.keys.get(i);
+	}
+
+	/**
+	 * A {@code Node} represents a node of a {@code BPlusTree}. A leaf associates each key with a location. An internal
+	 * node with k keys has k + 1 children and the i-th child (starting from 0) covers the keys that are no smaller than
+	 * the (i - 1)-th key and smaller than the i-th key.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Node implements Serializable {
+
+		/**
+		 * Automatically generated serial version UID.
+		 */
+		private static final long serialVersionUID = -4017335916853367151L;
+
+		/**
+		 * A flag indicating whether or not this {@code Node} is a leaf.
+		 */
+		boolean leaf;
+
+		/**
+		 * The keys in this {@code Node} (in ascending order).
+		 */
+		ArrayList<Object> keys = new ArrayList<Object>();
+
+		/**
+		 * The locations associated with the keys (in case of a leaf) or the IDs of the {@code SlottedPage}s storing the
+		 * children (in case of an internal node).
+		 */
+		ArrayList<Long> values = new ArrayList<Long>();
+
+		/**
+		 * The ID of the {@code SlottedPage} storing the next leaf (-1 if none or this {@code Node} is an internal node).
+		 */
+		int next = -1;
+
+		/**
+		 * Constructs a {@code Node}.
+		 *
+		 * @param leaf
+		 *            a flag indicating whether or not the {@code Node} is a leaf
+		 */
+		Node(boolean leaf) {
+			this.leaf = leaf;
+		}
+
+		@Override
+		public String toString() {
+			return (leaf ? "leaf" : "internal") + "{keys:" + keys + ", values:" + values + "}";
+		}
+
+		/**
+		 * Searches this {@code Node} for the specified key.
+		 *
+		 * @param key
+		 *            a key
+		 * @return the index of the key if found; (-(insertion point) - 1) otherwise
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		int search(Object key) {
+			return Collections.binarySearch((List) keys, key);
+		}
+
+		/**
+		 * Returns the index of the child that covers the specified key.
+		 *
+		 * @param key
+		 *            a key
+		 * @return the index of the child that covers the specified key
+		 */
+		int child(Object key) {
+			int i = search(key);
+			return i >= 0 ? i + 1 : -i - 1;
+		}
+
+	}
+
+	/**
+	 * A {@code Split} describes a node split into two halves.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Split {
+
+		/**
+		 * The left half (which is to be written to the {@code SlottedPage} of the original node).
+		 */
+		Node left;
+
+		/**
+		 * The smallest key covered by the right half.
+		 */
+		Object key;
+
+		/**
+		 * The ID of the {@code SlottedPage} storing the right half.
+		 */
+		int right;
+
+		/**
+		 * Constructs a {@code Split}.
+		 *
+		 * @param left
+		 *            the left half
+		 * @param key
+		 *            the smallest key covered by the right half
+		 * @param right
+		 *            the ID of the {@code SlottedPage} storing the right half
+		 */
+		Split(Node left, Object key, int right) {
+			this.left = left;
+			this.key = key;
+			this.right = right;
+		}
+
+	}
+
+	/**
+	 * A {@code Builder} builds one level of a {@code BPlusTree} from left to right. The last node of the level is kept
+	 * in memory until the next node begins (or the level ends) so that a level consisting of a single node is written
+	 * to {@code SlottedPage} 0 (i.e., becomes the root).
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	class Builder {
+
+		/**
+		 * The node being filled.
+		 */
+		Node n;
+
+		/**
+		 * The first key covered by the node being filled.
+		 */
+		Object first;
+
+		/**
+		 * The ID of the {@code SlottedPage} for the node being filled.
+		 */
+		int pageID;
+
+		/**
+		 * The number of entries at which the size of the node being filled is checked next.
+		 */
+		int check = 1;
+
+		/**
+		 * The first keys covered by the completed nodes in this level.
+		 */
+		List<Object> firstKeys;
+
+		/**
+		 * The IDs of the {@code SlottedPage}s storing the completed nodes in this level.
+		 */
+		List<Long> pageIDs;
+
+		/**
+		 * Constructs a {@code Builder}.
+		 *
+		 * @param leaf
+		 *            a flag indicating whether or not the level consists of leaves
+		 * @param firstKeys
+		 *            a list for returning the first keys covered by the nodes in the level
+		 * @param pageIDs
+		 *            a list for returning the IDs of the {@code SlottedPage}s storing the nodes in the level
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		Builder(boolean leaf, List<Object> firstKeys, List<Long> pageIDs) throws IOException {
+			this.firstKeys = firstKeys;
+			this.pageIDs = pageIDs;
+			n = new Node(leaf);
+			pageID = Math.max(1, m.size(fileID)); // page 0 is reserved for the root
+		}
+
+		/**
+		 * Adds the specified entry (or the specified child in case of an internal level).
+		 *
+		 * @param key
+		 *            a key (the first key covered by the child in case of an internal level)
+		 * @param value
+		 *            a location (the ID of the {@code SlottedPage} storing the child in case of an internal level)
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void add(Object key, long value) throws IOException {
+			if (n.values.isEmpty())
+				first = key;
+			if (n.leaf || n.values.size() > 0) // an internal node has no key for its first child
+				n.keys.add(key);
+			n.values.add(value);
+			if (n.values.size() < check)
+				return;
+			int target = (int) (capacity() * fillFactor);
+			int size = size(n);
+			if (size <= target) { // the next check is estimated from the average size of the entries
+				check = n.values.size() + Math.max(1, (target - size) / (size / n.values.size() + 1));
+				return;
+			}
+			Node next = new Node(n.leaf);
+			Object nextFirst = null;
+			while (n.values.size() > 1 && size(n) > target) { // moves the last entry to the next node
+				Object k = n.keys.remove(n.keys.size() - 1);
+				if (!next.values.isEmpty())
+					next.keys.add(0, n.leaf ? k : nextFirst);
+				else if (n.leaf)
+					next.keys.add(k);
+				next.values.add(0, n.values.remove(n.values.size() - 1));
+				nextFirst = k;
+			}
+			if (n.leaf)
+				n.next = pageID + 1;
+			complete(pageID++);
+			n = next;
+			first = nextFirst;
+			check = n.values.size() + 1;
+		}
+
+		/**
+		 * Completes the level by writing the last node.
+		 *
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void finish() throws IOException {
+			if (n.values.isEmpty())
+				return;
+			complete(pageIDs.isEmpty() ? 0 : pageID); // the only node in the level becomes the root
+		}
+
+		/**
+		 * Writes the node being filled to the specified {@code SlottedPage}.
+		 *
+		 * @param pageID
+		 *            the ID of a {@code SlottedPage}
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void complete(int pageID) throws IOException {
+			if (!write(pageID, n))
+				throw new IOException("a node does not fit in a page: " + n);
+			firstKeys.add(first);
+			pageIDs.add((long) pageID);
+		}
+
+	}
+
+}
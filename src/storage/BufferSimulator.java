@@ -0,0 +1,433 @@
+package storage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@code BufferSimulator} simulates a buffer of {@code SlottedPage}s under a page replacement policy without
+ * performing any I/O. Replaying a {@code PageTrace} against {@code BufferSimulator}s of different sizes and policies
+ * shows which buffer configuration would have served the traced workload best. The simulated buffer behaves like that
+ * of {@code BufferedFileManager}: a read of a {@code SlottedPage} not in the buffer is a miss, an update of a
+ * {@code SlottedPage} not in the buffer (i.e., a newly appended {@code SlottedPage}) puts that {@code SlottedPage} in
+ * the buffer without reading it, updated {@code SlottedPage}s are written back only when evicted, and the
+ * {@code SlottedPage}s remaining dirty at the end of the trace are counted as the writes of the final flush.
+ *
+ * A trace can be analyzed from the command line as follows:
+ *
+ * <pre>
+ * java storage.BufferSimulator trace.bin 16,64,256,1024 LRU,FIFO,CLOCK
+ * </pre>
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public abstract class BufferSimulator implements PageTrace.Listener {
+
+	/**
+	 * The number of {@code SlottedPage}s that the simulated buffer can maintain.
+	 */
+	int bufferSize;
+
+	/**
+	 * The number of reads that found the {@code SlottedPage} in the buffer.
+	 */
+	long hits = 0;
+
+	/**
+	 * The number of reads that did not find the {@code SlottedPage} in the buffer.
+	 */
+	long misses = 0;
+
+	/**
+	 * The number of dirty {@code SlottedPage}s evicted.
+	 */
+	long writes = 0;
+
+	/**
+	 * Constructs a {@code BufferSimulator}.
+	 *
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the simulated buffer can maintain
+	 */
+	protected BufferSimulator(int bufferSize) {
+		if (bufferSize < 1)
+			throw new IllegalArgumentException("buffer size: " + bufferSize);
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Constructs a {@code BufferSimulator} that uses the specified replacement policy.
+	 *
+	 * @param policy
+	 *            the name of a replacement policy ("LRU", "FIFO", or "CLOCK")
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the simulated buffer can maintain
+	 * @return a {@code BufferSimulator} that uses the specified replacement policy
+	 * @throws IllegalArgumentException
+	 *             if the policy is unknown
+	 */
+	public static BufferSimulator create(String policy, int bufferSize) {
+		switch (policy.toUpperCase()) {
+		case "LRU":
+			return new LRU(bufferSize);
+		case "FIFO":
+			return new FIFO(bufferSize);
+		case "CLOCK":
+			return new Clock(bufferSize);
+		default:
+			throw new IllegalArgumentException("unknown policy: " + policy);
+		}
+	}
+
+	@Override
+	public String toString() {
+		long reads = hits + misses;
+		return String.format("%s(bufferSize=%d): hits=%d, misses=%d, hitRatio=%.4f, writes=%d (+%d at flush)",
+				getClass().getSimpleName(), bufferSize, hits, misses, reads == 0 ? 0 : (double) hits / reads,
+				writes, dirty());
+	}
+
+	@Override
+	public void access(long time, int fileID, int pageID, boolean write) {
+		access(((long) fileID << 32) | (pageID & 0xffffffffL), write);
+	}
+
+	/**
+	 * Simulates an access to the specified {@code SlottedPage}.
+	 *
+	 * @param key
+	 *            the concatenation of the file ID and the page ID of the {@code SlottedPage}
+	 * @param write
+	 *            {@code true} if the {@code SlottedPage} is updated; {@code false} if it is read
+	 */
+	public void access(long key, boolean write) {
+		boolean hit = hit(key, write);
+		if (!write) {
+			if (hit)
+				hits++;
+			else
+				misses++;
+		}
+		if (!hit) {
+			if (size() >= bufferSize && evict())
+				writes++;
+			insert(key, write);
+		}
+	}
+
+	/**
+	 * Returns the number of reads that found the {@code SlottedPage} in the buffer.
+	 *
+	 * @return the number of reads that found the {@code SlottedPage} in the buffer
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of reads that did not find the {@code SlottedPage} in the buffer.
+	 *
+	 * @return the number of reads that did not find the {@code SlottedPage} in the buffer
+	 */
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of dirty {@code SlottedPage}s evicted.
+	 *
+	 * @return the number of dirty {@code SlottedPage}s evicted
+	 */
+	public long writes() {
+		return writes;
+	}
+
+	/**
+	 * Determines whether or not the specified {@code SlottedPage} is in the buffer, updating the state of the
+	 * replacement policy (and marking the {@code SlottedPage} dirty if it is updated).
+	 *
+	 * @param key
+	 *            the concatenation of the file ID and the page ID of the {@code SlottedPage}
+	 * @param write
+	 *            {@code true} if the {@code SlottedPage} is updated
+	 * @return {@code true} if the {@code SlottedPage} is in the buffer; {@code false} otherwise
+	 */
+	protected abstract boolean hit(long key, boolean write);
+
+	/**
+	 * Puts the specified {@code SlottedPage} in the buffer (which has room for it).
+	 *
+	 * @param key
+	 *            the concatenation of the file ID and the page ID of the {@code SlottedPage}
+	 * @param write
+	 *            {@code true} if the {@code SlottedPage} is dirty
+	 */
+	protected abstract void insert(long key, boolean write);
+
+	/**
+	 * Evicts a {@code SlottedPage} chosen by the replacement policy.
+	 *
+	 * @return {@code true} if the evicted {@code SlottedPage} was dirty; {@code false} otherwise
+	 */
+	protected abstract boolean evict();
+
+	/**
+	 * Returns the number of {@code SlottedPage}s in the buffer.
+	 *
+	 * @return the number of {@code SlottedPage}s in the buffer
+	 */
+	protected abstract int size();
+
+	/**
+	 * Returns the number of dirty {@code SlottedPage}s in the buffer.
+	 *
+	 * @return the number of dirty {@code SlottedPage}s in the buffer
+	 */
+	protected abstract int dirty();
+
+	/**
+	 * Loads the specified trace and replays it against a {@code BufferSimulator} for each combination of the
+	 * specified buffer sizes and policies.
+	 *
+	 * @param args
+	 *            the name of the trace file, a comma-separated list of buffer sizes (default 16,64,256,1024), and a
+	 *            comma-separated list of policies (default LRU,FIFO,CLOCK)
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("usage: java storage.BufferSimulator trace [bufferSizes] [policies]");
+			return;
+		}
+		String[] sizes = (args.length > 1 ? args[1] : "16,64,256,1024").split(",");
+		String[] policies = (args.length > 2 ? args[2] : "LRU,FIFO,CLOCK").split(",");
+		long[][] trace = { new long[1 << 20] }; // the accesses (each key shifted left by 1 plus the write flag)
+		int[] length = { 0 };
+		PageTrace.replay(args[0], (time, fileID, pageID, write) -> {
+			if (length[0] == trace[0].length)
+				trace[0] = Arrays.copyOf(trace[0], length[0] * 2);
+			trace[0][length[0]++] = ((((long) fileID << 32) | (pageID & 0xffffffffL)) << 1) | (write ? 1 : 0);
+		});
+		System.out.println(length[0] + " accesses");
+		for (String policy : policies)
+			for (String size : sizes) {
+				BufferSimulator s = create(policy.trim(), Integer.parseInt(size.trim()));
+				for (int i = 0; i < length[0]; i++)
+					s.access(trace[0][i] >> 1, (trace[0][i] & 1) == 1); // arithmetic shift keeps the file ID
+				System.out.println(s);
+			}
+	}
+
+	/**
+	 * A {@code LRU} simulates a buffer managed according to the LRU policy (as in {@code BufferedFileManager}).
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	public static class LRU extends BufferSimulator {
+
+		/**
+		 * The buffered {@code SlottedPage}s (in the order of eviction) and their dirty flags.
+		 */
+		LinkedHashMap<Long, Boolean> buffer;
+
+		/**
+		 * The number of dirty {@code SlottedPage}s in the buffer.
+		 */
+		int dirty = 0;
+
+		/**
+		 * Constructs a {@code LRU}.
+		 *
+		 * @param bufferSize
+		 *            the number of {@code SlottedPage}s that the simulated buffer can maintain
+		 */
+		public LRU(int bufferSize) {
+			this(bufferSize, true);
+		}
+
+		/**
+		 * Constructs a {@code LRU} (or a {@code FIFO}).
+		 *
+		 * @param bufferSize
+		 *            the number of {@code SlottedPage}s that the simulated buffer can maintain
+		 * @param accessOrder
+		 *            {@code true} to evict the least recently accessed {@code SlottedPage}; {@code false} to evict the
+		 *            least recently inserted {@code SlottedPage}
+		 */
+		LRU(int bufferSize, boolean accessOrder) {
+			super(bufferSize);
+			buffer = new LinkedHashMap<Long, Boolean>(bufferSize * 2, 0.75f, accessOrder);
+		}
+
+		@Override
+		protected boolean hit(long key, boolean write) {
+			Boolean d = buffer.get(key);
+			if (d == null)
+				return false;
+			if (write && !d) {
+				buffer.put(key, true);
+				dirty++;
+			}
+			return true;
+		}
+
+		@Override
+		protected void insert(long key, boolean write) {
+			buffer.put(key, write);
+			if (write)
+				dirty++;
+		}
+
+		@Override
+		protected boolean evict() {
+			Iterator<Map.Entry<Long, Boolean>> i = buffer.entrySet().iterator();
+			boolean d = i.next().getValue();
+			i.remove();
+			if (d)
+				dirty--;
+			return d;
+		}
+
+		@Override
+		protected int size() {
+			return buffer.size();
+		}
+
+		@Override
+		protected int dirty() {
+			return dirty;
+		}
+
+	}
+
+	/**
+	 * A {@code FIFO} simulates a buffer that evicts the {@code SlottedPage} that entered the buffer earliest.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	public static class FIFO extends LRU {
+
+		/**
+		 * Constructs a {@code FIFO}.
+		 *
+		 * @param bufferSize
+		 *            the number of {@code SlottedPage}s that the simulated buffer can maintain
+		 */
+		public FIFO(int bufferSize) {
+			super(bufferSize, false);
+		}
+
+	}
+
+	/**
+	 * A {@code Clock} simulates a buffer managed according to the CLOCK (second chance) policy.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	public static class Clock extends BufferSimulator {
+
+		/**
+		 * A map that associates each buffered {@code SlottedPage} with its frame.
+		 */
+		HashMap<Long, Integer> frames = new HashMap<Long, Integer>();
+
+		/**
+		 * The {@code SlottedPage} in each frame.
+		 */
+		long[] keys;
+
+		/**
+		 * The reference bit of each frame.
+		 */
+		boolean[] referenced;
+
+		/**
+		 * The dirty flag of each frame.
+		 */
+		boolean[] dirtyFlags;
+
+		/**
+		 * The frame that the clock hand points to.
+		 */
+		int hand = 0;
+
+		/**
+		 * The number of dirty {@code SlottedPage}s in the buffer.
+		 */
+		int dirty = 0;
+
+		/**
+		 * The frame to fill next ({@code -1} if none is free).
+		 */
+		int free = 0;
+
+		/**
+		 * Constructs a {@code Clock}.
+		 *
+		 * @param bufferSize
+		 *            the number of {@code SlottedPage}s that the simulated buffer can maintain
+		 */
+		public Clock(int bufferSize) {
+			super(bufferSize);
+			keys = new long[bufferSize];
+			referenced = new boolean[bufferSize];
+			dirtyFlags = new boolean[bufferSize];
+		}
+
+		@Override
+		protected boolean hit(long key, boolean write) {
+			Integer f = frames.get(key);
+			if (f == null)
+				return false;
+			referenced[f] = true;
+			if (write && !dirtyFlags[f]) {
+				dirtyFlags[f] = true;
+				dirty++;
+			}
+			return true;
+		}
+
+		@Override
+		protected void insert(long key, boolean write) {
+			int f = free;
+			free = frames.size() + 1 < keys.length ? frames.size() + 1 : -1;
+			keys[f] = key;
+			referenced[f] = true;
+			dirtyFlags[f] = write;
+			if (write)
+				dirty++;
+			frames.put(key, f);
+		}
+
+		@Override
+		protected boolean evict() {
+			while (referenced[hand]) {
+				referenced[hand] = false;
+				hand = (hand + 1) % keys.length;
+			}
+			int f = hand;
+			hand = (hand + 1) % keys.length;
+			frames.remove(keys[f]);
+			free = f;
+			boolean d = dirtyFlags[f];
+			if (d)
+				dirty--;
+			return d;
+		}
+
+		@Override
+		protected int size() {
+			return frames.size();
+		}
+
+		@Override
+		protected int dirty() {
+			return dirty;
+		}
+
+	}
+
+}
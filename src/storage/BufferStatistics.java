@@ -0,0 +1,144 @@
+package storage;
+
+/**
+ * A {@code BufferStatistics} object is a snapshot of the statistics about the buffer of a
+ * {@code BufferedFileManager} (see {@link BufferedFileManager#statistics()} and
+ * {@link BufferedFileManager#statistics(int)}).
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class BufferStatistics implements BufferStatisticsMBean {
+
+	/**
+	 * The number of buffer hits.
+	 */
+	long hits;
+
+	/**
+	 * The number of buffer misses.
+	 */
+	long misses;
+
+	/**
+	 * The number of clean {@code SlottedPage}s evicted.
+	 */
+	long cleanEvictions;
+
+	/**
+	 * The number of dirty {@code SlottedPage}s evicted.
+	 */
+	long dirtyEvictions;
+
+	/**
+	 * The number of {@code SlottedPage}s in the buffer.
+	 */
+	long resident;
+
+	/**
+	 * The number of dirty {@code SlottedPage}s in the buffer.
+	 */
+	long dirty;
+
+	/**
+	 * The number of pin waits.
+	 */
+	long pinWaits;
+
+	/**
+	 * The number of {@code SlottedPage}s that have left the buffer.
+	 */
+	long departures;
+
+	/**
+	 * The total time (in nanoseconds) that {@code SlottedPage}s have stayed in the buffer.
+	 */
+	long residency;
+
+	@Override
+	public String toString() {
+		return String.format(
+				"{hits:%d, misses:%d, hitRatio:%.3f, cleanEvictions:%d, dirtyEvictions:%d, resident:%d, dirty:%d, pinWaits:%d, averageResidencyTime:%.1f}",
+				hits, misses, getHitRatio(), cleanEvictions, dirtyEvictions, resident, dirty, pinWaits,
+				getAverageResidencyTime());
+	}
+
+	/**
+	 * Adds the specified statistics to this {@code BufferStatistics}.
+	 * 
+	 * @param s
+	 *            a {@code BufferStatistics}
+	 */
+	void add(BufferStatistics s) {
+		hits += s.hits;
+		misses += s.misses;
+		cleanEvictions += s.cleanEvictions;
+		dirtyEvictions += s.dirtyEvictions;
+		resident += s.resident;
+		dirty += s.dirty;
+		pinWaits += s.pinWaits;
+		departures += s.departures;
+		residency += s.residency;
+	}
+
+	/**
+	 * Returns a copy of this {@code BufferStatistics}.
+	 * 
+	 * @return a copy of this {@code BufferStatistics}
+	 */
+	BufferStatistics copy() {
+		BufferStatistics s = new BufferStatistics();
+		s.add(this);
+		return s;
+	}
+
+	@Override
+	public long getHits() {
+		return hits;
+	}
+
+	@Override
+	public long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public double getHitRatio() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	@Override
+	public long getCleanEvictions() {
+		return cleanEvictions;
+	}
+
+	@Override
+	public long getDirtyEvictions() {
+		return dirtyEvictions;
+	}
+
+	@Override
+	public long getResident() {
+		return resident;
+	}
+
+	@Override
+	public long getDirty() {
+		return dirty;
+	}
+
+	@Override
+	public double getDirtyRatio() {
+		return resident == 0 ? 0 : (double) dirty / resident;
+	}
+
+	@Override
+	public long getPinWaits() {
+		return pinWaits;
+	}
+
+	@Override
+	public double getAverageResidencyTime() {
+		return departures == 0 ? 0 : residency / 1e6 / departures;
+	}
+
+}
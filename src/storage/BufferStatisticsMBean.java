@@ -0,0 +1,84 @@
+package storage;
+
+/**
+ * The management interface of the buffer statistics of a {@code BufferedFileManager} (either for a single file or
+ * for all files).
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public interface BufferStatisticsMBean {
+
+	/**
+	 * Returns the number of {@code SlottedPage} accesses that found the {@code SlottedPage} in the buffer.
+	 * 
+	 * @return the number of {@code SlottedPage} accesses that found the {@code SlottedPage} in the buffer
+	 */
+	long getHits();
+
+	/**
+	 * Returns the number of {@code SlottedPage} accesses that did not find the {@code SlottedPage} in the buffer.
+	 * 
+	 * @return the number of {@code SlottedPage} accesses that did not find the {@code SlottedPage} in the buffer
+	 */
+	long getMisses();
+
+	/**
+	 * Returns the fraction of {@code SlottedPage} accesses that found the {@code SlottedPage} in the buffer.
+	 * 
+	 * @return the fraction of {@code SlottedPage} accesses that found the {@code SlottedPage} in the buffer (0 if no
+	 *         access has been made)
+	 */
+	double getHitRatio();
+
+	/**
+	 * Returns the number of clean {@code SlottedPage}s evicted from the buffer.
+	 * 
+	 * @return the number of clean {@code SlottedPage}s evicted from the buffer
+	 */
+	long getCleanEvictions();
+
+	/**
+	 * Returns the number of dirty {@code SlottedPage}s evicted (and thus written) from the buffer.
+	 * 
+	 * @return the number of dirty {@code SlottedPage}s evicted from the buffer
+	 */
+	long getDirtyEvictions();
+
+	/**
+	 * Returns the number of {@code SlottedPage}s currently in the buffer.
+	 * 
+	 * @return the number of {@code SlottedPage}s currently in the buffer
+	 */
+	long getResident();
+
+	/**
+	 * Returns the number of dirty {@code SlottedPage}s currently in the buffer.
+	 * 
+	 * @return the number of dirty {@code SlottedPage}s currently in the buffer
+	 */
+	long getDirty();
+
+	/**
+	 * Returns the fraction of the {@code SlottedPage}s in the buffer that are dirty.
+	 * 
+	 * @return the fraction of the {@code SlottedPage}s in the buffer that are dirty (0 if the buffer is empty)
+	 */
+	double getDirtyRatio();
+
+	/**
+	 * Returns the number of times that an eviction or an operation had to pass over or wait for a
+	 * {@code SlottedPage} pinned by a checkpoint writing that {@code SlottedPage}.
+	 * 
+	 * @return the number of pin waits
+	 */
+	long getPinWaits();
+
+	/**
+	 * Returns the average time (in milliseconds) that {@code SlottedPage}s stay in the buffer (including the
+	 * {@code SlottedPage}s currently in the buffer).
+	 * 
+	 * @return the average time (in milliseconds) that {@code SlottedPage}s stay in the buffer
+	 */
+	double getAverageResidencyTime();
+
+}
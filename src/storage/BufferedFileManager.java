@@ -1,13 +1,84 @@
 package storage;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+
 /**
- * A {@code BufferedFileManager} manages a storage space using the slotted page format and buffering.
+ * A {@code BufferedFileManager} manages a storage space using the slotted page format and buffering. Recently used
+ * {@code SlottedPage}s are kept in a buffer managed according to the LRU policy. Updated {@code SlottedPage}s are
+ * written back to the data files lazily (i.e., when they are evicted from the buffer, when a checkpoint is performed,
+ * or when this {@code BufferedFileManager} shuts down). If a {@code LogManager} is used, each update only requires a
+ * sequential append to the log, which is shared with concurrent updates, and random writes of {@code SlottedPage}s
+ * happen off the critical path. Optionally, the clean {@code SlottedPage}s evicted from the buffer are kept in a
+ * compressed second-tier cache (see {@link #setSecondTier(long)}).
  * 
  * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
  */
 public class BufferedFileManager extends FileManager {
 
-	// TODO complete this class (5 points)
+	/**
+	 * The number of {@code SlottedPage}s that the buffer can maintain.
+	 */
+	int bufferSize;
+
+	/**
+	 * The buffer that associates the concatenation of the file ID and the page ID of each buffered {@code SlottedPage}
+	 * with that {@code SlottedPage} (in the order of access from the least recently accessed).
+	 */
+	LinkedHashMap<Long, SlottedPage> buffer = new LinkedHashMap<Long, SlottedPage>(16, 0.75f, true);
+
+	/**
+	 * A map that associates the concatenation of the file ID and the page ID of each dirty {@code SlottedPage} (i.e.,
+	 * a buffered {@code SlottedPage} that has been updated after being read from/written to the data file) with a
+	 * {@code Dirty} object describing that {@code SlottedPage}.
+	 */
+	Map<Long, Dirty> dirty = new HashMap<Long, Dirty>();
+
+	/**
+	 * The concatenations of the file IDs and page IDs of the {@code SlottedPage}s that are being written to the data
+	 * files by a checkpoint (such {@code SlottedPage}s cannot be evicted until they are written).
+	 */
+	Set<Long> writing = new HashSet<Long>();
+
+	/**
+	 * A map that associates the ID of each file with the number of {@code SlottedPage}s in that file including the
+	 * {@code SlottedPage}s that have not yet been written to the file.
+	 */
+	Map<Integer, Integer> sizes = new HashMap<Integer, Integer>();
+
+	/**
+	 * A map that associates the ID of each file with the (cumulative) statistics about the buffer accesses to that
+	 * file.
+	 */
+	Map<Integer, BufferStatistics> id2stats = new HashMap<Integer, BufferStatistics>();
+
+	/**
+	 * A map that associates the concatenation of the file ID and the page ID of each buffered {@code SlottedPage}
+	 * with the time (obtained from {@code System.nanoTime()}) at which that {@code SlottedPage} entered the buffer.
+	 */
+	Map<Long, Long> loaded = new HashMap<Long, Long>();
+
+	/**
+	 * The number of times that an operation waited for checkpoint writes to finish.
+	 */
+	long awaits = 0;
+
+	/**
+	 * The second-tier cache that keeps the clean {@code SlottedPage}s evicted from the buffer in compressed form
+	 * ({@code null} if not used).
+	 */
+	CompressedPageCache secondTier = null;
 
 	/**
 	 * Constructs a {@code BufferedFileManager}.
@@ -19,6 +90,689 @@ public class BufferedFileManager extends FileManager {
 	 */
 	public BufferedFileManager(int slottedPageSize, int bufferSize) {
 		super(slottedPageSize);
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Shuts down this {@code BufferedFileManager} after saving all of the dirty {@code SlottedPage}s in the buffer.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void shutdown() throws IOException {
+		setCheckpointInterval(0);
+		flush();
+		super.shutdown();
+		setSecondTier(0);
+	}
+
+	/**
+	 * Sets the {@code LogManager} for this {@code BufferedFileManager} after saving all of the dirty
+	 * {@code SlottedPage}s in the buffer.
+	 * 
+	 * @param log
+	 *            a {@code LogManager}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public synchronized void setLogManager(LogManager log) throws IOException {
+		flush();
+		for (Long key : buffer.keySet())
+			depart(key);
+		buffer.clear();
+		sizes.clear();
+		if (secondTier != null) // the data files may change during recovery
+			secondTier.removeIf(key -> true);
+		super.setLogManager(log);
+	}
+
+	/**
+	 * Performs a fuzzy checkpoint. The dirty {@code SlottedPage}s are written to the data files one at a time without
+	 * blocking updates (an update may even be applied to a {@code SlottedPage} while a copy of that
+	 * {@code SlottedPage} is being written). Then, the recovery start point (the beginning of the first log record
+	 * that may not be reflected in the data files) is recorded in the log so that recovery after a crash only needs
+	 * to redo the updates following that point.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void checkpoint() throws IOException {
+		List<Long> keys;
+		synchronized (this) {
+			if (log == null)
+				return;
+			keys = new ArrayList<Long>(dirty.keySet());
+		}
+		Collections.sort(keys); // pages of each file are written in ascending order
+		for (Long key : keys) {
+			Dirty d;
+			SlottedPage copy;
+			SlottedPageFile f;
+			synchronized (this) {
+				if (batches.contains(first(key))) // the page is saved when the batch ends
+					continue;
+				d = dirty.remove(key); // the page is regarded clean unless updated again
+				if (d == null) // written/evicted since the beginning of the checkpoint
+					continue;
+				copy = new SlottedPage(d.page.pageID(), slottedPageSize);
+				System.arraycopy(d.page.data(), 0, copy.data(), 0, slottedPageSize);
+				f = file(first(key));
+				writing.add(key);
+			}
+			boolean written = false;
+			try {
+				log.commit(d.pageLSN); // the write-ahead rule
+				f.save(copy);
+				written = true;
+			} finally {
+				synchronized (this) {
+					if (!written) // the page is still dirty
+						dirty.merge(key, d, (n, o) -> {
+							n.recLSN = o.recLSN;
+							return n;
+						});
+					writing.remove(key);
+					notifyAll();
+				}
+			}
+		}
+		long start;
+		List<SlottedPageFile> files;
+		synchronized (this) {
+			start = log.appended();
+			for (Dirty d : dirty.values())
+				start = Math.min(start, d.recLSN);
+			files = new ArrayList<SlottedPageFile>(id2file.values());
+		}
+		for (SlottedPageFile f : files) // the pages written so far (including evicted ones) become durable
+			f.sync();
+		log.checkpoint(start);
+	}
+
+	/**
+	 * Removes all data from the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public synchronized void clear(int fileID) throws IOException {
+		awaitWrites();
+		for (Iterator<Long> i = buffer.keySet().iterator(); i.hasNext();) {
+			Long key = i.next();
+			if (first(key) == fileID) {
+				i.remove();
+				dirty.remove(key);
+				depart(key);
+			}
+		}
+		sizes.remove(fileID);
+		if (secondTier != null)
+			secondTier.removeIf(key -> first(key) == fileID);
+		super.clear(fileID);
+	}
+
+	@Override
+	int vacate(int fileID, int target) throws IOException {
+		awaitWrites(); // a page written by a checkpoint must not reappear after truncation
+		return super.vacate(fileID, target);
+	}
+
+	@Override
+	void truncate(int fileID, int size) throws IOException {
+		awaitWrites();
+		for (Iterator<Long> i = buffer.keySet().iterator(); i.hasNext();) {
+			Long key = i.next();
+			if (first(key) == fileID && second(key) >= size) {
+				i.remove();
+				dirty.remove(key);
+				depart(key);
+			}
+		}
+		if (size(fileID) > size)
+			sizes.put(fileID, size);
+		if (secondTier != null)
+			secondTier.removeIf(key -> first(key) == fileID && second(key) >= size);
+		super.truncate(fileID, size);
+	}
+
+	/**
+	 * Sets the capacity of the second-tier cache, which keeps the clean {@code SlottedPage}s evicted from the buffer
+	 * in compressed form (see {@link CompressedPageCache}) so that buffer misses on them are served from memory.
+	 * 
+	 * @param capacity
+	 *            the maximum number of (compressed) bytes that the second-tier cache can hold (0 to disable the
+	 *            second-tier cache)
+	 */
+	public synchronized void setSecondTier(long capacity) {
+		if (secondTier != null) // releases the native memory of the replaced cache
+			secondTier.close();
+		secondTier = capacity > 0 ? new CompressedPageCache(capacity, slottedPageSize) : null;
+	}
+
+	/**
+	 * Returns the second-tier cache of this {@code BufferedFileManager}.
+	 * 
+	 * @return the second-tier cache of this {@code BufferedFileManager} ({@code null} if not used)
+	 */
+	public synchronized CompressedPageCache secondTier() {
+		return secondTier;
+	}
+
+	/**
+	 * Removes the specified {@code SlottedPage} from the second-tier cache.
+	 * 
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @return the specified {@code SlottedPage}; {@code null} if it is not in the second-tier cache
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	SlottedPage uncache(int fileID, int pageID) throws IOException {
+		if (secondTier == null)
+			return null;
+		long key = concatenate(fileID, pageID);
+		byte[] compressed = secondTier.take(key);
+		if (compressed == null) // no page is allocated on a miss
+			return null;
+		SlottedPage p = file(fileID).newPage(pageID);
+		secondTier.decompress(key, compressed, p.data());
+		p.resetModified();
+		return p;
+	}
+
+	/**
+	 * Begins a batch on the specified file after saving the dirty {@code SlottedPage}s of the file so that the batch
+	 * only covers the {@code SlottedPage}s that it modifies.
+	 * 
+	 * @param fileID
+	 *            the ID of a file that uses shadow paging
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	void begin(int fileID) throws IOException {
+		awaitWrites(); // no page of the file is being written by a checkpoint during the batch
+		flush(fileID);
+		super.begin(fileID);
+	}
+
+	/**
+	 * Ends the batch on the specified file. To commit the batch, the dirty {@code SlottedPage}s of the file are saved
+	 * as part of the batch. To abort the batch, the buffered {@code SlottedPage}s of the file are discarded so that
+	 * they are read again from the reverted file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file that uses shadow paging
+	 * @param commit
+	 *            {@code true} to commit the batch; {@code false} to abort it
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	void end(int fileID, boolean commit) throws IOException {
+		if (commit)
+			flush(fileID);
+		else {
+			for (Iterator<Long> i = buffer.keySet().iterator(); i.hasNext();) {
+				Long key = i.next();
+				if (first(key) == fileID) {
+					i.remove();
+					dirty.remove(key);
+					depart(key);
+				}
+			}
+			sizes.remove(fileID);
+			if (secondTier != null)
+				secondTier.removeIf(key -> first(key) == fileID);
+		}
+		super.end(fileID, commit);
+	}
+
+	/**
+	 * Saves the dirty {@code SlottedPage}s of the specified file that uses shadow paging (such {@code SlottedPage}s
+	 * have no log records to force).
+	 * 
+	 * @param fileID
+	 *            the ID of a file that uses shadow paging
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void flush(int fileID) throws IOException {
+		List<SlottedPage> pages = new ArrayList<SlottedPage>();
+		for (Iterator<Map.Entry<Long, Dirty>> i = dirty.entrySet().iterator(); i.hasNext();) {
+			Map.Entry<Long, Dirty> e = i.next();
+			if (first(e.getKey()) == fileID) {
+				pages.add(e.getValue().page);
+				i.remove();
+			}
+		}
+		if (!pages.isEmpty())
+			file(fileID).save(pages);
+	}
+
+	/**
+	 * Saves all of the dirty {@code SlottedPage}s in the buffer in the data files.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void flush() throws IOException {
+		awaitWrites();
+		if (log != null) // the write-ahead rule
+			log.commit();
+		Map<Long, SlottedPage> pages = new HashMap<Long, SlottedPage>();
+		for (Map.Entry<Long, Dirty> e : dirty.entrySet())
+			pages.put(e.getKey(), e.getValue().page);
+		save(pages); // consecutive pages are written together (and stripes in parallel)
+		dirty.clear();
+	}
+
+	/**
+	 * Exports the {@code IOMetrics} of the files managed by this {@code BufferedFileManager} as well as the global
+	 * and per-file buffer statistics as JMX MBeans (the latter named
+	 * {@code storage:type=BufferStatistics,name=<name>[,fileID=<fileID>]}).
+	 * 
+	 * @param name
+	 *            the name that distinguishes this {@code BufferedFileManager} from others in the same JVM
+	 * @throws IllegalStateException
+	 *             if the metrics have already been exported
+	 * @throws IllegalArgumentException
+	 *             if the MBeans cannot be registered under the specified name
+	 */
+	@Override
+	public synchronized void exportMetrics(String name) {
+		super.exportMetrics(name);
+		register(null);
+		for (int fileID : id2stats.keySet())
+			register(fileID);
+	}
+
+	/**
+	 * Returns a snapshot of the statistics about the buffer over all files.
+	 * 
+	 * @return a snapshot of the statistics about the buffer over all files
+	 */
+	public synchronized BufferStatistics statistics() {
+		BufferStatistics s = new BufferStatistics();
+		for (int fileID : id2stats.keySet())
+			s.add(statistics(fileID));
+		s.pinWaits += awaits;
+		return s;
+	}
+
+	/**
+	 * Returns a snapshot of the statistics about the buffer accesses to the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @return a snapshot of the statistics about the buffer accesses to the specified file
+	 */
+	public synchronized BufferStatistics statistics(int fileID) {
+		BufferStatistics s = stats(fileID).copy();
+		long now = System.nanoTime();
+		for (Map.Entry<Long, Long> e : loaded.entrySet())
+			if (first(e.getKey()) == fileID) {
+				s.resident++;
+				s.departures++; // residents count toward the average residency time so far
+				s.residency += now - e.getValue();
+			}
+		for (Long key : dirty.keySet())
+			if (first(key) == fileID)
+				s.dirty++;
+		return s;
+	}
+
+	@Override
+	int size(int fileID) throws IOException {
+		Integer size = sizes.get(fileID);
+		if (size == null) {
+			size = super.size(fileID);
+			sizes.put(fileID, size);
+		}
+		return size;
+	}
+
+	@Override
+	SlottedPage page(int fileID, int pageID) throws IOException {
+		long key = concatenate(fileID, pageID);
+		SlottedPage p = buffer.get(key);
+		if (p == null) {
+			stats(fileID).misses++;
+			p = uncache(fileID, pageID);
+			if (p != null)
+				trace(fileID, pageID, false);
+			else
+				p = super.page(fileID, pageID); // also records the access in the trace
+			if (p != null)
+				buffer(key, p);
+		} else {
+			stats(fileID).hits++;
+			trace(fileID, pageID, false);
+		}
+		return p;
+	}
+
+	@Override
+	List<SlottedPage> pages(int fileID, int pageID, int count) throws IOException {
+		if (count == 1)
+			return super.pages(fileID, pageID, count);
+		List<SlottedPage> pages = new ArrayList<SlottedPage>(count);
+		List<SlottedPage> read = null; // the pages read from the file (only if some page is not buffered)
+		for (int i = pageID; i < pageID + count && i < size(fileID); i++) {
+			long key = concatenate(fileID, i);
+			SlottedPage p = buffer.get(key);
+			if (p != null)
+				stats(fileID).hits++;
+			else {
+				stats(fileID).misses++;
+				p = uncache(fileID, i);
+				if (p == null) {
+					if (read == null)
+						read = file(fileID).get(i, pageID + count - i); // read the remaining pages in parallel
+					for (SlottedPage r : read)
+						if (r.pageID() == i)
+							p = r;
+					if (p == null)
+						break;
+				}
+				buffer(key, p);
+			}
+			trace(fileID, i, false);
+			pages.add(p);
+		}
+		return pages;
+	}
+
+	@Override
+	void updated(SlottedPage p, int fileID) throws IOException {
+		trace(fileID, p.pageID(), true);
+		long key = concatenate(fileID, p.pageID());
+		long start = log == null ? 0 : log.appended(); // the beginning of the log record to append
+		long lsn = log(p, fileID);
+		Dirty d = dirty.get(key);
+		if (d == null)
+			dirty.put(key, new Dirty(p, start, lsn));
+		else {
+			d.page = p;
+			d.pageLSN = lsn;
+		}
+		if (p.pageID() >= size(fileID))
+			sizes.put(fileID, p.pageID() + 1);
+		if (buffer.get(key) != p)
+			buffer(key, p);
+	}
+
+	@Override
+	void append(int fileID, List<SlottedPage> pages) throws IOException {
+		super.append(fileID, pages); // the new pages are written directly (rather than through the buffer)
+		sizes.put(fileID, pages.get(pages.size() - 1).pageID() + 1);
+	}
+
+	/**
+	 * Puts the specified {@code SlottedPage} in the buffer, evicting the least recently used {@code SlottedPage}s if
+	 * the buffer is full. The {@code SlottedPage}s being written by a checkpoint are not evicted.
+	 * 
+	 * @param key
+	 *            the concatenation of the file ID and the page ID of the {@code SlottedPage}
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void buffer(long key, SlottedPage p) throws IOException {
+		if (buffer.put(key, p) == null)
+			loaded.put(key, System.nanoTime());
+		if (secondTier != null) // a page is never kept in both tiers
+			secondTier.discard(key);
+		Iterator<Map.Entry<Long, SlottedPage>> i = buffer.entrySet().iterator();
+		while (buffer.size() > bufferSize && i.hasNext()) {
+			Map.Entry<Long, SlottedPage> e = i.next();
+			BufferStatistics s = stats(first(e.getKey()));
+			if (writing.contains(e.getKey()))
+				s.pinWaits++;
+			else {
+				StorageEvents.Eviction event = new StorageEvents.Eviction();
+				event.begin();
+				boolean written = write(e.getKey(), e.getValue());
+				if (written)
+					s.dirtyEvictions++;
+				else {
+					s.cleanEvictions++;
+					if (secondTier != null)
+						secondTier.put(e.getKey(), e.getValue().data());
+				}
+				if (event.shouldCommit()) {
+					event.fileID = first(e.getKey());
+					event.pageID = second(e.getKey());
+					event.bytes = written ? slottedPageSize : 0;
+					event.dirty = written;
+					event.commit();
+				}
+				i.remove();
+				depart(e.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Writes the specified {@code SlottedPage} to the data file if it is dirty.
+	 * 
+	 * @param key
+	 *            the concatenation of the file ID and the page ID of the {@code SlottedPage}
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return {@code true} if the {@code SlottedPage} was dirty (and thus written); {@code false} otherwise
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	boolean write(long key, SlottedPage p) throws IOException {
+		Dirty d = dirty.remove(key);
+		if (d == null)
+			return false;
+		if (log != null && d.pageLSN > log.durable()) // the write-ahead rule
+			log.commit(d.pageLSN);
+		file(first(key)).save(p);
+		return true;
+	}
+
+	/**
+	 * Records that the specified {@code SlottedPage} has left the buffer.
+	 * 
+	 * @param key
+	 *            the concatenation of the file ID and the page ID of the {@code SlottedPage}
+	 */
+	void depart(long key) {
+		Long since = loaded.remove(key);
+		if (since != null) {
+			BufferStatistics s = stats(first(key));
+			s.departures++;
+			s.residency += System.nanoTime() - since;
+		}
+	}
+
+	/**
+	 * Registers a JMX MBean for the buffer statistics of the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file ({@code null} for the statistics over all files)
+	 * @throws IllegalArgumentException
+	 *             if the MBean cannot be registered
+	 */
+	void register(Integer fileID) {
+		try {
+			register("BufferStatistics", fileID,
+					new StandardMBean(new LiveStatistics(fileID), BufferStatisticsMBean.class));
+		} catch (NotCompliantMBeanException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Returns the (cumulative) statistics about the buffer accesses to the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @return the statistics about the buffer accesses to the specified file
+	 */
+	BufferStatistics stats(int fileID) {
+		BufferStatistics s = id2stats.get(fileID);
+		if (s == null) {
+			s = new BufferStatistics();
+			id2stats.put(fileID, s);
+			if (metricsName != null)
+				register(fileID);
+		}
+		return s;
+	}
+
+	/**
+	 * Waits until all of the {@code SlottedPage}s being written by a checkpoint are written. This method must be
+	 * invoked only at the beginning of a synchronized method since the lock on this {@code BufferedFileManager} is
+	 * released while waiting.
+	 * 
+	 * @throws IOException
+	 *             if interrupted while waiting
+	 */
+	void awaitWrites() throws IOException {
+		if (!writing.isEmpty())
+			awaits++;
+		while (!writing.isEmpty())
+			LogManager.wait(this);
+	}
+
+	/**
+	 * A {@code LiveStatistics} exposes the current buffer statistics of this {@code BufferedFileManager} as a JMX
+	 * MBean (each attribute is read from a fresh snapshot).
+	 * 
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	class LiveStatistics implements BufferStatisticsMBean {
+
+		/**
+		 * The ID of the file ({@code null} for the statistics over all files).
+		 */
+		Integer fileID;
+
+		/**
+		 * Constructs a {@code LiveStatistics}.
+		 * 
+		 * @param fileID
+		 *            the ID of the file ({@code null} for the statistics over all files)
+		 */
+		LiveStatistics(Integer fileID) {
+			this.fileID = fileID;
+		}
+
+		/**
+		 * Returns a snapshot of the statistics.
+		 * 
+		 * @return a snapshot of the statistics
+		 */
+		BufferStatistics snapshot() {
+			return fileID == null ? statistics() : statistics(fileID);
+		}
+
+		@Override
+		public long getHits() {
+			return snapshot().getHits();
+		}
+
+		@Override
+		public long getMisses() {
+			return snapshot().getMisses();
+		}
+
+		@Override
+		public double getHitRatio() {
+			return snapshot().getHitRatio();
+		}
+
+		@Override
+		public long getCleanEvictions() {
+			return snapshot().getCleanEvictions();
+		}
+
+		@Override
+		public long getDirtyEvictions() {
+			return snapshot().getDirtyEvictions();
+		}
+
+		@Override
+		public long getResident() {
+			return snapshot().getResident();
+		}
+
+		@Override
+		public long getDirty() {
+			return snapshot().getDirty();
+		}
+
+		@Override
+		public double getDirtyRatio() {
+			return snapshot().getDirtyRatio();
+		}
+
+		@Override
+		public long getPinWaits() {
+			return snapshot().getPinWaits();
+		}
+
+		@Override
+		public double getAverageResidencyTime() {
+			return snapshot().getAverageResidencyTime();
+		}
+
+	}
+
+	/**
+	 * A {@code Dirty} object describes a dirty {@code SlottedPage}.
+	 * 
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Dirty {
+
+		/**
+		 * The dirty {@code SlottedPage}.
+		 */
+		SlottedPage page;
+
+		/**
+		 * The LSN of the beginning of the first log record describing an update of the {@code SlottedPage} since the
+		 * {@code SlottedPage} was last written (i.e., the point from which the {@code SlottedPage} needs to be
+		 * recovered).
+		 */
+		long recLSN;
+
+		/**
+		 * The LSN of the last log record describing an update of the {@code SlottedPage}.
+		 */
+		long pageLSN;
+
+		/**
+		 * Constructs a {@code Dirty} object.
+		 * 
+		 * @param page
+		 *            the dirty {@code SlottedPage}
+		 * @param recLSN
+		 *            the LSN of the beginning of the first log record describing an update of the
+		 *            {@code SlottedPage} since the {@code SlottedPage} was last written
+		 * @param pageLSN
+		 *            the LSN of the last log record describing an update of the {@code SlottedPage}
+		 */
+		Dirty(SlottedPage page, long recLSN, long pageLSN) {
+			this.page = page;
+			this.recLSN = recLSN;
+			this.pageLSN = pageLSN;
+		}
+
 	}
 
 }
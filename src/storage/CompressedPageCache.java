@@ -0,0 +1,253 @@
+package storage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@code CompressedPageCache} keeps the data of {@code SlottedPage}s in compressed form within a bound on the total
+ * number of compressed bytes, evicting the least recently used entries when the bound is exceeded. It serves as a
+ * second-tier cache behind the buffer of a {@code BufferedFileManager} (see
+ * {@link BufferedFileManager#setSecondTier(long)}): clean {@code SlottedPage}s evicted from the buffer are added, and
+ * a buffer miss on a cached {@code SlottedPage} is served by decompressing its data instead of reading the data file.
+ * Since serialized objects and the unused space of {@code SlottedPage}s compress well, the same amount of memory holds
+ * several times more {@code SlottedPage}s. The data of a {@code SlottedPage} that does not compress is kept as is. A
+ * {@code CompressedPageCache} is not thread-safe (a {@code BufferedFileManager} accesses it while holding its lock).
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class CompressedPageCache {
+
+	/**
+	 * The maximum number of (compressed) bytes that this {@code CompressedPageCache} can hold.
+	 */
+	long capacity;
+
+	/**
+	 * The size (in bytes) of {@code SlottedPage}s.
+	 */
+	int slottedPageSize;
+
+	/**
+	 * The number of (compressed) bytes held by this {@code CompressedPageCache}.
+	 */
+	long bytes = 0;
+
+	/**
+	 * The number of lookups that found the requested {@code SlottedPage}.
+	 */
+	long hits = 0;
+
+	/**
+	 * The number of lookups that did not find the requested {@code SlottedPage}.
+	 */
+	long misses = 0;
+
+	/**
+	 * The entries of this {@code CompressedPageCache}, each associating a key (e.g., the concatenation of a file ID
+	 * and a page ID) with the compressed data of a {@code SlottedPage} (in the order of access from the least recently
+	 * accessed).
+	 */
+	LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+
+	/**
+	 * The {@code Deflater} for compressing data.
+	 */
+	Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	/**
+	 * The {@code Inflater} for decompressing data.
+	 */
+	Inflater inflater = new Inflater();
+
+	/**
+	 * The buffer that receives the output of the {@code Deflater}.
+	 */
+	byte[] buffer;
+
+	/**
+	 * Constructs a {@code CompressedPageCache}.
+	 *
+	 * @param capacity
+	 *            the maximum number of (compressed) bytes that the {@code CompressedPageCache} can hold
+	 * @param slottedPageSize
+	 *            the size (in bytes) of {@code SlottedPage}s
+	 */
+	public CompressedPageCache(long capacity, int slottedPageSize) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("invalid capacity: " + capacity);
+		this.capacity = capacity;
+		this.slottedPageSize = slottedPageSize;
+		this.buffer = new byte[slottedPageSize];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{pages:%d, bytes:%d, capacity:%d, compressionRatio:%.2f, hits:%d, misses:%d}", pages(),
+				bytes, capacity, compressionRatio(), hits, misses);
+	}
+
+	/**
+	 * Returns the number of {@code SlottedPage}s held by this {@code CompressedPageCache}.
+	 *
+	 * @return the number of {@code SlottedPage}s held by this {@code CompressedPageCache}
+	 */
+	public int pages() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of (compressed) bytes held by this {@code CompressedPageCache}.
+	 *
+	 * @return the number of (compressed) bytes held by this {@code CompressedPageCache}
+	 */
+	public long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the ratio of the uncompressed size to the compressed size of the {@code SlottedPage}s held by this
+	 * {@code CompressedPageCache}.
+	 *
+	 * @return the ratio of the uncompressed size to the compressed size of the {@code SlottedPage}s held by this
+	 *         {@code CompressedPageCache} (1 if empty)
+	 */
+	public double compressionRatio() {
+		return bytes == 0 ? 1 : (double) pages() * slottedPageSize / bytes;
+	}
+
+	/**
+	 * Returns the number of lookups that found the requested {@code SlottedPage}.
+	 *
+	 * @return the number of lookups that found the requested {@code SlottedPage}
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find the requested {@code SlottedPage}.
+	 *
+	 * @return the number of lookups that did not find the requested {@code SlottedPage}
+	 */
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * Adds the specified data of a {@code SlottedPage} under the specified key in compressed form (replacing the data
+	 * previously associated with the key), evicting the least recently used entries if the capacity is exceeded.
+	 *
+	 * @param key
+	 *            a key
+	 * @param data
+	 *            the data of a {@code SlottedPage}
+	 */
+	public void put(long key, byte[] data) {
+		discard(key);
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		int length = deflater.deflate(buffer);
+		// a compressed entry is always shorter than a SlottedPage
+		byte[] compressed = deflater.finished() && length < slottedPageSize ? Arrays.copyOf(buffer, length)
+				: data.clone();
+		if (compressed.length > capacity)
+			return;
+		entries.put(key, compressed);
+		bytes += compressed.length;
+		for (Iterator<byte[]> i = entries.values().iterator(); bytes > capacity;) {
+			bytes -= i.next().length;
+			i.remove();
+		}
+	}
+
+	/**
+	 * Removes the entries whose keys satisfy the specified predicate (e.g., the {@code SlottedPage}s of a file that is
+	 * truncated).
+	 *
+	 * @param filter
+	 *            a predicate on keys
+	 */
+	public void removeIf(LongPredicate filter) {
+		for (Iterator<Map.Entry<Long, byte[]>> i = entries.entrySet().iterator(); i.hasNext();) {
+			Map.Entry<Long, byte[]> e = i.next();
+			if (filter.test(e.getKey())) {
+				bytes -= e.getValue().length;
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes the (compressed) data associated with the specified key, counting the lookup as a hit or a miss. This
+	 * allows the caller to allocate the array to receive the data only when the data is found (see
+	 * {@link #decompress(long, byte[], byte[])}).
+	 *
+	 * @param key
+	 *            a key
+	 * @return the (compressed) data associated with the specified key; {@code null} if no such data
+	 */
+	public byte[] take(long key) {
+		byte[] compressed = discard(key);
+		if (compressed == null)
+			misses++;
+		else
+			hits++;
+		return compressed;
+	}
+
+	/**
+	 * Decompresses the specified data (returned by {@link #take(long)}) into the specified array.
+	 *
+	 * @param key
+	 *            the key associated with the data
+	 * @param compressed
+	 *            the (compressed) data of a {@code SlottedPage}
+	 * @param data
+	 *            the array to receive the data of the {@code SlottedPage}
+	 */
+	public void decompress(long key, byte[] compressed, byte[] data) {
+		if (compressed.length == slottedPageSize) // not compressed
+			System.arraycopy(compressed, 0, data, 0, slottedPageSize);
+		else
+			try {
+				inflater.reset();
+				inflater.setInput(compressed);
+				if (inflater.inflate(data, 0, slottedPageSize) != slottedPageSize)
+					throw new IllegalStateException("corrupted entry: " + key);
+			} catch (DataFormatException e) {
+				throw new IllegalStateException(e);
+			}
+	}
+
+	/**
+	 * Removes all entries from this {@code CompressedPageCache} and releases the native memory of its
+	 * {@code Deflater} and {@code Inflater}. This {@code CompressedPageCache} must not be used afterwards.
+	 */
+	public void close() {
+		removeIf(key -> true);
+		deflater.end();
+		inflater.end();
+	}
+
+	/**
+	 * Removes the data associated with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @return the (compressed) data associated with the specified key; {@code null} if no such data
+	 */
+	byte[] discard(long key) {
+		byte[] compressed = entries.remove(key);
+		if (compressed != null)
+			bytes -= compressed.length;
+		return compressed;
+	}
+
+}
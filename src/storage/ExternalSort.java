@@ -0,0 +1,405 @@
+package storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * An {@code ExternalSort} sorts the objects in a file managed by a {@code FileManager} using a bounded number of
+ * {@code SlottedPage}s in memory (the page budget). In the first phase, the input file is read (through the buffer of
+ * the {@code FileManager}, if any) as many {@code SlottedPage}s at a time as the page budget allows, and the objects
+ * from these {@code SlottedPage}s are sorted in parallel and written as a sorted run to a temporary file. In the second
+ * phase, up to {@link #fanIn()} runs are merged at a time, each run being read in chunks of consecutive
+ * {@code SlottedPage}s using large sequential reads. If there are more runs than the fan-in, intermediate merge passes
+ * write longer runs to a second temporary file. The last pass writes the sorted objects to the output file using
+ * {@link FileManager#addAll(int, Iterator, double, int, java.util.function.LongConsumer)}. A share of the page budget
+ * (see {@link #outputPages()}) is reserved for the {@code SlottedPage}s being written, so the input (or the runs
+ * being merged) and the output together stay within the page budget.
+ *
+ * Each run occupies consecutive {@code SlottedPage}s of a temporary file. The temporary files use the IDs
+ * {@code tempFileID} and {@code tempFileID + 1} and are cleared when sorting completes.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class ExternalSort {
+
+	/**
+	 * The {@code FileManager} that manages the files.
+	 */
+	FileManager m;
+
+	/**
+	 * The ID of the first temporary file (the second temporary file has the next ID).
+	 */
+	int tempFileID;
+
+	/**
+	 * The maximum number of {@code SlottedPage}s to keep in memory.
+	 */
+	int pageBudget;
+
+	/**
+	 * The maximum number of runs to merge at a time (0 if determined by the page budget).
+	 */
+	int fanIn = 0;
+
+	/**
+	 * The number of passes performed by the latest {@link #sort(int, int, Comparator)} call (including run
+	 * generation).
+	 */
+	int passes = 0;
+
+	/**
+	 * Constructs an {@code ExternalSort}.
+	 *
+	 * @param m
+	 *            the {@code FileManager} that manages the files
+	 * @param tempFileID
+	 *            the ID of the first temporary file (the second temporary file has the next ID)
+	 * @param pageBudget
+	 *            the maximum number of {@code SlottedPage}s to keep in memory (at least 2)
+	 */
+	public ExternalSort(FileManager m, int tempFileID, int pageBudget) {
+		if (pageBudget < 2)
+			throw new IllegalArgumentException("the page budget must be at least 2: " + pageBudget);
+		this.m = m;
+		this.tempFileID = tempFileID;
+		this.pageBudget = pageBudget;
+	}
+
+	/**
+	 * Sets the maximum number of runs to merge at a time. By default, the fan-in is the square root of the page budget
+	 * so that both the number of runs merged at a time and the number of {@code SlottedPage}s read from each run at a
+	 * time grow with the page budget.
+	 *
+	 * @param fanIn
+	 *            the maximum number of runs to merge at a time (between 2 and the page budget)
+	 */
+	public void setFanIn(int fanIn) {
+		if (fanIn < 2 || fanIn > pageBudget)
+			throw new IllegalArgumentException("invalid fan-in: " + fanIn);
+		this.fanIn = fanIn;
+	}
+
+	/**
+	 * Returns the maximum number of runs to merge at a time.
+	 *
+	 * @return the maximum number of runs to merge at a time
+	 */
+	public int fanIn() {
+		return fanIn > 0 ? fanIn : Math.max(2, (int) Math.sqrt(pageBudget));
+	}
+
+	/**
+	 * Returns the number of {@code SlottedPage}s of the page budget reserved for the output of each pass (i.e., the
+	 * number of {@code SlottedPage}s written at a time). The output gets as large a share as each run being merged.
+	 *
+	 * @return the number of {@code SlottedPage}s of the page budget reserved for the output of each pass
+	 */
+	int outputPages() {
+		return Math.max(1, pageBudget / (fanIn() + 1));
+	}
+
+	/**
+	 * Returns the number of {@code SlottedPage}s of the page budget available for the input of each pass.
+	 *
+	 * @return the number of {@code SlottedPage}s of the page budget available for the input of each pass
+	 */
+	int inputPages() {
+		return Math.max(1, pageBudget - outputPages());
+	}
+
+	/**
+	 * Returns the number of passes performed by the latest {@link #sort(int, int, Comparator)} call (including run
+	 * generation).
+	 *
+	 * @return the number of passes performed by the latest {@link #sort(int, int, Comparator)} call
+	 */
+	public int passes() {
+		return passes;
+	}
+
+	/**
+	 * Writes the objects in the specified input file to the specified output file in the order defined by the
+	 * specified {@code Comparator}. The output file is cleared first and the input file is not modified.
+	 *
+	 * @param <T>
+	 *            the type of the objects
+	 * @param inputFileID
+	 *            the ID of the input file
+	 * @param outputFileID
+	 *            the ID of the output file
+	 * @param comparator
+	 *            a {@code Comparator} that defines the order of the objects
+	 * @return the number of objects sorted
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public <T> long sort(int inputFileID, int outputFileID, Comparator<? super T> comparator) throws IOException {
+		if (inputFileID == outputFileID || inputFileID == tempFileID || inputFileID == tempFileID + 1
+				|| outputFileID == tempFileID || outputFileID == tempFileID + 1)
+			throw new IllegalArgumentException("the input, output, and temporary files must differ");
+		try {
+			m.clear(tempFileID);
+			m.clear(tempFileID + 1);
+			m.clear(outputFileID);
+			List<Run> runs = runs(inputFileID, tempFileID, comparator);
+			passes = 1;
+			int fanIn = fanIn();
+			int from = tempFileID;
+			while (runs.size() > fanIn) { // an intermediate merge pass
+				int to = from == tempFileID ? tempFileID + 1 : tempFileID;
+				List<Run> merged = new ArrayList<Run>();
+				for (int i = 0; i < runs.size(); i += fanIn)
+					merged.add(write(to, merge(runs.subList(i, Math.min(i + fanIn, runs.size())), comparator)));
+				m.clear(from);
+				runs = merged;
+				from = to;
+				passes++;
+			}
+			long count = m.addAll(outputFileID, merge(runs, comparator), 1.0, outputPages(), l -> {
+			});
+			passes++;
+			return count;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			m.clear(tempFileID);
+			m.clear(tempFileID + 1);
+		}
+	}
+
+	/**
+	 * Generates sorted runs from the specified input file. Each run contains the objects from as many
+	 * {@code SlottedPage}s of the input file as the page budget allows (see {@link #inputPages()}) and the objects are
+	 * sorted in parallel.
+	 *
+	 * @param <T>
+	 *            the type of the objects
+	 * @param inputFileID
+	 *            the ID of the input file
+	 * @param runFileID
+	 *            the ID of the file to store the runs
+	 * @param comparator
+	 *            a {@code Comparator} that defines the order of the objects
+	 * @return the runs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@SuppressWarnings("unchecked")
+	<T> List<Run> runs(int inputFileID, int runFileID, Comparator<? super T> comparator) throws IOException {
+		List<Run> runs = new ArrayList<Run>();
+		for (int pageID = 0;;) {
+			List<SlottedPage> pages;
+			synchronized (m) {
+				pages = m.pages(inputFileID, pageID, inputPages());
+			}
+			if (pages.isEmpty())
+				return runs;
+			pageID += pages.size();
+			List<Object> objects = new ArrayList<Object>();
+			for (SlottedPage p : pages)
+				for (Object o : p)
+					objects.add(o);
+			pages = null; // the pages can be reclaimed while the objects are sorted and written
+			Object[] a = objects.toArray();
+			objects = null;
+			Arrays.parallelSort(a, (o1, o2) -> comparator.compare((T) o1, (T) o2));
+			if (a.length > 0)
+				runs.add(write(runFileID, Arrays.asList(a).iterator()));
+		}
+	}
+
+	/**
+	 * Writes the objects from the specified iterator as a run at the end of the specified file.
+	 *
+	 * @param fileID
+	 *            the ID of the file
+	 * @param objects
+	 *            an iterator over the objects of the run (in sorted order)
+	 * @return the run
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Run write(int fileID, Iterator<?> objects) throws IOException {
+		int[] pages = { -1, -1 }; // the IDs of the first and last pages of the run
+		m.addAll(fileID, objects, 1.0, outputPages(), l -> {
+			if (pages[0] < 0)
+				pages[0] = m.first(l);
+			pages[1] = m.first(l);
+		});
+		return new Run(fileID, pages[0], pages[1] + 1);
+	}
+
+	/**
+	 * Returns an iterator that merges the specified runs. Each run is read in chunks of consecutive
+	 * {@code SlottedPage}s so that the runs together use no more {@code SlottedPage}s than the share of the page budget
+	 * for the input (see {@link #inputPages()}).
+	 *
+	 * @param <T>
+	 *            the type of the objects
+	 * @param runs
+	 *            the runs to merge
+	 * @param comparator
+	 *            a {@code Comparator} that defines the order of the objects
+	 * @return an iterator that merges the specified runs (which throws an {@code UncheckedIOException} if an I/O error
+	 *         occurs)
+	 */
+	@SuppressWarnings("unchecked")
+	<T> Iterator<Object> merge(List<Run> runs, Comparator<? super T> comparator) {
+		int chunk = Math.max(1, inputPages() / Math.max(1, runs.size()));
+		PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(Math.max(1, runs.size()),
+				(r1, r2) -> comparator.compare((T) r1.head, (T) r2.head));
+		for (Run r : runs) {
+			RunReader reader = new RunReader(r, chunk);
+			if (reader.advance())
+				queue.add(reader);
+		}
+		return new Iterator<Object>() {
+
+			@Override
+			public boolean hasNext() {
+				return !queue.isEmpty();
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				RunReader r = queue.poll();
+				Object o = r.head;
+				if (r.advance())
+					queue.add(r);
+				return o;
+			}
+		};
+	}
+
+	/**
+	 * A {@code Run} is a sorted sequence of objects stored in consecutive {@code SlottedPage}s of a file.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Run {
+
+		/**
+		 * The ID of the file containing this {@code Run}.
+		 */
+		int fileID;
+
+		/**
+		 * The ID of the first {@code SlottedPage} of this {@code Run}.
+		 */
+		int start;
+
+		/**
+		 * The ID of the {@code SlottedPage} following the last {@code SlottedPage} of this {@code Run}.
+		 */
+		int end;
+
+		/**
+		 * Constructs a {@code Run}.
+		 *
+		 * @param fileID
+		 *            the ID of the file containing the {@code Run}
+		 * @param start
+		 *            the ID of the first {@code SlottedPage} of the {@code Run}
+		 * @param end
+		 *            the ID of the {@code SlottedPage} following the last {@code SlottedPage} of the {@code Run}
+		 */
+		Run(int fileID, int start, int end) {
+			this.fileID = fileID;
+			this.start = start;
+			this.end = end;
+		}
+
+	}
+
+	/**
+	 * A {@code RunReader} reads the objects of a {@code Run} in chunks of consecutive {@code SlottedPage}s.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	class RunReader {
+
+		/**
+		 * The {@code Run} to read.
+		 */
+		Run run;
+
+		/**
+		 * The number of {@code SlottedPage}s to read at a time.
+		 */
+		int chunk;
+
+		/**
+		 * The ID of the next {@code SlottedPage} to read.
+		 */
+		int next;
+
+		/**
+		 * An iterator over the objects from the {@code SlottedPage}s read most recently.
+		 */
+		Iterator<Object> objects = null;
+
+		/**
+		 * The current object.
+		 */
+		Object head;
+
+		/**
+		 * Constructs a {@code RunReader}.
+		 *
+		 * @param run
+		 *            the {@code Run} to read
+		 * @param chunk
+		 *            the number of {@code SlottedPage}s to read at a time
+		 */
+		RunReader(Run run, int chunk) {
+			this.run = run;
+			this.chunk = chunk;
+			this.next = run.start;
+		}
+
+		/**
+		 * Advances to the next object of the {@code Run}.
+		 *
+		 * @return {@code true} if the next object is available as {@link #head}; {@code false} if the end of the
+		 *         {@code Run} is reached
+		 * @throws UncheckedIOException
+		 *             if an I/O error occurs
+		 */
+		boolean advance() {
+			while (objects == null || !objects.hasNext()) {
+				if (next >= run.end)
+					return false;
+				List<SlottedPage> pages;
+				try {
+					synchronized (m) { // bypasses the buffer (the runs are written by FileManager#addAll)
+						pages = m.file(run.fileID).get(next, Math.min(chunk, run.end - next));
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				if (pages.isEmpty())
+					throw new UncheckedIOException(new IOException("page " + next + " of a run is missing"));
+				next += pages.size();
+				List<Object> l = new ArrayList<Object>();
+				for (SlottedPage p : pages)
+					for (Object o : p)
+						l.add(o);
+				objects = l.iterator();
+			}
+			head = objects.next();
+			return true;
+		}
+
+	}
+
+}
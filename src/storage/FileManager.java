@@ -2,10 +2,34 @@ package storage;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import storage.LogManager.LogRecord;
 import storage.SlottedPage.OverflowException;
 
 /**
@@ -15,16 +39,135 @@ import storage.SlottedPage.OverflowException;
  */
 public class FileManager implements StorageManager<Long, Object> {
 
+	/**
+	 * The number of bytes written by each batch of {@link #addAll(int, Iterator, double, LongConsumer)}.
+	 */
+	static final int BULK_LOAD_BATCH = 1 << 20;
+
+	/**
+	 * The number of {@code SlottedPage}s that {@link #pageIterator(int)} reads at a time.
+	 */
+	static final int SCAN_PAGES = 32;
+
 	/**
 	 * A map that associates the ID of each file with a {@code SlottedPageFile} for accessing that file.
 	 */
 	Map<Integer, SlottedPageFile> id2file = new HashMap<Integer, SlottedPageFile>();
 
+	/**
+	 * A map that associates the ID of each striped file with the directories containing the stripes of that file.
+	 */
+	Map<Integer, String[]> id2stripes = new HashMap<Integer, String[]>();
+
+	/**
+	 * The IDs of the files that use shadow paging (see {@link ShadowSlottedPageFile}).
+	 */
+	Set<Integer> shadowed = new HashSet<Integer>();
+
+	/**
+	 * The IDs of the files on which a batch is in progress (see {@link #atomically(int, Callable)}).
+	 */
+	Set<Integer> batches = new HashSet<Integer>();
+
+	/**
+	 * The {@code SlottedPageFile}s whose file handles may be open (in the order of access from the least recently
+	 * accessed; maintained only if the number of open file handles is bounded).
+	 */
+	LinkedHashMap<Integer, SlottedPageFile> handles = new LinkedHashMap<Integer, SlottedPageFile>(16, 0.75f, true);
+
+	/**
+	 * The number of file handles used by the {@code SlottedPageFile}s in {@link #handles}.
+	 */
+	int openHandles = 0;
+
+	/**
+	 * The maximum number of file handles to keep open (0 if unbounded).
+	 */
+	int maxOpenHandles = 0;
+
+	/**
+	 * A map that associates the ID of each file with the {@code PageFormat} of that file (files not in this map use
+	 * {@link PageFormat#SLOTTED}).
+	 */
+	Map<Integer, PageFormat> id2formats = new HashMap<Integer, PageFormat>();
+
+	/**
+	 * A map that associates the ID of each file with the {@code SecondaryIndex}es on that file.
+	 */
+	Map<Integer, List<SecondaryIndex<?>>> id2indexes = new HashMap<Integer, List<SecondaryIndex<?>>>();
+
+	/**
+	 * The {@code SlottedPage}s updated by the current operation whose writes are deferred until the log records of the
+	 * operation are forced together ({@code null} unless writes are deferred; see {@link #deferWrites(int)}).
+	 */
+	Map<Long, SlottedPage> deferred = null;
+
+	/**
+	 * The number of the most recently opened {@code Snapshot}.
+	 */
+	long snapshotNumber = 0;
+
+	/**
+	 * A map that associates the number of each open {@code Snapshot} with that {@code Snapshot}.
+	 */
+	TreeMap<Long, Snapshot> snapshots = new TreeMap<Long, Snapshot>();
+
+	/**
+	 * A map that associates each {@code SlottedPage} (identified by the concatenation of the file ID and the page ID)
+	 * with the copies of that {@code SlottedPage} saved for the open {@code Snapshot}s. Each copy is tagged with the
+	 * number of the latest {@code Snapshot} opened before the copy was saved, so a {@code Snapshot} reads the copy with
+	 * the smallest tag that is not smaller than its number.
+	 */
+	Map<Long, TreeMap<Long, byte[]>> versions = new HashMap<Long, TreeMap<Long, byte[]>>();
+
+	/**
+	 * The minimum and maximum sizes (in bytes) of the extents in which space is preallocated for each file.
+	 */
+	int[] extents = { 1 << 20, 1 << 26 };
+
+	/**
+	 * A map that associates the ID of each file with the {@code IOMetrics} for that file.
+	 */
+	Map<Integer, IOMetrics> id2metrics = new HashMap<Integer, IOMetrics>();
+
+	/**
+	 * The name under which the {@code IOMetrics} are exported as JMX MBeans ({@code null} if not exported).
+	 */
+	String metricsName = null;
+
+	/**
+	 * The names of the JMX MBeans registered by this {@code FileManager}.
+	 */
+	List<ObjectName> exported = new ArrayList<ObjectName>();
+
+	/**
+	 * A map that associates the ID of each file with the {@code ForwardingTable} that keeps the locations of the moved
+	 * objects in that file valid.
+	 */
+	Map<Integer, ForwardingTable> id2forwards = new HashMap<Integer, ForwardingTable>();
+
+	/**
+	 * The {@code PageTrace} in which the accesses to {@code SlottedPage}s are recorded ({@code null} if no accesses
+	 * are recorded).
+	 */
+	PageTrace trace = null;
+
 	/**
 	 * The size (in bytes) of {@code SlottedPage}s.
 	 */
 	int slottedPageSize;
 
+	/**
+	 * The {@code LogManager} for this {@code FileManager} ({@code null} if no write-ahead logging is performed).
+	 */
+	LogManager log = null;
+
+	/**
+	 * The {@code Checkpointer} that periodically performs checkpoints ({@code null} if no periodic checkpoints are
+	 * performed).
+	 */
+	Checkpointer checkpointer = null;
+
 	/**
 	 * Constructs a {@code FileManager}.
 	 * 
@@ -52,8 +195,50 @@ public class FileManager implements StorageManager<Long, Object> {
 	 *             if an I/O error occurs
 	 */
 	public void shutdown() throws IOException {
+		setCheckpointInterval(0); // stops checkpointing
+		synchronized (this) {
+			if (log != null) {
+				for (SlottedPageFile f : id2file.values())
+					f.sync(); // all modifications are now in the data files
+				log.clear(); // so the log is no longer needed
+				log.close();
+			}
+			for (SlottedPageFile f : id2file.values())
+				f.close(); // closes each data file
+			for (ForwardingTable t : id2forwards.values())
+				t.close();
+			stopTrace();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			for (ObjectName name : exported)
+				try {
+					server.unregisterMBean(name);
+				} catch (JMException e) {
+					// the MBean is already gone
+				}
+			exported.clear();
+			metricsName = null;
+		}
+	}
+
+	/**
+	 * Sets the {@code LogManager} for this {@code FileManager}. From then on, each update is described by a log
+	 * record, which becomes durable before the update method returns. Since a {@code FileManager} writes updated
+	 * {@code SlottedPage}s to the data files immediately, it forces the log before each such write while holding its
+	 * lock, so concurrent updates do not share log forces (group commit applies to a {@code BufferedFileManager}).
+	 * Before using the {@code LogManager}, this method redoes the updates described in the {@code LogManager} (i.e.,
+	 * the updates that may not have reached the data files due to a crash).
+	 * 
+	 * @param log
+	 *            a {@code LogManager}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void setLogManager(LogManager log) throws IOException {
+		redo(log.iterator());
 		for (SlottedPageFile f : id2file.values())
-			f.close(); // closes each data file
+			f.sync();
+		log.clear();
+		this.log = log;
 	}
 
 	@Override
@@ -61,6 +246,565 @@ public class FileManager implements StorageManager<Long, Object> {
 		return id2file.values().toString();
 	}
 
+	/**
+	 * Returns the {@code IOMetrics} for the specified file. The {@code IOMetrics} of a file accumulate the statistics
+	 * of all of the I/O operations on that file (even across {@link #clear(int)}) until it is reset.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @return the {@code IOMetrics} for the specified file
+	 */
+	public synchronized IOMetrics metrics(int fileID) {
+		IOMetrics metrics = id2metrics.get(fileID);
+		if (metrics == null) {
+			metrics = new IOMetrics();
+			id2metrics.put(fileID, metrics);
+			if (metricsName != null)
+				register(fileID, metrics);
+		}
+		return metrics;
+	}
+
+	/**
+	 * Exports the {@code IOMetrics} of the files managed by this {@code FileManager} (including the files accessed
+	 * later) as JMX MBeans named {@code storage:type=IOMetrics,name=<name>,fileID=<fileID>}. The MBeans are
+	 * unregistered when this {@code FileManager} shuts down.
+	 * 
+	 * @param name
+	 *            the name that distinguishes this {@code FileManager} from others in the same JVM
+	 * @throws IllegalStateException
+	 *             if the metrics have already been exported
+	 * @throws IllegalArgumentException
+	 *             if the MBeans cannot be registered under the specified name
+	 */
+	public synchronized void exportMetrics(String name) {
+		if (metricsName != null)
+			throw new IllegalStateException("metrics already exported as " + metricsName);
+		metricsName = name;
+		for (Map.Entry<Integer, IOMetrics> e : id2metrics.entrySet())
+			register(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * Registers the specified object as a JMX MBean named
+	 * {@code storage:type=<type>,name=<name>[,fileID=<fileID>]}, where the name is the one given to
+	 * {@link #exportMetrics(String)}.
+	 * 
+	 * @param type
+	 *            the type of the MBean (e.g., "IOMetrics")
+	 * @param fileID
+	 *            the ID of the file that the MBean describes ({@code null} if the MBean is not specific to a file)
+	 * @param mbean
+	 *            the object to register
+	 * @throws IllegalArgumentException
+	 *             if the MBean cannot be registered
+	 */
+	void register(String type, Integer fileID, Object mbean) {
+		try {
+			ObjectName name = new ObjectName("storage:type=" + type + ",name=" + ObjectName.quote(metricsName)
+					+ (fileID == null ? "" : ",fileID=" + fileID));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+			exported.add(name);
+		} catch (JMException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Registers the specified {@code IOMetrics} as a JMX MBean.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param metrics
+	 *            the {@code IOMetrics} for the file
+	 * @throws IllegalArgumentException
+	 *             if the MBean cannot be registered
+	 */
+	void register(int fileID, IOMetrics metrics) {
+		register("IOMetrics", fileID, metrics);
+	}
+
+	/**
+	 * Bounds the number of file handles that this {@code FileManager} keeps open. When the bound is exceeded, the
+	 * handles of the least recently accessed files are released (except for files with I/O operations in progress).
+	 * A released file keeps its metadata in memory and is reopened on demand without extra I/O.
+	 * 
+	 * @param max
+	 *            the maximum number of file handles to keep open (0 if unbounded)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void setMaxOpenHandles(int max) throws IOException {
+		if (max < 0)
+			throw new IllegalArgumentException("max: " + max);
+		maxOpenHandles = max;
+		if (max == 0) {
+			handles.clear();
+			openHandles = 0;
+		} else {
+			for (Map.Entry<Integer, SlottedPageFile> e : id2file.entrySet())
+				if (!handles.containsKey(e.getKey())) {
+					handles.put(e.getKey(), e.getValue());
+					openHandles += e.getValue().handles();
+				}
+			releaseHandles(null);
+		}
+	}
+
+	/**
+	 * Sets the sizes of the extents in which space is preallocated for each file managed by this {@code FileManager}
+	 * (see {@link SlottedPageFile#setExtents(int, int)}).
+	 * 
+	 * @param minExtent
+	 *            the minimum size (in bytes) of each extent (0 to let the extents of a small file start from a single
+	 *            {@code SlottedPage})
+	 * @param maxExtent
+	 *            the maximum size (in bytes) of each extent (0 to disable preallocation so that space is allocated
+	 *            one {@code SlottedPage} at a time)
+	 */
+	public synchronized void setExtents(int minExtent, int maxExtent) {
+		if (minExtent < 0 || maxExtent < minExtent)
+			throw new IllegalArgumentException("extents: " + minExtent + ", " + maxExtent);
+		extents = new int[] { minExtent, maxExtent };
+		for (SlottedPageFile f : id2file.values())
+			f.setExtents(minExtent, maxExtent);
+	}
+
+	/**
+	 * Returns the number of file handles that this {@code FileManager} currently keeps open (only tracked if the
+	 * number of open file handles is bounded).
+	 * 
+	 * @return the number of file handles that this {@code FileManager} currently keeps open
+	 */
+	public synchronized int openHandles() {
+		return openHandles;
+	}
+
+	/**
+	 * Releases the file handles of the least recently accessed files until the number of open file handles does not
+	 * exceed the bound.
+	 * 
+	 * @param fileID
+	 *            the ID of a file whose handle must not be released ({@code null} if none)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void releaseHandles(Integer fileID) throws IOException {
+		for (Iterator<Map.Entry<Integer, SlottedPageFile>> i = handles.entrySet().iterator(); openHandles > maxOpenHandles
+				&& i.hasNext();) {
+			Map.Entry<Integer, SlottedPageFile> e = i.next();
+			if (!e.getKey().equals(fileID) && e.getValue().release()) { // files with in-flight I/O are skipped
+				i.remove();
+				openHandles -= e.getValue().handles();
+			}
+		}
+	}
+
+	/**
+	 * Starts recording every access to {@code SlottedPage}s (i.e., every {@code SlottedPage} read or updated by the
+	 * operations of this {@code FileManager}, whether or not it is buffered) in the specified trace file. The trace can
+	 * be replayed by a {@code BufferSimulator} to evaluate buffer configurations offline.
+	 * 
+	 * @param name
+	 *            the name of the trace file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void startTrace(String name) throws IOException {
+		stopTrace();
+		trace = new PageTrace(name);
+	}
+
+	/**
+	 * Stops recording accesses to {@code SlottedPage}s (if they are being recorded).
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void stopTrace() throws IOException {
+		if (trace != null) {
+			trace.close();
+			trace = null;
+		}
+	}
+
+	/**
+	 * Stripes the specified file across the specified directories so that consecutive {@code SlottedPage}s of the
+	 * file are stored in different physical files in a round-robin manner. This method must be invoked before the
+	 * file is accessed for the first time, and the same directories must be given in the same order whenever the file
+	 * is reopened (see {@link StripedSlottedPageFile}).
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param directories
+	 *            the directories in which the stripes of the file are stored (one stripe per directory; the same
+	 *            directory may appear multiple times)
+	 * @throws IllegalStateException
+	 *             if the specified file has already been accessed
+	 */
+	public void stripe(int fileID, String... directories) {
+		if (id2file.containsKey(fileID))
+			throw new IllegalStateException("file " + fileID + " is already open");
+		if (directories.length == 0)
+			throw new IllegalArgumentException();
+		if (shadowed.contains(fileID))
+			throw new IllegalStateException("file " + fileID + " uses shadow paging");
+		id2stripes.put(fileID, directories.clone());
+	}
+
+	/**
+	 * Makes the specified file use shadow paging (see {@link ShadowSlottedPageFile}) so that the updates performed
+	 * by {@link #atomically(int, Callable)} become durable all at once. The updates on the file are not logged by the
+	 * {@code LogManager} (if any) since each commit atomically replaces the page table of the file. Each update
+	 * performed outside a batch is committed on its own when it completes (see {@link #commitPageTable(int)}). This
+	 * setting is not recorded in the file, so this method must be invoked whenever the {@code FileManager} is
+	 * constructed and before the file is accessed for the first time.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @throws IllegalStateException
+	 *             if the specified file has already been accessed or is striped
+	 */
+	public void setShadowPaging(int fileID) {
+		if (id2file.containsKey(fileID))
+			throw new IllegalStateException("file " + fileID + " is already open");
+		if (id2stripes.containsKey(fileID))
+			throw new IllegalStateException("file " + fileID + " is striped");
+		shadowed.add(fileID);
+	}
+
+	/**
+	 * Performs the specified updates on the specified file (which must use shadow paging) as a batch. The
+	 * {@code SlottedPage}s modified by the updates are written to fresh physical locations, and the page table of the
+	 * file is replaced atomically when the batch commits, so the updates become durable all at once (or not at all
+	 * after a crash). If the updates throw an exception, the batch is aborted and the file reverts to its state
+	 * before the batch. The lock on this {@code FileManager} is held throughout the batch, so other threads never
+	 * observe a partial batch. Updates that modify the {@code ForwardingTable} of the file (i.e., moving an object
+	 * that no longer fits in its {@code SlottedPage}, {@link #vacuum(int, int)}, and {@link #clear(int)}) cannot be
+	 * performed in a batch and cause the batch to be aborted. Files with {@code SecondaryIndex}es cannot be updated
+	 * in batches since the index files are not covered by the page table.
+	 * 
+	 * @param <T>
+	 *            the type of the result of the updates
+	 * @param fileID
+	 *            the ID of the file
+	 * @param updates
+	 *            the updates to perform (e.g., a sequence of {@link #add(int, Object)},
+	 *            {@link #put(int, Long, Object)}, and {@link #remove(int, Long)} calls)
+	 * @return the result of the updates
+	 * @throws IOException
+	 *             if an I/O error occurs or the updates throw a checked exception (in which case the batch is
+	 *             aborted)
+	 * @throws IllegalStateException
+	 *             if the file does not use shadow paging, has {@code SecondaryIndex}es, or is already being updated
+	 *             in a batch
+	 */
+	public synchronized <T> T atomically(int fileID, Callable<T> updates) throws IOException {
+		if (!shadowed.contains(fileID))
+			throw new IllegalStateException("file " + fileID + " does not use shadow paging");
+		if (id2indexes.containsKey(fileID))
+			throw new IllegalStateException("file " + fileID + " has secondary indexes");
+		if (batches.contains(fileID))
+			throw new IllegalStateException("a batch is already in progress on file " + fileID);
+		begin(fileID);
+		batches.add(fileID);
+		boolean committed = false;
+		try {
+			T result = updates.call();
+			end(fileID, true);
+			committed = true;
+			return result;
+		} catch (IOException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		} finally {
+			batches.remove(fileID);
+			if (!committed)
+				end(fileID, false);
+		}
+	}
+
+	/**
+	 * Begins a batch on the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file that uses shadow paging
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void begin(int fileID) throws IOException {
+		((ShadowSlottedPageFile) file(fileID)).begin();
+	}
+
+	/**
+	 * Ends the batch on the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file that uses shadow paging
+	 * @param commit
+	 *            {@code true} to commit the batch; {@code false} to abort it
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void end(int fileID, boolean commit) throws IOException {
+		ShadowSlottedPageFile f = (ShadowSlottedPageFile) file(fileID);
+		if (commit)
+			f.commit();
+		else
+			f.abort();
+	}
+
+	/**
+	 * Makes the updates performed so far on the specified file durable if the file uses shadow paging and no batch is
+	 * in progress on it: the {@code SlottedPage}s of the file are saved (if buffered) and its page table is committed.
+	 * This is done at the end of each update outside a batch (and before {@code ForwardingTable} entries referencing
+	 * new copies of objects are synced), so each such update costs a page table commit (two syncs and a write of the
+	 * whole page table). {@link #atomically(int, Callable)} amortizes this cost over many updates.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void commitPageTable(int fileID) throws IOException {
+		if (shadowed.contains(fileID) && !batches.contains(fileID))
+			end(fileID, true);
+	}
+
+	/**
+	 * Makes the new copies of objects in the specified file durable before the {@code ForwardingTable} entries
+	 * referencing them are synced: the log is forced or, if the file uses shadow paging (and thus has no log
+	 * records), its page table is committed.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void persistCopies(int fileID) throws IOException {
+		if (shadowed.contains(fileID))
+			commitPageTable(fileID);
+		else
+			commit();
+	}
+
+	/**
+	 * Ensures that no batch is in progress on the specified file before its {@code ForwardingTable} is updated (the
+	 * {@code ForwardingTable} is not covered by the page table of the file).
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @throws IllegalStateException
+	 *             if a batch is in progress on the specified file
+	 */
+	void checkNoBatch(int fileID) {
+		if (batches.contains(fileID))
+			throw new IllegalStateException("the forwarding table of file " + fileID + " cannot be updated in a batch");
+	}
+
+	/**
+	 * Sets the {@code PageFormat} of the specified file (e.g., {@link FixedLengthPage#format(int, KeyValueStore.Codec)}
+	 * for a file of fixed-length records). The format is not recorded in the file, so this method must be invoked
+	 * whenever the {@code FileManager} is constructed and before the file is accessed for the first time.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param format
+	 *            the {@code PageFormat} of the file
+	 * @throws IllegalStateException
+	 *             if the specified file has already been accessed
+	 */
+	public void setPageFormat(int fileID, PageFormat format) {
+		if (id2file.containsKey(fileID))
+			throw new IllegalStateException("file " + fileID + " is already open");
+		id2formats.put(fileID, format);
+	}
+
+	/**
+	 * Creates a {@code SecondaryIndex} that associates the attribute values extracted from the objects in the
+	 * specified file with the locations of those objects, and registers it so that it is maintained by
+	 * {@link #add(int, Object)}, {@link #put(int, Long, Object)}, {@link #remove(int, Long)}, and
+	 * {@link #addAll(int, Iterator, double, LongConsumer)}. The registration is not recorded in the files, so this
+	 * method must be invoked whenever the {@code FileManager} is constructed and before the file is updated. If the
+	 * index file is empty, the {@code SecondaryIndex} is built from the objects currently in the file.
+	 * 
+	 * @param <A>
+	 *            the type of attribute values
+	 * @param fileID
+	 *            the ID of the file to index
+	 * @param indexFileID
+	 *            the ID of the file to store the {@code SecondaryIndex}
+	 * @param extractor
+	 *            the function that extracts the attribute value from each object ({@code null} if the object is not
+	 *            to be indexed); attribute values must be {@code Serializable}
+	 * @return the {@code SecondaryIndex}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized <A extends Comparable<? super A>> SecondaryIndex<A> createIndex(int fileID, int indexFileID,
+			Function<Object, ? extends A> extractor) throws IOException {
+		if (fileID == indexFileID)
+			throw new IllegalArgumentException("the indexed file and the index file must differ: " + fileID);
+		SecondaryIndex<A> i = new SecondaryIndex<A>(this, fileID, indexFileID, extractor);
+		List<SecondaryIndex<?>> indexes = id2indexes.computeIfAbsent(fileID, k -> new ArrayList<SecondaryIndex<?>>());
+		indexes.add(i);
+		if (size(indexFileID) == 0)
+			try {
+				ForwardingTable t = forwards(fileID);
+				i.build(l -> t.home(l));
+			} catch (IOException | RuntimeException e) {
+				indexes.remove(i);
+				if (indexes.isEmpty())
+					id2indexes.remove(fileID);
+				throw e;
+			}
+		return i;
+	}
+
+	/**
+	 * Updates the {@code SecondaryIndex}es on the specified file to reflect that the object at the specified location
+	 * has changed.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the (original) location of the object
+	 * @param old
+	 *            the previous object at the location ({@code null} if none)
+	 * @param o
+	 *            the new object at the location ({@code null} if the object has been removed)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void index(int fileID, long location, Object old, Object o) throws IOException {
+		List<SecondaryIndex<?>> indexes = id2indexes.get(fileID);
+		if (indexes != null)
+			for (SecondaryIndex<?> i : indexes)
+				i.update(location, old, o);
+	}
+
+	/**
+	 * Defers the writes of the {@code SlottedPage}s updated from now on until {@link #writeDeferred()} if write-ahead
+	 * logging is performed and the specified file has {@code SecondaryIndex}es. An update then appends the log records
+	 * for the data {@code SlottedPage} and the index {@code SlottedPage}s and forces them by a single log force (as
+	 * {@link #append(int, List)} does) instead of forcing the log before writing each {@code SlottedPage}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file to update
+	 */
+	void deferWrites(int fileID) {
+		if (log != null && deferred == null && id2indexes.containsKey(fileID))
+			deferred = new LinkedHashMap<Long, SlottedPage>();
+	}
+
+	/**
+	 * Forces the log and then writes the {@code SlottedPage}s whose writes have been deferred by
+	 * {@link #deferWrites(int)}.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void writeDeferred() throws IOException {
+		Map<Long, SlottedPage> pages = deferred;
+		deferred = null;
+		if (pages == null || pages.isEmpty())
+			return;
+		log.commit(); // the write-ahead rule (a single log force for all of the pages)
+		for (Map.Entry<Long, SlottedPage> e : pages.entrySet())
+			file(first(e.getKey())).save(e.getValue());
+	}
+
+	/**
+	 * Opens a {@code Snapshot} whose iterators see the files as of now regardless of the updates performed
+	 * afterwards. The {@code Snapshot} must be closed after use so that the copies of {@code SlottedPage}s saved for
+	 * it can be discarded.
+	 * 
+	 * @return a new {@code Snapshot}
+	 */
+	public synchronized Snapshot snapshot() {
+		Snapshot s = new Snapshot(this, ++snapshotNumber);
+		snapshots.put(s.number, s);
+		return s;
+	}
+
+	/**
+	 * Unregisters the specified {@code Snapshot} and discards the copies of {@code SlottedPage}s that no open
+	 * {@code Snapshot} reads (the caller must hold the lock on this {@code FileManager}).
+	 * 
+	 * @param s
+	 *            a {@code Snapshot} that has been closed
+	 */
+	void release(Snapshot s) {
+		snapshots.remove(s.number);
+		if (snapshots.isEmpty()) {
+			versions.clear();
+			return;
+		}
+		for (Iterator<TreeMap<Long, byte[]>> i = versions.values().iterator(); i.hasNext();) {
+			TreeMap<Long, byte[]> v = i.next();
+			long previous = 0; // the tag of the previous copy
+			for (Iterator<Long> j = v.keySet().iterator(); j.hasNext();) {
+				long tag = j.next();
+				Long reader = snapshots.ceilingKey(previous + 1); // the oldest snapshot that may read the copy
+				if (reader == null || reader > tag)
+					j.remove();
+				previous = tag;
+			}
+			if (v.isEmpty())
+				i.remove();
+		}
+	}
+
+	/**
+	 * Saves a copy of the specified {@code SlottedPage} before it is modified if some {@code Snapshot} has been opened
+	 * since the {@code SlottedPage} was last copied (copy-on-write), and records the size of the specified file for
+	 * the open {@code Snapshot}s that have not yet recorded it (the caller must hold the lock on this
+	 * {@code FileManager}).
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage} to modify (or to append)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void preserve(int fileID, int pageID) throws IOException {
+		if (snapshots.isEmpty())
+			return;
+		for (Snapshot s : snapshots.values())
+			s.size(fileID); // the size of the file before the update
+		if (pageID >= size(fileID))
+			return;
+		long latest = snapshots.lastKey();
+		TreeMap<Long, byte[]> v = versions.computeIfAbsent(concatenate(fileID, pageID), k -> new TreeMap<Long, byte[]>());
+		if (v.isEmpty() || v.lastKey() < latest)
+			v.put(latest, page(fileID, pageID).data().clone());
+	}
+
+	/**
+	 * Returns a copy of the specified {@code SlottedPage} as seen by the specified {@code Snapshot} (the caller must
+	 * hold the lock on this {@code FileManager}).
+	 * 
+	 * @param s
+	 *            a {@code Snapshot}
+	 * @param fileID
+	 *            the ID of the file
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @return a copy of the specified {@code SlottedPage} as seen by the specified {@code Snapshot}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	SlottedPage page(Snapshot s, int fileID, int pageID) throws IOException {
+		TreeMap<Long, byte[]> v = versions.get(concatenate(fileID, pageID));
+		Map.Entry<Long, byte[]> e = v == null ? null : v.ceilingEntry(s.number);
+		byte[] data = e != null ? e.getValue() : page(fileID, pageID).data(); // the current page if not modified
+		SlottedPage p = file(fileID).newPage(pageID);
+		System.arraycopy(data, 0, p.data(), 0, data.length);
+		return p;
+	}
+
 	/**
 	 * Adds the specified object at the end of the specified file.
 	 * 
@@ -74,19 +818,47 @@ public class FileManager implements StorageManager<Long, Object> {
 	 */
 	@Override
 	public Long add(int fileID, Object o) throws IOException {
+		long location;
+		synchronized (this) {
+			deferWrites(fileID);
+			try {
+				location = place(fileID, o);
+				index(fileID, location, null, o); // the secondary indexes are updated under the same log force
+			} finally {
+				writeDeferred();
+			}
+			commitPageTable(fileID); // a file that uses shadow paging has no log records to force
+		}
+		commit(); // make the update durable
+		return location; // return the location of the object
+	}
+
+	/**
+	 * Adds the specified object at the end of the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param o
+	 *            the object to add
+	 * @return the location of the object in the specified file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	long place(int fileID, Object o) throws IOException {
+		long location;
 		int size = size(fileID); // the number of pages in the data file
 		SlottedPage p;
-		long location;
 		try {
 			if (size == 0) { // if no page yet
-				p = new SlottedPage(0, slottedPageSize); // create page 0
+				p = newPage(fileID, 0); // create page 0
 				location = concatenate(p.pageID(), p.add(o)); // add the object in the page
 			} else { // existing page
+				preserve(fileID, size - 1);
 				p = page(fileID, size - 1); // get last page
 				try {
 					location = concatenate(p.pageID(), p.add(o)); // add the object in the page
 				} catch (OverflowException e) { // if the object cannot fit into the page
-					p = new SlottedPage(p.pageID() + 1, slottedPageSize); // create a new page
+					p = newPage(fileID, p.pageID() + 1); // create a new page
 					location = concatenate(p.pageID(), p.add(o)); // add the object in the new page
 				}
 			}
@@ -94,11 +866,144 @@ public class FileManager implements StorageManager<Long, Object> {
 			throw new IOException(e);
 		}
 		updated(p, fileID); // inform that the page is updated (and thus the page will eventually be saved in the file)
-		return location; // return the location of the object
+		return location;
+	}
+
+	/**
+	 * Adds the objects from the specified iterator at the end of the specified file and returns their locations. See
+	 * {@link #addAll(int, Iterator, double, LongConsumer)}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param objects
+	 *            an iterator over the objects to add
+	 * @param fillFactor
+	 *            the fraction of each {@code SlottedPage} to fill (between 0 exclusive and 1 inclusive)
+	 * @return the locations of the objects in the specified file (in the order of the objects)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public long[] addAll(int fileID, Iterator<?> objects, double fillFactor) throws IOException {
+		long[][] locations = { new long[1024] };
+		int[] count = { 0 };
+		addAll(fileID, objects, fillFactor, l -> {
+			if (count[0] == locations[0].length)
+				locations[0] = Arrays.copyOf(locations[0], count[0] * 2);
+			locations[0][count[0]++] = l;
+		});
+		return Arrays.copyOf(locations[0], count[0]);
+	}
+
+	/**
+	 * Adds the objects from the specified iterator at the end of the specified file (e.g., for an initial load). Unlike
+	 * a sequence of calls to {@link #add(int, Object)}, which rewrites the last {@code SlottedPage} for every object,
+	 * the objects are packed into new {@code SlottedPage}s in memory until each {@code SlottedPage} is filled up to
+	 * the specified fill factor, and the {@code SlottedPage}s are written to the file in batches of about
+	 * {@link #BULK_LOAD_BATCH} bytes using sequential writes (bypassing the buffer, if any). The lock on this
+	 * {@code FileManager} is released between batches. The objects are placed in new {@code SlottedPage}s even if
+	 * the last {@code SlottedPage} of the file has free space.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param objects
+	 *            an iterator over the objects to add
+	 * @param fillFactor
+	 *            the fraction of each {@code SlottedPage} to fill (between 0 exclusive and 1 inclusive)
+	 * @param locations
+	 *            a callback that receives the location of each object (in the order of the objects) after the batch
+	 *            containing the object is written
+	 * @return the number of objects added
+	 * @throws IOException
+	 *             if an I/O error occurs or an object does not fit in a {@code SlottedPage}
+	 */
+	public long addAll(int fileID, Iterator<?> objects, double fillFactor, LongConsumer locations)
+			throws IOException {
+		return addAll(fileID, objects, fillFactor, Math.max(1, BULK_LOAD_BATCH / slottedPageSize), locations);
+	}
+
+	/**
+	 * Adds the objects from the specified iterator at the end of the specified file, writing the
+	 * {@code SlottedPage}s in batches of the specified number of {@code SlottedPage}s (e.g., to bound the memory used
+	 * by a caller that has its own page budget). See {@link #addAll(int, Iterator, double, LongConsumer)}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param objects
+	 *            an iterator over the objects to add
+	 * @param fillFactor
+	 *            the fraction of each {@code SlottedPage} to fill (between 0 exclusive and 1 inclusive)
+	 * @param batch
+	 *            the maximum number of {@code SlottedPage}s to keep in memory and write at a time (at least 1)
+	 * @param locations
+	 *            a callback that receives the location of each object (in the order of the objects) after the batch
+	 *            containing the object is written
+	 * @return the number of objects added
+	 * @throws IOException
+	 *             if an I/O error occurs or an object does not fit in a {@code SlottedPage}
+	 */
+	public long addAll(int fileID, Iterator<?> objects, double fillFactor, int batch, LongConsumer locations)
+			throws IOException {
+		if (!(fillFactor > 0 && fillFactor <= 1))
+			throw new IllegalArgumentException("invalid fill factor: " + fillFactor);
+		if (batch < 1)
+			throw new IllegalArgumentException("invalid batch size: " + batch);
+		int used = (int) Math.ceil(slottedPageSize * fillFactor); // the number of bytes to fill in each page
+		long count = 0;
+		Object pending = null; // the object that did not fit in the last page of the previous batch
+		while (pending != null || objects.hasNext()) {
+			List<Long> added = new ArrayList<Long>();
+			List<Object> indexed = new ArrayList<Object>(); // the objects added in this batch (if indexes exist)
+			synchronized (this) {
+				List<SlottedPage> pages = new ArrayList<SlottedPage>(batch);
+				SlottedPage p = newPage(fileID, size(fileID));
+				int entries = 0; // the number of objects added to the current page
+				while (pages.size() < batch && (pending != null || objects.hasNext())) {
+					Object o = pending != null ? pending : objects.next();
+					pending = null;
+					try {
+						long location = concatenate(p.pageID(), p.add(o));
+						added.add(location);
+						if (id2indexes.containsKey(fileID))
+							indexed.add(o);
+						entries++;
+					} catch (OverflowException e) {
+						if (entries == 0)
+							throw new IOException(e);
+						pending = o; // the object goes to the next page
+					}
+					if (pending != null || slottedPageSize - p.freeSpaceSize() >= used) { // if the page is full
+						pages.add(p);
+						p = newPage(fileID, p.pageID() + 1);
+						entries = 0;
+					}
+				}
+				if (entries > 0)
+					pages.add(p);
+				if (!pages.isEmpty())
+					append(fileID, pages);
+				if (!indexed.isEmpty()) { // the indexes refer only to objects already in the file
+					deferWrites(fileID);
+					try {
+						for (int i = 0; i < indexed.size(); i++)
+							index(fileID, added.get(i), null, indexed.get(i));
+					} finally {
+						writeDeferred();
+					}
+				}
+				commitPageTable(fileID); // a file that uses shadow paging has no log records to force
+			}
+			commit();
+			for (long l : added)
+				locations.accept(l);
+			count += added.size();
+		}
+		return count;
 	}
 
 	/**
-	 * Puts the specified object at the specified location in the specified file.
+	 * Puts the specified object at the specified location in the specified file. If the object no longer fits in the
+	 * {@code SlottedPage} containing the location, the object is moved to another {@code SlottedPage} and the location
+	 * is forwarded to the new location of the object (see {@link ForwardingTable}).
 	 * 
 	 * @param fileID
 	 *            the ID of the file
@@ -115,30 +1020,62 @@ public class FileManager implements StorageManager<Long, Object> {
 	 */
 	@Override
 	public Object put(int fileID, Long location, Object o) throws IOException, InvalidLocationException {
-		// Check for valid values
-		if(fileID < 0 || first(location) < 0 || second(location) < 0) {
-			throw new InvalidLocationException();
-		}
-
-		// Try to fetch a slotted page and old object placeholder
-		SlottedPage p = page(fileID, first(location));
 		Object old = null;
+		synchronized (this) {
+			// Check for valid values
+			if(fileID < 0 || first(location) < 0 || second(location) < 0) {
+				throw new InvalidLocationException();
+			}
 
-		// If there is no slotted page, create a new one
-		if(p == null) {
-			p = new SlottedPage(first(location), slottedPageSize);
-		}
+			deferWrites(fileID);
+			try {
+				long current = resolve(fileID, location); // the current location of the object (-1 if removed after a move)
+				if (current == -1) {
+					checkNoBatch(fileID);
+					ForwardingTable t = forwards(fileID);
+					t.forward(location, place(fileID, o));
+					persistCopies(fileID); // the new copy must be durable before the forwarding entry referencing it
+					t.sync(); // the location must remain valid
+					index(fileID, location, null, o);
+				} else {
+					// Try to fetch a slotted page and old object placeholder
+					preserve(fileID, first(current));
+					SlottedPage p = page(fileID, first(current));
+
+					// If there is no slotted page, create a new one
+					if (p == null) {
+						p = newPage(fileID, first(current));
+					}
+
+					// Store the object and cache the old object
+					try {
+						old = p.put(second(current), o);
+					} catch (OverflowException e) { // the object no longer fits in the page, so it is moved to another page
+						checkNoBatch(fileID);
+						ForwardingTable t = forwards(fileID);
+						t.forward(location, place(fileID, o)); // the original location is forwarded directly (one hop)
+						persistCopies(fileID); // the new copy must be durable before the forwarding entry referencing it
+						t.sync(); // the location must remain valid before the previous copy is removed
+						old = object(p, second(current));
+						try {
+							p.remove(second(current));
+						} catch (SlottedPage.IndexOutOfBoundsException x) {
+							throw new InvalidLocationException();
+						}
+					} catch (Exception e) {
+						throw new InvalidLocationException();
+					}
 
-		// Store the object and cache the old object
-		try {
-			p.put(second(location), o);
-			old = p.get(second(location));
-		} catch (Exception e) {
-			throw new InvalidLocationException();
+					// Write back to file
+					updated(p, fileID);
+					index(fileID, location, old, o);
+				}
+			} finally {
+				writeDeferred();
+			}
+			commitPageTable(fileID); // a file that uses shadow paging has no log records to force
 		}
-
-		// Write back to file
-		updated(p, fileID);
+		commit(); // make the update durable
 		
 		// Return cachced
 		return old;
@@ -158,11 +1095,14 @@ public class FileManager implements StorageManager<Long, Object> {
 	 *             if an if an invalid location is given
 	 */
 	@Override
-	public Object get(int fileID, Long location) throws IOException, InvalidLocationException {
+	public synchronized Object get(int fileID, Long location) throws IOException, InvalidLocationException {
 		if(fileID < 0 || first(location) < 0 || second(location) < 0) {
 			throw new InvalidLocationException();
 		}
 		
+		location = resolve(fileID, location); // the current location of the object (-1 if removed after a move)
+		if (location == -1)
+			return null;
 		SlottedPage p = page(fileID, first(location)); // the page specified by the 1st half of the location
 		Object ret;
 		try {
@@ -189,25 +1129,176 @@ public class FileManager implements StorageManager<Long, Object> {
 	 */
 	@Override
 	public Object remove(int fileID, Long location) throws IOException, InvalidLocationException {
-		// SlottedPage p = page(fileID, first(location)); // the page specified by the 1st half of the location
-		if(fileID < 0 || first(location) < 0 || second(location) < 0) {
-			throw new InvalidLocationException();
-		}
-		
-		SlottedPage p = page(fileID, first(location)); // the page specified by the 1st half of the location
 		Object ret;
-		try {
-			ret = p.get(second(location));
-			p.remove(second(location));
-		} catch (Exception e) {
-			throw new InvalidLocationException();
-		}
+		synchronized (this) {
+			// SlottedPage p = page(fileID, first(location)); // the page specified by the 1st half of the location
+			if(fileID < 0 || first(location) < 0 || second(location) < 0) {
+				throw new InvalidLocationException();
+			}
+		
+			long current = resolve(fileID, location); // the current location of the object (-1 if removed after a move)
+			if (current == -1)
+				return null;
+			deferWrites(fileID);
+			try {
+				preserve(fileID, first(current));
+				SlottedPage p = page(fileID, first(current)); // the page specified by the 1st half of the location
+				try {
+					ret = p.get(second(current));
+					p.remove(second(current));
+				} catch (Exception e) {
+					throw new InvalidLocationException();
+				}
+				if (current != location)
+					forwards(fileID).forward(location, -1);
 		
-		updated(p, fileID);
+				updated(p, fileID);
+				index(fileID, location, ret, null);
+			} finally {
+				writeDeferred();
+			}
+			commitPageTable(fileID); // a file that uses shadow paging has no log records to force
+		}
+		commit(); // make the update durable
 
 		return ret;
 	}
 
+	/**
+	 * Vacuums the specified file incrementally. The objects in the last {@code SlottedPage} of the file are moved to
+	 * earlier {@code SlottedPage}s that have room for them (e.g., due to removals) and then the last
+	 * {@code SlottedPage} is truncated. This is repeated until the specified number of {@code SlottedPage}s are
+	 * truncated or the objects in the last {@code SlottedPage} no longer fit elsewhere. The lock on this
+	 * {@code FileManager} is held only while a single {@code SlottedPage} is vacated so that other operations can
+	 * proceed in between. The locations of the moved objects remain valid since they are forwarded by the
+	 * {@code ForwardingTable} of the file. Iterators created afterwards read fewer {@code SlottedPage}s (an iterator in
+	 * progress may miss the objects moved to the {@code SlottedPage}s that it has already read).
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param maxPages
+	 *            the maximum number of {@code SlottedPage}s to truncate
+	 * @return the number of {@code SlottedPage}s truncated
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int vacuum(int fileID, int maxPages) throws IOException {
+		int truncated = 0;
+		int target = 0; // the first page that may have room for the objects to move
+		while (truncated < maxPages) {
+			synchronized (this) {
+				target = vacate(fileID, target);
+			}
+			commit(); // make the moves durable
+			if (target < 0)
+				break;
+			truncated++;
+		}
+		return truncated;
+	}
+
+	/**
+	 * Moves all of the objects in the last {@code SlottedPage} of the specified file to earlier {@code SlottedPage}s
+	 * and then truncates the last {@code SlottedPage}. If some object does not fit in the earlier {@code SlottedPage}s,
+	 * no object is moved.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param target
+	 *            the ID of the first {@code SlottedPage} that may have room for the objects
+	 * @return the ID of the first {@code SlottedPage} that may still have room for objects; -1 if the last
+	 *         {@code SlottedPage} cannot be truncated
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int vacate(int fileID, int target) throws IOException {
+		checkNoBatch(fileID);
+		int last = size(fileID) - 1;
+		if (last < 0)
+			return -1;
+		SlottedPage p = page(fileID, last);
+		List<long[]> moves = new ArrayList<long[]>(); // the old and new locations of the moved objects
+		for (int i = p.skip(0); i < p.entryCount(); i = p.skip(i + 1)) {
+			Object o = object(p, i);
+			for (;; target++) {
+				if (target >= last) { // no room for the object, so the moves so far are undone
+					for (long[] m : moves) {
+						SlottedPage q = page(fileID, first(m[1]));
+						try {
+							q.remove(second(m[1]));
+						} catch (SlottedPage.IndexOutOfBoundsException e) {
+							throw new IOException(e);
+						}
+						updated(q, fileID);
+					}
+					return -1;
+				}
+				preserve(fileID, target);
+				SlottedPage q = page(fileID, target);
+				try {
+					moves.add(new long[] { concatenate(last, i), concatenate(target, q.add(o)) });
+					updated(q, fileID);
+					break;
+				} catch (OverflowException e) { // the page is full even after compaction
+				}
+			}
+		}
+		ForwardingTable t = forwards(fileID);
+		for (long[] m : moves)
+			t.forward(t.home(m[0]), m[1]); // the home of an object moved before is forwarded directly to the new location
+		t.reserve(last, p.entryCount());
+		persistCopies(fileID); // the moved copies must be durable before the forwarding entries referencing them
+		t.sync(); // the locations of the moved objects must remain valid after the truncation
+		preserve(fileID, last);
+		truncate(fileID, last);
+		return target;
+	}
+
+	/**
+	 * Performs a checkpoint so that recovery after a crash only needs to redo the updates performed after the
+	 * checkpoint started.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void checkpoint() throws IOException {
+		long start;
+		List<SlottedPageFile> files;
+		synchronized (this) {
+			if (log == null)
+				return;
+			start = log.appended(); // each update before this point has already been written to the data file
+			files = new ArrayList<SlottedPageFile>(id2file.values());
+		}
+		for (SlottedPageFile f : files)
+			f.sync();
+		log.checkpoint(start);
+	}
+
+	/**
+	 * Sets the interval between the checkpoints that this {@code FileManager} performs in the background.
+	 * 
+	 * @param interval
+	 *            the interval (in milliseconds) between checkpoints; 0 if no checkpoints are to be performed in the
+	 *            background
+	 */
+	public void setCheckpointInterval(long interval) {
+		Checkpointer c;
+		synchronized (this) {
+			c = checkpointer;
+			checkpointer = null;
+		}
+		if (c != null)
+			c.terminate(); // must not hold the lock on this FileManager while waiting for the Checkpointer
+		if (interval > 0) {
+			c = new Checkpointer(interval);
+			synchronized (this) {
+				checkpointer = c;
+			}
+			c.start();
+		}
+	}
+
 	/**
 	 * Removes all data from the specified file.
 	 * 
@@ -217,9 +1308,15 @@ public class FileManager implements StorageManager<Long, Object> {
 	 *             if an I/O error occurs
 	 */
 	@Override
-	public void clear(int fileID) throws IOException {
+	public synchronized void clear(int fileID) throws IOException {
+		checkNoBatch(fileID);
+		if (log != null && !shadowed.contains(fileID)) // the truncation must be durable before data is removed
+			log.commit(log.append(new LogRecord(LogRecord.TRUNCATE, fileID, 0, 0, null)));
 		SlottedPageFile f = file(fileID);
 		f.clear();
+		forwards(fileID).clear();
+		for (SecondaryIndex<?> i : id2indexes.getOrDefault(fileID, Collections.emptyList()))
+			i.tree.clear();
 	}
 
 	/**
@@ -232,58 +1329,140 @@ public class FileManager implements StorageManager<Long, Object> {
 	public Iterator<Object> iterator(int fileID) {
 		class FileManagerIterator<T> implements Iterator {
 			// Here's what we're going to do.
-			// Store the fileID and pageID
+			// Store the fileID and the ID of the next page to fetch
 			int pid = 0;
 			int fid = 0;
 
-			// Keep track of the file manager and the current page
+			// Keep track of the current page and the pages read ahead
 			SlottedPage sp;
-			FileManager fm;
 			Iterator spi;
+			LinkedList<SlottedPage> ahead = new LinkedList<SlottedPage>();
 
 			// Here's how it works
 			// File manager has a bunch of SottedPageFiles
-			// Each SlottedPageFile has multiple SlottedPages
+			// Each SlottedPageFile has multiple SlottedPages (read a few at a time so that stripes are read in parallel)
 			// Each SlottedPage has multiple objects and an iterator for them
 
-			public FileManagerIterator(FileManager fm, int fid) {
-				try {
-					// Grab the first slotted page
-					//sp = fm.id2file.get(fid).get(pid);	
-					sp = page(fileID, pid);
-					// Grab its iterator
+			public FileManagerIterator(int fid) {
+				this.fid = fid;
+			}
+
+			@Override
+			public boolean hasNext() {
+				// While the current page doesn't have a next item
+				while (spi == null || !spi.hasNext()) {
+					// See if we can fetch the next page
+					sp = nextPage();
+					if (sp == null)
+						return false;
 					spi = sp.iterator();
-					// tests.p("SP Entry Count: " + sp.entryCount());
-				} catch (Exception e) {
 				}
-				// tests.p("Slotted Pages: " + fm.id2file.size());
-				// set the fileid
-				this.fid = fid;
+				return true;
+			}
+
+			@Override
+			public Object next() {
+				return spi.next();
+			}
+
+			SlottedPage nextPage() {
+				try {
+					if (ahead.isEmpty()) {
+						synchronized (FileManager.this) {
+							ahead.addAll(pages(fid, pid, readAhead(fid)));
+						}
+						pid += ahead.size();
+					}
+				} catch (IOException e) {
+				}
+				return ahead.poll();
 			}
+		}
+		return new FileManagerIterator<Object>(fileID);
+	}
+
+	/**
+	 * Returns an iterator over the {@code SlottedPage}s of the specified file (e.g., for scanning the mini-columns of
+	 * {@link PaxPage}s without materializing records). The {@code SlottedPage}s are read {@link #SCAN_PAGES} at a
+	 * time using sequential reads. The {@code SlottedPage}s must not be modified.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @return an iterator over the {@code SlottedPage}s of the specified file (which throws an
+	 *         {@code UncheckedIOException} if an I/O error occurs)
+	 */
+	public Iterator<SlottedPage> pageIterator(int fileID) {
+		return new Iterator<SlottedPage>() {
+
+			/**
+			 * The ID of the next {@code SlottedPage} to read.
+			 */
+			int pageID = 0;
+
+			/**
+			 * The {@code SlottedPage}s read but not yet returned.
+			 */
+			LinkedList<SlottedPage> ahead = new LinkedList<SlottedPage>();
 
 			@Override
 			public boolean hasNext() {
-				// If the current page doesn't have a next item
-				if(!spi.hasNext()) {
-					// See if we can fetch tht next page
+				if (ahead.isEmpty()) {
 					try {
-						// increment the pid
-						sp = page(fid, ++pid);
-						spi = sp.iterator();
-					} catch (Exception e) {
+						synchronized (FileManager.this) {
+							ahead.addAll(pages(fileID, pageID, Math.max(SCAN_PAGES, readAhead(fileID))));
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
 					}
+					pageID += ahead.size();
 				}
-				if(spi.hasNext() && sp != null) {
-					return true;
-				} else return false;
+				return !ahead.isEmpty();
 			}
 
 			@Override
-			public Object next() {
-				return spi.next();
+			public SlottedPage next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return ahead.poll();
 			}
+		};
+	}
+
+	/**
+	 * Returns the number of {@code SlottedPage}s that iterators read at a time from the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @return the number of {@code SlottedPage}s that iterators read at a time from the specified file
+	 */
+	int readAhead(int fileID) {
+		String[] directories = id2stripes.get(fileID);
+		return directories == null ? 1 : directories.length;
+	}
+
+	/**
+	 * Returns the specified number of consecutive {@code SlottedPage}s starting with the specified {@code SlottedPage}
+	 * (fewer {@code SlottedPage}s if the end of the file is reached).
+	 * 
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}s
+	 * @param pageID
+	 *            the ID of the first {@code SlottedPage}
+	 * @param count
+	 *            the maximum number of {@code SlottedPage}s to return
+	 * @return the specified {@code SlottedPage}s
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	List<SlottedPage> pages(int fileID, int pageID, int count) throws IOException {
+		if (count == 1) {
+			SlottedPage p = page(fileID, pageID);
+			return p == null ? Collections.<SlottedPage>emptyList() : Collections.singletonList(p);
 		}
-		return new FileManagerIterator<Object>(this, fileID);
+		List<SlottedPage> pages = file(fileID).get(pageID, count);
+		for (SlottedPage p : pages)
+			trace(fileID, p.pageID(), false);
+		return pages;
 	}
 
 	/**
@@ -296,7 +1475,112 @@ public class FileManager implements StorageManager<Long, Object> {
 	 *             if an I/O error occurs
 	 */
 	int size(int fileID) throws IOException {
-		return file(fileID).size();
+		int size = file(fileID).size();
+		if (deferred != null) // the pages appended by the current operation may not have been written yet
+			for (long key : deferred.keySet())
+				if (first(key) == fileID)
+					size = Math.max(size, second(key) + 1);
+		return size;
+	}
+
+	/**
+	 * Truncates the specified file so that it contains the specified number of {@code SlottedPage}s.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param size
+	 *            the number of {@code SlottedPage}s to keep
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void truncate(int fileID, int size) throws IOException {
+		if (log != null && !shadowed.contains(fileID)) // the truncation must be durable before data is actually removed
+			log.commit(log.append(new LogRecord(LogRecord.TRUNCATE, fileID, size, 0, null)));
+		file(fileID).truncate(size);
+	}
+
+	/**
+	 * Creates a {@code SlottedPage} that is to be appended to the specified file. If a {@code SlottedPage} with the
+	 * same ID was truncated before, its slots are reserved (as removed) so that the new locations never coincide with
+	 * forwarded ones.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @return the new {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	SlottedPage newPage(int fileID, int pageID) throws IOException {
+		preserve(fileID, pageID); // the open snapshots must not see the appended page
+		SlottedPage p = file(fileID).newPage(pageID);
+		int reserved = forwards(fileID).reserved(pageID);
+		p.setEntryCount(reserved);
+		for (int i = 0; i < reserved; i++)
+			p.saveLocation(i, -1);
+		return p;
+	}
+
+	/**
+	 * Returns the current location of the object whose original location is the specified location.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the original location of an object
+	 * @return the current location of the object whose original location is the specified location; -1 if the object
+	 *         was removed after being moved or before its {@code SlottedPage} was truncated
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	long resolve(int fileID, long location) throws IOException {
+		ForwardingTable t = forwards(fileID);
+		if (t.isEmpty())
+			return location;
+		Long target = t.target(location);
+		if (target != null)
+			return target;
+		if (first(location) >= size(fileID) && second(location) < t.reserved(first(location)))
+			return -1;
+		return location;
+	}
+
+	/**
+	 * Returns the {@code ForwardingTable} for the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @return the {@code ForwardingTable} for the specified file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	ForwardingTable forwards(int fileID) throws IOException {
+		ForwardingTable t = id2forwards.get(fileID);
+		if (t == null) {
+			t = new ForwardingTable(fileID + ".fwd");
+			id2forwards.put(fileID, t);
+		}
+		return t;
+	}
+
+	/**
+	 * Returns the object at the specified index in the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            an index
+	 * @return the object at the specified index in the specified {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs or the object cannot be read
+	 */
+	static Object object(SlottedPage p, int index) throws IOException {
+		try {
+			return p.get(index);
+		} catch (SlottedPage.IndexOutOfBoundsException e) {
+			throw new IOException(e);
+		}
 	}
 
 	/**
@@ -311,6 +1595,10 @@ public class FileManager implements StorageManager<Long, Object> {
 	 *             if an I/O error occurs
 	 */
 	SlottedPage page(int fileID, int pageID) throws IOException {
+		trace(fileID, pageID, false);
+		SlottedPage p = deferred == null ? null : deferred.get(concatenate(fileID, pageID));
+		if (p != null) // updated by the current operation but not written yet
+			return p;
 		SlottedPageFile f = file(fileID);
 		return f.get(pageID);
 	}
@@ -326,10 +1614,189 @@ public class FileManager implements StorageManager<Long, Object> {
 	 *             if an I/O error occurs
 	 */
 	void updated(SlottedPage p, int fileID) throws IOException {
+		trace(fileID, p.pageID(), true);
+		if (deferred != null) { // written by writeDeferred() after the log records of the operation are forced
+			log(p, fileID);
+			deferred.put(concatenate(fileID, p.pageID()), p);
+			return;
+		}
+		if (log != null) // the write-ahead rule: the log record must be durable before the page is overwritten
+			log.commit(log(p, fileID));
 		SlottedPageFile f = file(fileID);
 		f.save(p);
 	}
 
+	/**
+	 * Appends the specified new {@code SlottedPage}s (which have consecutive IDs starting at the current size of the
+	 * specified file) to the file using sequential writes. If write-ahead logging is performed, the log records for
+	 * all of the {@code SlottedPage}s are forced by a single log force before the {@code SlottedPage}s are written.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param pages
+	 *            the new {@code SlottedPage}s
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void append(int fileID, List<SlottedPage> pages) throws IOException {
+		long lsn = 0;
+		for (SlottedPage p : pages) {
+			trace(fileID, p.pageID(), true);
+			lsn = Math.max(lsn, log(p, fileID));
+		}
+		if (lsn > 0) // the write-ahead rule
+			log.commit(lsn);
+		file(fileID).save(pages);
+	}
+
+	/**
+	 * Records an access to the specified {@code SlottedPage} (if accesses are being recorded).
+	 * 
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param write
+	 *            {@code true} if the {@code SlottedPage} is updated; {@code false} if it is read
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void trace(int fileID, int pageID, boolean write) throws IOException {
+		if (trace != null)
+			trace.record(fileID, pageID, write);
+	}
+
+	/**
+	 * Appends a log record describing the modifications of the specified {@code SlottedPage} (if write-ahead logging
+	 * is performed).
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @return the LSN of the log record; 0 if no log record is appended
+	 */
+	long log(SlottedPage p, int fileID) {
+		long lsn = 0;
+		if (log != null && !shadowed.contains(fileID)) // shadow paging needs no log
+			for (int i = 0; i < p.modifiedRanges(); i++) // the unmodified bytes between the ranges are not logged
+				lsn = log.append(new LogRecord(fileID, p, i));
+		p.resetModified();
+		return lsn;
+	}
+
+	/**
+	 * Makes the updates performed so far durable (if write-ahead logging is performed). This method is invoked
+	 * without holding the lock on this {@code FileManager}. A {@code FileManager} writes each updated
+	 * {@code SlottedPage} to its file before releasing the lock, so the write-ahead rule makes it force the log under
+	 * the lock and this method finds nothing left to force. Concurrent updates share log forces only in a
+	 * {@code BufferedFileManager}, which keeps updated {@code SlottedPage}s in its buffer and forces the log here.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	protected void commit() throws IOException {
+		LogManager log = this.log;
+		if (log != null)
+			log.commit();
+	}
+
+	/**
+	 * Redoes the updates described by the specified log records. The log records are partitioned by file and the
+	 * files are recovered in parallel.
+	 * 
+	 * @param records
+	 *            an iterator over log records
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void redo(Iterator<LogRecord> records) throws IOException {
+		Map<Integer, List<LogRecord>> id2records = new HashMap<Integer, List<LogRecord>>();
+		while (records.hasNext()) {
+			LogRecord r = records.next();
+			id2records.computeIfAbsent(r.fileID(), k -> new ArrayList<LogRecord>()).add(r);
+		}
+		if (id2records.isEmpty())
+			return;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (Map.Entry<Integer, List<LogRecord>> e : id2records.entrySet()) {
+			SlottedPageFile f = file(e.getKey());
+			tasks.add(() -> {
+				redo(f, e.getValue());
+				return null;
+			});
+		}
+		ExecutorService executor = Executors
+				.newFixedThreadPool(Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			for (Future<Void> f : executor.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new java.io.InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Redoes the updates described by the specified log records on the specified {@code SlottedPageFile}.
+	 * 
+	 * @param f
+	 *            a {@code SlottedPageFile}
+	 * @param records
+	 *            the log records describing updates of the {@code SlottedPageFile} (in the order of LSNs)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void redo(SlottedPageFile f, List<LogRecord> records) throws IOException {
+		Map<Integer, SlottedPage> pages = new HashMap<Integer, SlottedPage>();
+		for (LogRecord r : records) {
+			if (r.type() == LogRecord.TRUNCATE) {
+				f.save(pages.values());
+				pages.clear();
+				f.truncate(r.pageID());
+			} else {
+				SlottedPage p = pages.get(r.pageID());
+				if (p == null) {
+					p = f.get(r.pageID());
+					if (p == null) // the page had not reached the data file
+						p = f.newPage(r.pageID());
+					pages.put(r.pageID(), p);
+				}
+				r.apply(p);
+				if (pages.size() >= 1024) {
+					f.save(pages.values());
+					pages.clear();
+				}
+			}
+		}
+		f.save(pages.values());
+	}
+
+	/**
+	 * Saves the specified {@code SlottedPage}s in the corresponding files and then removes them from the specified
+	 * map.
+	 * 
+	 * @param pages
+	 *            a map associating the concatenation of the file ID and the page ID of each {@code SlottedPage} with
+	 *            that {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void save(Map<Long, SlottedPage> pages) throws IOException {
+		Map<Integer, List<SlottedPage>> id2pages = new HashMap<Integer, List<SlottedPage>>();
+		for (Map.Entry<Long, SlottedPage> e : pages.entrySet())
+			id2pages.computeIfAbsent(first(e.getKey()), k -> new ArrayList<SlottedPage>()).add(e.getValue());
+		for (Map.Entry<Integer, List<SlottedPage>> e : id2pages.entrySet())
+			file(e.getKey()).save(e.getValue());
+		pages.clear();
+	}
+
 	/**
 	 * Returns a {@code long} value obtaining by concatenating the given {@code int} values
 	 * 
@@ -379,10 +1846,91 @@ public class FileManager implements StorageManager<Long, Object> {
 	protected SlottedPageFile file(int fileID) throws FileNotFoundException, IOException {
 		SlottedPageFile file = id2file.get(fileID);
 		if (file == null) {
-			file = new SlottedPageFile(fileID + ".dat", slottedPageSize);
+			String[] directories = id2stripes.get(fileID);
+			if (shadowed.contains(fileID))
+				file = new ShadowSlottedPageFile(fileID + ".dat", slottedPageSize);
+			else if (directories == null)
+				file = new SlottedPageFile(fileID + ".dat", slottedPageSize);
+			else
+				file = new StripedSlottedPageFile(fileID + ".dat", slottedPageSize, directories);
+			file.setMetrics(metrics(fileID));
+			file.setFileID(fileID);
+			file.setExtents(extents[0], extents[1]);
+			file.setPageFormat(id2formats.getOrDefault(fileID, PageFormat.SLOTTED));
 			id2file.put(fileID, file);
 		}
+		if (maxOpenHandles > 0 && handles.put(fileID, file) == null) { // the file is (re)opened on its next I/O
+			openHandles += file.handles();
+			releaseHandles(fileID);
+		}
 		return file;
 	}
 
+	/**
+	 * A {@code Checkpointer} periodically performs checkpoints in the background.
+	 * 
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	class Checkpointer extends Thread {
+
+		/**
+		 * The interval (in milliseconds) between checkpoints.
+		 */
+		long interval;
+
+		/**
+		 * A flag indicating whether or not this {@code Checkpointer} needs to continue.
+		 */
+		boolean running = true;
+
+		/**
+		 * Constructs a {@code Checkpointer}.
+		 * 
+		 * @param interval
+		 *            the interval (in milliseconds) between checkpoints
+		 */
+		Checkpointer(long interval) {
+			super("checkpointer");
+			this.interval = interval;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				synchronized (this) {
+					try {
+						if (running)
+							wait(interval); // not interrupt() since interrupts would close FileChannels
+					} catch (InterruptedException e) {
+						return;
+					}
+					if (!running)
+						return;
+				}
+				try {
+					checkpoint();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		/**
+		 * Terminates this {@code Checkpointer} and waits until it stops.
+		 */
+		void terminate() {
+			synchronized (this) {
+				running = false;
+				notifyAll();
+			}
+			try {
+				join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
 }
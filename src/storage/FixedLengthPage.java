@@ -0,0 +1,223 @@
+package storage;
+
+import java.io.IOException;
+
+import storage.KeyValueStore.Codec;
+
+/**
+ * A {@code FixedLengthPage} stores fixed-length records in an array. Instead of the slot offsets of a
+ * {@code SlottedPage}, a {@code FixedLengthPage} keeps an occupancy bitmap, so the record at index {@code i} is
+ * located at {@code start + i * length} and no compaction is ever needed. Records are converted to and from bytes by a
+ * {@code Codec} that must produce exactly {@code length} bytes for each record (e.g., {@link KeyValueStore#INTEGER}
+ * and {@link KeyValueStore#LONG}). As in a {@code SlottedPage}, the index of a removed record is not reused by
+ * {@link #add(Object)} so that locations remain unique. A file of {@code FixedLengthPage}s can be used through the
+ * {@code FileManager} API after {@link FileManager#setPageFormat(int, PageFormat)} is invoked with
+ * {@link #format(int, Codec)}.
+ *
+ * The byte array of a {@code FixedLengthPage} contains the number of entries (4 bytes), the occupancy bitmap, the
+ * record array, and, in the last 4 bytes, the same end marker as a {@code SlottedPage} (so that a page that has been
+ * written is never all zeros).
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class FixedLengthPage extends SlottedPage {
+
+	/**
+	 * The length (in bytes) of each record.
+	 */
+	int length;
+
+	/**
+	 * The {@code Codec} for records.
+	 */
+	Codec<Object> codec;
+
+	/**
+	 * The maximum number of records in this {@code FixedLengthPage}.
+	 */
+	int capacity;
+
+	/**
+	 * The offset of the record array in the byte array of this {@code FixedLengthPage}.
+	 */
+	int start;
+
+	/**
+	 * Constructs a {@code FixedLengthPage}.
+	 *
+	 * @param pageID
+	 *            the ID of the {@code FixedLengthPage}
+	 * @param size
+	 *            the size (in bytes) of the {@code FixedLengthPage}
+	 * @param length
+	 *            the length (in bytes) of each record
+	 * @param codec
+	 *            the {@code Codec} for records
+	 */
+	@SuppressWarnings("unchecked")
+	public FixedLengthPage(int pageID, int size, int length, Codec<?> codec) {
+		super(pageID, size);
+		if (length < 1)
+			throw new IllegalArgumentException("invalid record length: " + length);
+		this.length = length;
+		this.codec = (Codec<Object>) codec;
+		int space = size - 2 * Integer.BYTES; // the space for the bitmap and the records
+		capacity = (int) (space * 8L / (length * 8L + 1));
+		while (capacity > 0 && (capacity + 7) / 8 + capacity * length > space)
+			capacity--;
+		start = Integer.BYTES + (capacity + 7) / 8;
+	}
+
+	/**
+	 * Returns a {@code PageFormat} that creates {@code FixedLengthPage}s.
+	 *
+	 * @param <T>
+	 *            the type of records
+	 * @param length
+	 *            the length (in bytes) of each record
+	 * @param codec
+	 *            the {@code Codec} for records
+	 * @return a {@code PageFormat} that creates {@code FixedLengthPage}s
+	 */
+	public static <T> PageFormat format(int length, Codec<T> codec) {
+		return (pageID, size) -> new FixedLengthPage(pageID, size, length, codec);
+	}
+
+	/**
+	 * Returns the maximum number of records in this {@code FixedLengthPage}.
+	 *
+	 * @return the maximum number of records in this {@code FixedLengthPage}
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public int add(Object o) throws IOException, OverflowException {
+		int index = entryCount();
+		if (index >= capacity)
+			throw new OverflowException();
+		write(index, o);
+		setEntryCount(index + 1);
+		return index;
+	}
+
+	@Override
+	public Object get(int index) throws IndexOutOfBoundsException, IOException {
+		if (index < 0 || index >= entryCount())
+			throw new IndexOutOfBoundsException();
+		return isOccupied(index) ? read(index) : null;
+	}
+
+	@Override
+	public Object put(int index, Object o) throws IOException, OverflowException, IndexOutOfBoundsException {
+		if (index == entryCount()) {
+			add(o);
+			return null;
+		}
+		Object old = get(index);
+		write(index, o);
+		return old;
+	}
+
+	@Override
+	public Object remove(int index) throws IndexOutOfBoundsException, IOException {
+		Object old = get(index);
+		if (old != null)
+			setOccupied(index, false);
+		return old;
+	}
+
+	@Override
+	public int freeSpaceSize() {
+		return (capacity - entryCount()) * length;
+	}
+
+	/**
+	 * Does nothing since the records of a {@code FixedLengthPage} never need to be moved.
+	 */
+	@Override
+	protected void compact() {
+	}
+
+	/**
+	 * Returns the location of the specified record within this {@code FixedLengthPage} (-1 if the record was removed).
+	 */
+	@Override
+	protected int getLocation(int index) {
+		return isOccupied(index) ? start + index * length : -1;
+	}
+
+	/**
+	 * Marks the specified record as removed if the specified location is -1 and as occupied otherwise (the location of
+	 * each record is determined by its index).
+	 */
+	@Override
+	protected void saveLocation(int index, int location) {
+		setOccupied(index, location != -1);
+	}
+
+	/**
+	 * Writes the specified record at the specified index and marks the index as occupied.
+	 *
+	 * @param index
+	 *            an index
+	 * @param o
+	 *            a record
+	 * @throws IOException
+	 *             if the {@code Codec} fails or does not produce {@link #length} bytes
+	 */
+	void write(int index, Object o) throws IOException {
+		byte[] b = codec.encode(o);
+		if (b.length != length)
+			throw new IOException("a record of " + b.length + " bytes instead of " + length + " bytes");
+		int offset = start + index * length;
+		System.arraycopy(b, 0, data, offset, length);
+		modified(offset, offset + length);
+		setOccupied(index, true);
+	}
+
+	/**
+	 * Reads the record at the specified index.
+	 *
+	 * @param index
+	 *            an index
+	 * @return the record at the specified index
+	 * @throws IOException
+	 *             if the {@code Codec} fails
+	 */
+	Object read(int index) throws IOException {
+		byte[] b = new byte[length];
+		System.arraycopy(data, start + index * length, b, 0, length);
+		return codec.decode(b);
+	}
+
+	/**
+	 * Determines whether the specified index is occupied by a record.
+	 *
+	 * @param index
+	 *            an index
+	 * @return {@code true} if the specified index is occupied by a record; {@code false} otherwise
+	 */
+	public boolean isOccupied(int index) {
+		return (data[Integer.BYTES + index / 8] & (1 << (index % 8))) != 0;
+	}
+
+	/**
+	 * Marks the specified index as occupied or free in the occupancy bitmap.
+	 *
+	 * @param index
+	 *            an index
+	 * @param occupied
+	 *            {@code true} to mark the index as occupied; {@code false} to mark it as free
+	 */
+	void setOccupied(int index, boolean occupied) {
+		int offset = Integer.BYTES + index / 8;
+		if (occupied)
+			data[offset] |= 1 << (index % 8);
+		else
+			data[offset] &= ~(1 << (index % 8));
+		modified(offset, offset + 1);
+	}
+
+}
@@ -0,0 +1,271 @@
+package storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@code ForwardingTable} keeps the locations of a file valid when objects are moved to other {@code SlottedPage}s
+ * (e.g., by {@link FileManager#vacuum(int, int)}). For each moved object, it associates the original location of the
+ * object (its home) with the current location of the object ({@code -1} if the object has been removed). Since a home
+ * is always associated with the current location, a look-up follows at most one hop. A {@code ForwardingTable} also
+ * remembers the number of slots that each truncated {@code SlottedPage} had so that the locations of a re-created
+ * {@code SlottedPage} never coincide with forwarded ones.
+ *
+ * The entries of a {@code ForwardingTable} are appended to a file (e.g., "0.fwd" for "0.dat") and are made durable by
+ * {@link #sync()} before the {@code SlottedPage}s that they describe are truncated.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class ForwardingTable {
+
+	/**
+	 * The magic number at the beginning of each forwarding file.
+	 */
+	static final int MAGIC = 0x46574454; // "FWDT"
+
+	/**
+	 * The type of entries associating a home with the current location of an object.
+	 */
+	static final byte FORWARD = 1;
+
+	/**
+	 * The type of entries recording the number of slots in a truncated {@code SlottedPage}.
+	 */
+	static final byte RESERVE = 2;
+
+	/**
+	 * The name of the forwarding file.
+	 */
+	String name;
+
+	/**
+	 * A map that associates the home of each moved object with the current location of that object ({@code -1} if the
+	 * object has been removed).
+	 */
+	Map<Long, Long> forwards = new HashMap<Long, Long>();
+
+	/**
+	 * A map that associates the current location of each moved object with the home of that object.
+	 */
+	Map<Long, Long> homes = new HashMap<Long, Long>();
+
+	/**
+	 * A map that associates the ID of each truncated {@code SlottedPage} with the number of slots that the
+	 * {@code SlottedPage} had.
+	 */
+	Map<Integer, Integer> reserved = new HashMap<Integer, Integer>();
+
+	/**
+	 * The {@code FileOutputStream} for appending entries ({@code null} if no entry has been appended since the
+	 * forwarding file was opened).
+	 */
+	FileOutputStream file;
+
+	/**
+	 * The {@code DataOutputStream} for appending entries.
+	 */
+	DataOutputStream out;
+
+	/**
+	 * Constructs a {@code ForwardingTable} after loading the entries in the specified forwarding file (if it exists).
+	 *
+	 * @param name
+	 *            the name of the forwarding file
+	 * @throws IOException
+	 *             if an I/O error occurs or the file is not a forwarding file
+	 */
+	public ForwardingTable(String name) throws IOException {
+		this.name = name;
+		if (!new File(name).exists())
+			return;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(name), 1 << 16))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(name + " is not a forwarding file");
+			while (true) {
+				byte type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					return;
+				}
+				if (type == FORWARD)
+					apply(in.readLong(), in.readLong());
+				else if (type == RESERVE)
+					reserved.merge(in.readInt(), in.readInt(), Math::max);
+				else
+					throw new IOException(name + " has an invalid entry type: " + type);
+			}
+		} catch (EOFException e) { // an entry partially written before a crash is ignored
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{forwards:" + forwards + ", reserved:" + reserved + "}";
+	}
+
+	/**
+	 * Determines whether or not this {@code ForwardingTable} has no entries.
+	 *
+	 * @return {@code true} if this {@code ForwardingTable} has no entries; {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return forwards.isEmpty() && reserved.isEmpty();
+	}
+
+	/**
+	 * Returns the current location of the object whose home is the specified location.
+	 *
+	 * @param home
+	 *            a location
+	 * @return the current location of the object whose home is the specified location ({@code -1} if the object has
+	 *         been removed); {@code null} if the object has never been moved
+	 */
+	public Long target(long home) {
+		return forwards.get(home);
+	}
+
+	/**
+	 * Returns the home of the object at the specified location.
+	 *
+	 * @param location
+	 *            the current location of an object
+	 * @return the home of the object at the specified location (the specified location if the object has never been
+	 *         moved)
+	 */
+	public long home(long location) {
+		Long home = homes.get(location);
+		return home == null ? location : home;
+	}
+
+	/**
+	 * Associates the specified home with the specified location.
+	 *
+	 * @param home
+	 *            the home of an object
+	 * @param location
+	 *            the current location of the object ({@code -1} if the object has been removed)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void forward(long home, long location) throws IOException {
+		apply(home, location);
+		output().writeByte(FORWARD);
+		out.writeLong(home);
+		out.writeLong(location);
+	}
+
+	/**
+	 * Records the number of slots that the specified {@code SlottedPage} has before it is truncated.
+	 *
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @param slots
+	 *            the number of slots in the {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void reserve(int pageID, int slots) throws IOException {
+		if (slots <= reserved(pageID))
+			return;
+		reserved.put(pageID, slots);
+		output().writeByte(RESERVE);
+		out.writeInt(pageID);
+		out.writeInt(slots);
+	}
+
+	/**
+	 * Returns the number of slots that must be reserved when the specified {@code SlottedPage} is re-created.
+	 *
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @return the number of slots that must be reserved when the specified {@code SlottedPage} is re-created
+	 */
+	public int reserved(int pageID) {
+		return reserved.getOrDefault(pageID, 0);
+	}
+
+	/**
+	 * Makes the entries appended so far durable.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void sync() throws IOException {
+		if (out == null)
+			return;
+		out.flush();
+		file.getFD().sync();
+	}
+
+	/**
+	 * Removes all entries from this {@code ForwardingTable} and deletes the forwarding file.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void clear() throws IOException {
+		close();
+		forwards.clear();
+		homes.clear();
+		reserved.clear();
+		new File(name).delete();
+	}
+
+	/**
+	 * Closes this {@code ForwardingTable} after writing all of the appended entries to the forwarding file.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void close() throws IOException {
+		if (out != null)
+			out.close();
+		out = null;
+		file = null;
+	}
+
+	/**
+	 * Applies the specified association to the maps of this {@code ForwardingTable}.
+	 *
+	 * @param home
+	 *            the home of an object
+	 * @param location
+	 *            the current location of the object ({@code -1} if the object has been removed)
+	 */
+	void apply(long home, long location) {
+		Long previous = forwards.put(home, location);
+		if (previous != null)
+			homes.remove(previous);
+		if (location != -1)
+			homes.put(location, home);
+	}
+
+	/**
+	 * Returns the {@code DataOutputStream} for appending entries (the forwarding file is created if necessary).
+	 *
+	 * @return the {@code DataOutputStream} for appending entries
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	DataOutputStream output() throws IOException {
+		if (out == null) {
+			boolean exists = new File(name).length() > 0;
+			file = new FileOutputStream(name, true);
+			out = new DataOutputStream(new BufferedOutputStream(file, 1 << 12));
+			if (!exists)
+				out.writeInt(MAGIC);
+		}
+		return out;
+	}
+
+}
@@ -0,0 +1,369 @@
+package storage;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import storage.SlottedPage.OverflowException;
+
+/**
+ * A {@code HashIndex} is a disk-resident extendible hash index that associates keys (byte arrays) with locations (e.g.,
+ * the locations returned by {@link FileManager#add(int, Object)}). Each bucket is stored in a {@code SlottedPage} of a
+ * file managed by a {@code FileManager} (and thus is accessed through the same buffer and write-ahead log as data).
+ * The directory, which maps the lowest bits of the hash value of each key to the bucket responsible for that key, is
+ * kept in memory, so a point look-up reads a single {@code SlottedPage}. When a bucket overflows, only that bucket is
+ * split into two (the directory is doubled in memory if necessary), so the index grows without rehashing all keys.
+ * Each bucket records its local depth and hash bits, from which the directory is rebuilt when the index is opened.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class HashIndex {
+
+	/**
+	 * The maximum number of hash bits used by the directory.
+	 */
+	static final int MAX_DEPTH = 30;
+
+	/**
+	 * The {@code FileManager} that manages the file storing the buckets of this {@code HashIndex}.
+	 */
+	FileManager m;
+
+	/**
+	 * The ID of the file storing the buckets of this {@code HashIndex}.
+	 */
+	int fileID;
+
+	/**
+	 * The number of hash bits used by the directory.
+	 */
+	int depth = 0;
+
+	/**
+	 * The directory that maps the lowest {@link #depth} bits of each hash value to the ID of the {@code SlottedPage}
+	 * storing the corresponding bucket.
+	 */
+	int[] directory = { 0 };
+
+	/**
+	 * Constructs a {@code HashIndex} whose buckets are stored in the specified file (the directory is rebuilt from
+	 * the buckets in the file).
+	 *
+	 * @param m
+	 *            the {@code FileManager} that manages the file
+	 * @param fileID
+	 *            the ID of the file storing the buckets of the {@code HashIndex}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public HashIndex(FileManager m, int fileID) throws IOException {
+		this.m = m;
+		this.fileID = fileID;
+		synchronized (m) {
+			int size = m.size(fileID);
+			Bucket[] buckets = new Bucket[size];
+			for (int i = 0; i < size; i++) {
+				buckets[i] = bucket(i);
+				if (buckets[i] != null)
+					depth = Math.max(depth, buckets[i].depth);
+			}
+			directory = new int[1 << depth];
+			for (int i = 0; i < size; i++)
+				if (buckets[i] != null)
+					for (int j = buckets[i].bits; j < directory.length; j += 1 << buckets[i].depth)
+						directory[j] = i;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{depth:" + depth + ", directory:" + Arrays.toString(directory) + "}";
+	}
+
+	/**
+	 * Returns the location associated with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @return the location associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long get(byte[] key) throws IOException {
+		synchronized (m) {
+			Bucket b = bucket(directory[hash(key) & mask()]);
+			if (b == null)
+				return null;
+			int i = b.indexOf(key);
+			return i < 0 ? null : b.locations.get(i);
+		}
+	}
+
+	/**
+	 * Associates the specified location with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @param location
+	 *            a location
+	 * @return the location previously associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long put(byte[] key, long location) throws IOException {
+		Long old = null;
+		synchronized (m) {
+			int hash = hash(key);
+			while (true) {
+				int pageID = directory[hash & mask()];
+				Bucket b = bucket(pageID);
+				if (b == null)
+					b = new Bucket(0, 0);
+				int i = b.indexOf(key);
+				if (i >= 0)
+					old = b.locations.set(i, location);
+				else {
+					b.keys.add(key);
+					b.locations.add(location);
+				}
+				if (write(pageID, b))
+					break;
+				if (i >= 0) { // the previous location is restored before the split
+					b.locations.set(i, old);
+					old = null;
+				} else {
+					b.keys.remove(b.keys.size() - 1);
+					b.locations.remove(b.locations.size() - 1);
+				}
+				split(pageID, b);
+			}
+		}
+		m.commit();
+		return old;
+	}
+
+	/**
+	 * Removes the specified key from this {@code HashIndex}.
+	 *
+	 * @param key
+	 *            a key
+	 * @return the location previously associated with the specified key; {@code null} if no such location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long remove(byte[] key) throws IOException {
+		Long old;
+		synchronized (m) {
+			int pageID = directory[hash(key) & mask()];
+			Bucket b = bucket(pageID);
+			int i = b == null ? -1 : b.indexOf(key);
+			if (i < 0)
+				return null;
+			b.keys.remove(i);
+			old = b.locations.remove(i);
+			write(pageID, b);
+		}
+		m.commit();
+		return old;
+	}
+
+	/**
+	 * Removes all entries from this {@code HashIndex}.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void clear() throws IOException {
+		synchronized (m) {
+			m.clear(fileID);
+			depth = 0;
+			directory = new int[] { 0 };
+		}
+	}
+
+	/**
+	 * Returns the number of buckets in this {@code HashIndex}.
+	 *
+	 * @return the number of buckets in this {@code HashIndex}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int buckets() throws IOException {
+		synchronized (m) {
+			return Math.max(1, m.size(fileID));
+		}
+	}
+
+	/**
+	 * Returns the number of hash bits used by the directory of this {@code HashIndex}.
+	 *
+	 * @return the number of hash bits used by the directory of this {@code HashIndex}
+	 */
+	public int depth() {
+		synchronized (m) {
+			return depth;
+		}
+	}
+
+	/**
+	 * Splits the specified bucket into two by using one more hash bit. The directory is doubled if the bucket already
+	 * uses as many hash bits as the directory.
+	 *
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage} storing the bucket
+	 * @param b
+	 *            the bucket
+	 * @throws IOException
+	 *             if an I/O error occurs or too many keys have the same hash value
+	 */
+	void split(int pageID, Bucket b) throws IOException {
+		if (b.depth == MAX_DEPTH)
+			throw new IOException("too many keys with the same hash value");
+		if (b.depth == depth) {
+			directory = Arrays.copyOf(directory, directory.length * 2);
+			System.arraycopy(directory, 0, directory, directory.length / 2, directory.length / 2);
+			depth++;
+		}
+		Bucket low = new Bucket(b.depth + 1, b.bits);
+		Bucket high = new Bucket(b.depth + 1, b.bits | (1 << b.depth));
+		for (int i = 0; i < b.keys.size(); i++) {
+			Bucket t = (hash(b.keys.get(i)) & (1 << b.depth)) == 0 ? low : high;
+			t.keys.add(b.keys.get(i));
+			t.locations.add(b.locations.get(i));
+		}
+		int highID = m.size(fileID);
+		if (!write(highID, high) || !write(pageID, low))
+			throw new IOException("a bucket does not fit in a page after a split");
+		for (int j = high.bits; j < directory.length; j += 1 << high.depth)
+			directory[j] = highID;
+	}
+
+	/**
+	 * Returns the bucket stored in the specified {@code SlottedPage}.
+	 *
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @return the bucket stored in the specified {@code SlottedPage}; {@code null} if no such {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Bucket bucket(int pageID) throws IOException {
+		SlottedPage p = m.page(fileID, pageID);
+		if (p == null || p.entryCount() == 0)
+			return null;
+		return (Bucket) FileManager.object(p, 0);
+	}
+
+	/**
+	 * Writes the specified bucket to the specified {@code SlottedPage}.
+	 *
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @param b
+	 *            a bucket
+	 * @return {@code true} if the bucket is written; {@code false} if the bucket does not fit in a {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	boolean write(int pageID, Bucket b) throws IOException {
+		SlottedPage p = new SlottedPage(pageID, m.slottedPageSize);
+		try {
+			p.add(b);
+		} catch (OverflowException e) {
+			return false;
+		}
+		m.updated(p, fileID);
+		return true;
+	}
+
+	/**
+	 * Returns the mask for extracting the hash bits used by the directory.
+	 *
+	 * @return the mask for extracting the hash bits used by the directory
+	 */
+	int mask() {
+		return (1 << depth) - 1;
+	}
+
+	/**
+	 * Returns the hash value of the specified key (the bits of {@code Arrays.hashCode(byte[])} are mixed so that the
+	 * lowest bits are well distributed).
+	 *
+	 * @param key
+	 *            a key
+	 * @return the hash value of the specified key
+	 */
+	static int hash(byte[] key) {
+		int h = Arrays.hashCode(key);
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * A {@code Bucket} stores the keys of a {@code HashIndex} whose hash values share the same lowest bits and the
+	 * associated locations.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Bucket implements Serializable {
+
+		/**
+		 * Automatically generated serial version UID.
+		 */
+		private static final long serialVersionUID = 2236585367015874376L;
+
+		/**
+		 * The number of the lowest hash bits shared by the keys in this {@code Bucket} (the local depth).
+		 */
+		int depth;
+
+		/**
+		 * The lowest {@link #depth} bits shared by the hash values of the keys in this {@code Bucket}.
+		 */
+		int bits;
+
+		/**
+		 * The keys in this {@code Bucket}.
+		 */
+		ArrayList<byte[]> keys = new ArrayList<byte[]>();
+
+		/**
+		 * The locations associated with the keys.
+		 */
+		ArrayList<Long> locations = new ArrayList<Long>();
+
+		/**
+		 * Constructs a {@code Bucket}.
+		 *
+		 * @param depth
+		 *            the number of the lowest hash bits shared by the keys in the {@code Bucket}
+		 * @param bits
+		 *            the lowest hash bits shared by the keys in the {@code Bucket}
+		 */
+		Bucket(int depth, int bits) {
+			this.depth = depth;
+			this.bits = bits;
+		}
+
+		/**
+		 * Returns the index of the specified key in this {@code Bucket}.
+		 *
+		 * @param key
+		 *            a key
+		 * @return the index of the specified key in this {@code Bucket}; -1 if no such key
+		 */
+		int indexOf(byte[] key) {
+			for (int i = 0; i < keys.size(); i++)
+				if (Arrays.equals(keys.get(i), key))
+					return i;
+			return -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,236 @@
+package storage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@code IOMetrics} object collects statistics about the I/O operations performed on a file (the numbers of reads,
+ * writes, seeks, and syncs, the numbers of bytes read and written, and the latency distributions of page reads, page
+ * writes, and syncs). An {@code IOMetrics} object can be updated by multiple threads concurrently and can be exported
+ * as a JMX MBean (see {@link FileManager#exportMetrics(String)}).
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class IOMetrics implements IOMetricsMBean {
+
+	/**
+	 * The number of {@code SlottedPage}s read.
+	 */
+	LongAdder reads = new LongAdder();
+
+	/**
+	 * The number of {@code SlottedPage}s written.
+	 */
+	LongAdder writes = new LongAdder();
+
+	/**
+	 * The number of seeks performed.
+	 */
+	LongAdder seeks = new LongAdder();
+
+	/**
+	 * The number of syncs performed.
+	 */
+	LongAdder syncs = new LongAdder();
+
+	/**
+	 * The number of bytes read.
+	 */
+	LongAdder bytesRead = new LongAdder();
+
+	/**
+	 * The number of bytes written.
+	 */
+	LongAdder bytesWritten = new LongAdder();
+
+	/**
+	 * The latencies of page reads.
+	 */
+	LatencyHistogram readLatency = new LatencyHistogram();
+
+	/**
+	 * The latencies of page writes.
+	 */
+	LatencyHistogram writeLatency = new LatencyHistogram();
+
+	/**
+	 * The latencies of syncs.
+	 */
+	LatencyHistogram syncLatency = new LatencyHistogram();
+
+	@Override
+	public String toString() {
+		return "{reads:" + getReads() + ", writes:" + getWrites() + ", seeks:" + getSeeks() + ", syncs:" + getSyncs()
+				+ ", bytesRead:" + getBytesRead() + ", bytesWritten:" + getBytesWritten() + ", readLatency:"
+				+ readLatency + ", writeLatency:" + writeLatency + ", syncLatency:" + syncLatency + "}";
+	}
+
+	/**
+	 * Records a page read that started at the specified time.
+	 *
+	 * @param bytes
+	 *            the number of bytes read
+	 * @param start
+	 *            the start time of the read (obtained from {@code System.nanoTime()})
+	 */
+	void read(int bytes, long start) {
+		readLatency.recordSince(start);
+		reads.increment();
+		bytesRead.add(bytes);
+	}
+
+	/**
+	 * Records a page write that started at the specified time.
+	 *
+	 * @param bytes
+	 *            the number of bytes written
+	 * @param start
+	 *            the start time of the write (obtained from {@code System.nanoTime()})
+	 */
+	void write(int bytes, long start) {
+		writeLatency.recordSince(start);
+		writes.increment();
+		bytesWritten.add(bytes);
+	}
+
+	/**
+	 * Records a sync that started at the specified time.
+	 *
+	 * @param start
+	 *            the start time of the sync (obtained from {@code System.nanoTime()})
+	 */
+	void sync(long start) {
+		syncLatency.recordSince(start);
+		syncs.increment();
+	}
+
+	/**
+	 * Returns the latencies of page reads.
+	 *
+	 * @return the latencies of page reads
+	 */
+	public LatencyHistogram readLatency() {
+		return readLatency;
+	}
+
+	/**
+	 * Returns the latencies of page writes.
+	 *
+	 * @return the latencies of page writes
+	 */
+	public LatencyHistogram writeLatency() {
+		return writeLatency;
+	}
+
+	/**
+	 * Returns the latencies of syncs.
+	 *
+	 * @return the latencies of syncs
+	 */
+	public LatencyHistogram syncLatency() {
+		return syncLatency;
+	}
+
+	@Override
+	public long getReads() {
+		return reads.sum();
+	}
+
+	@Override
+	public long getWrites() {
+		return writes.sum();
+	}
+
+	@Override
+	public long getSeeks() {
+		return seeks.sum();
+	}
+
+	@Override
+	public long getSyncs() {
+		return syncs.sum();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public double getReadLatencyMean() {
+		return readLatency.mean() / 1000;
+	}
+
+	@Override
+	public double getReadLatencyP50() {
+		return readLatency.percentile(50) / 1000.0;
+	}
+
+	@Override
+	public double getReadLatencyP99() {
+		return readLatency.percentile(99) / 1000.0;
+	}
+
+	@Override
+	public double getReadLatencyP999() {
+		return readLatency.percentile(99.9) / 1000.0;
+	}
+
+	@Override
+	public double getWriteLatencyMean() {
+		return writeLatency.mean() / 1000;
+	}
+
+	@Override
+	public double getWriteLatencyP50() {
+		return writeLatency.percentile(50) / 1000.0;
+	}
+
+	@Override
+	public double getWriteLatencyP99() {
+		return writeLatency.percentile(99) / 1000.0;
+	}
+
+	@Override
+	public double getWriteLatencyP999() {
+		return writeLatency.percentile(99.9) / 1000.0;
+	}
+
+	@Override
+	public double getSyncLatencyMean() {
+		return syncLatency.mean() / 1000;
+	}
+
+	@Override
+	public double getSyncLatencyP50() {
+		return syncLatency.percentile(50) / 1000.0;
+	}
+
+	@Override
+	public double getSyncLatencyP99() {
+		return syncLatency.percentile(99) / 1000.0;
+	}
+
+	@Override
+	public double getSyncLatencyP999() {
+		return syncLatency.percentile(99.9) / 1000.0;
+	}
+
+	@Override
+	public void reset() {
+		reads.reset();
+		writes.reset();
+		seeks.reset();
+		syncs.reset();
+		bytesRead.reset();
+		bytesWritten.reset();
+		readLatency.reset();
+		writeLatency.reset();
+		syncLatency.reset();
+	}
+
+}
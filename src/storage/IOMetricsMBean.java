@@ -0,0 +1,141 @@
+package storage;
+
+/**
+ * The management interface of {@code IOMetrics} (the latencies are in microseconds).
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public interface IOMetricsMBean {
+
+	/**
+	 * Returns the number of {@code SlottedPage}s read.
+	 * 
+	 * @return the number of {@code SlottedPage}s read
+	 */
+	long getReads();
+
+	/**
+	 * Returns the number of {@code SlottedPage}s written.
+	 * 
+	 * @return the number of {@code SlottedPage}s written
+	 */
+	long getWrites();
+
+	/**
+	 * Returns the number of seeks performed.
+	 * 
+	 * @return the number of seeks performed
+	 */
+	long getSeeks();
+
+	/**
+	 * Returns the number of syncs performed.
+	 * 
+	 * @return the number of syncs performed
+	 */
+	long getSyncs();
+
+	/**
+	 * Returns the number of bytes read.
+	 * 
+	 * @return the number of bytes read
+	 */
+	long getBytesRead();
+
+	/**
+	 * Returns the number of bytes written.
+	 * 
+	 * @return the number of bytes written
+	 */
+	long getBytesWritten();
+
+	/**
+	 * Returns the mean latency of page reads.
+	 * 
+	 * @return the mean latency of page reads
+	 */
+	double getReadLatencyMean();
+
+	/**
+	 * Returns the median latency of page reads.
+	 * 
+	 * @return the median latency of page reads
+	 */
+	double getReadLatencyP50();
+
+	/**
+	 * Returns the 99th percentile latency of page reads.
+	 * 
+	 * @return the 99th percentile latency of page reads
+	 */
+	double getReadLatencyP99();
+
+	/**
+	 * Returns the 99.9th percentile latency of page reads.
+	 * 
+	 * @return the 99.9th percentile latency of page reads
+	 */
+	double getReadLatencyP999();
+
+	/**
+	 * Returns the mean latency of page writes.
+	 * 
+	 * @return the mean latency of page writes
+	 */
+	double getWriteLatencyMean();
+
+	/**
+	 * Returns the median latency of page writes.
+	 * 
+	 * @return the median latency of page writes
+	 */
+	double getWriteLatencyP50();
+
+	/**
+	 * Returns the 99th percentile latency of page writes.
+	 * 
+	 * @return the 99th percentile latency of page writes
+	 */
+	double getWriteLatencyP99();
+
+	/**
+	 * Returns the 99.9th percentile latency of page writes.
+	 * 
+	 * @return the 99.9th percentile latency of page writes
+	 */
+	double getWriteLatencyP999();
+
+	/**
+	 * Returns the mean latency of syncs.
+	 * 
+	 * @return the mean latency of syncs
+	 */
+	double getSyncLatencyMean();
+
+	/**
+	 * Returns the median latency of syncs.
+	 * 
+	 * @return the median latency of syncs
+	 */
+	double getSyncLatencyP50();
+
+	/**
+	 * Returns the 99th percentile latency of syncs.
+	 * 
+	 * @return the 99th percentile latency of syncs
+	 */
+	double getSyncLatencyP99();
+
+	/**
+	 * Returns the 99.9th percentile latency of syncs.
+	 * 
+	 * @return the 99.9th percentile latency of syncs
+	 */
+	double getSyncLatencyP999();
+
+	/**
+	 * Resets all of the counters and histograms.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,450 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import storage.StorageManager.InvalidLocationException;
+
+/**
+ * A {@code KeyValueStore} stores key-value pairs in a data file managed by a {@code FileManager} and maintains a
+ * {@code BPlusTree} in another file that associates each key with the location of the corresponding record. Keys and
+ * values are converted to and from bytes by {@code Codec}s. Each record contains the encoded key as well as the
+ * encoded value so that records are self-describing. Since locations remain valid even when a record outgrows its
+ * {@code SlottedPage} (see {@link FileManager#put(int, Long, Object)}), updating the value of an existing key does
+ * not modify the index. Range queries return pairs in the order of encoded keys (compared as unsigned bytes), so the
+ * key {@code Codec} must preserve the order of keys for {@link #range(Object, Object)} to be meaningful (as the
+ * built-in {@code Codec}s do).
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class KeyValueStore<K, V> {
+
+	/**
+	 * A {@code Codec} for {@code String}s (UTF-8, which preserves the order of code points).
+	 */
+	public static final Codec<String> STRING = new Codec<String>() {
+
+		@Override
+		public byte[] encode(String s) {
+			return s.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String decode(byte[] b) {
+			return new String(b, StandardCharsets.UTF_8);
+		}
+
+	};
+
+	/**
+	 * A {@code Codec} for {@code Integer}s (big-endian with the sign bit flipped, which preserves the order of
+	 * integers).
+	 */
+	public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+
+		@Override
+		public byte[] encode(Integer i) {
+			return ByteBuffer.allocate(Integer.BYTES).putInt(i ^ Integer.MIN_VALUE).array();
+		}
+
+		@Override
+		public Integer decode(byte[] b) {
+			return ByteBuffer.wrap(b).getInt() ^ Integer.MIN_VALUE;
+		}
+
+	};
+
+	/**
+	 * A {@code Codec} for {@code Long}s (big-endian with the sign bit flipped, which preserves the order of long
+	 * integers).
+	 */
+	public static final Codec<Long> LONG = new Codec<Long>() {
+
+		@Override
+		public byte[] encode(Long l) {
+			return ByteBuffer.allocate(Long.BYTES).putLong(l ^ Long.MIN_VALUE).array();
+		}
+
+		@Override
+		public Long decode(byte[] b) {
+			return ByteBuffer.wrap(b).getLong() ^ Long.MIN_VALUE;
+		}
+
+	};
+
+	/**
+	 * A {@code Codec} for byte arrays (which are stored as they are).
+	 */
+	public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+
+		@Override
+		public byte[] encode(byte[] b) {
+			return b;
+		}
+
+		@Override
+		public byte[] decode(byte[] b) {
+			return b;
+		}
+
+	};
+
+	/**
+	 * The {@code FileManager} that manages the data file and the index file.
+	 */
+	FileManager m;
+
+	/**
+	 * The ID of the data file.
+	 */
+	int dataFileID;
+
+	/**
+	 * The index that associates each key with the location of the corresponding record.
+	 */
+	BPlusTree<Key> index;
+
+	/**
+	 * The {@code Codec} for keys.
+	 */
+	Codec<K> keys;
+
+	/**
+	 * The {@code Codec} for values.
+	 */
+	Codec<V> values;
+
+	/**
+	 * Constructs a {@code KeyValueStore}.
+	 *
+	 * @param m
+	 *            the {@code FileManager} that manages the data file and the index file
+	 * @param dataFileID
+	 *            the ID of the data file
+	 * @param indexFileID
+	 *            the ID of the index file
+	 * @param keys
+	 *            the {@code Codec} for keys
+	 * @param values
+	 *            the {@code Codec} for values
+	 */
+	public KeyValueStore(FileManager m, int dataFileID, int indexFileID, Codec<K> keys, Codec<V> values) {
+		if (dataFileID == indexFileID)
+			throw new IllegalArgumentException("the data and index files must differ: " + dataFileID);
+		this.m = m;
+		this.dataFileID = dataFileID;
+		this.index = new BPlusTree<Key>(m, indexFileID);
+		this.keys = keys;
+		this.values = values;
+	}
+
+	/**
+	 * Returns a {@code Codec} that uses Java serialization (which does not preserve the order of objects and thus is
+	 * suitable for values).
+	 *
+	 * @param <T>
+	 *            the type of objects
+	 * @return a {@code Codec} that uses Java serialization
+	 */
+	public static <T extends Serializable> Codec<T> serializable() {
+		return new Codec<T>() {
+
+			@Override
+			public byte[] encode(T o) throws IOException {
+				ByteArrayOutputStream b = new ByteArrayOutputStream();
+				try (ObjectOutputStream out = new ObjectOutputStream(b)) {
+					out.writeObject(o);
+				}
+				return b.toByteArray();
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T decode(byte[] b) throws IOException {
+				try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(b))) {
+					return (T) in.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException(e);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Associates the specified value with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @param value
+	 *            a value
+	 * @return the value previously associated with the specified key; {@code null} if no such value
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized V put(K key, V value) throws IOException {
+		Key k = new Key(keys.encode(key));
+		Record r = new Record(k.bytes, values.encode(value));
+		Long location = index.get(k);
+		if (location == null) {
+			index.put(k, m.add(dataFileID, r));
+			return null;
+		}
+		try {
+			return value(m.put(dataFileID, location, r)); // updated in place (the index is not modified)
+		} catch (InvalidLocationException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Returns the value associated with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @return the value associated with the specified key; {@code null} if no such value
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized V get(K key) throws IOException {
+		Key k = new Key(keys.encode(key));
+		Long location = index.get(k);
+		return location == null ? null : value(k, location);
+	}
+
+	/**
+	 * Removes the value associated with the specified key.
+	 *
+	 * @param key
+	 *            a key
+	 * @return the value previously associated with the specified key; {@code null} if no such value
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized V delete(K key) throws IOException {
+		Long location = index.remove(new Key(keys.encode(key)));
+		try {
+			return location == null ? null : value(m.remove(dataFileID, location));
+		} catch (InvalidLocationException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Returns an iterator over the key-value pairs whose keys are in the specified range (in the order of keys).
+	 *
+	 * @param from
+	 *            the lower bound (inclusive) of the range ({@code null} if unbounded)
+	 * @param to
+	 *            the upper bound (exclusive) of the range ({@code null} if unbounded)
+	 * @return an iterator over the key-value pairs whose keys are in the specified range
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Iterator<Map.Entry<K, V>> range(K from, K to) throws IOException {
+		Iterator<Map.Entry<Key, Long>> i = index.range(from == null ? null : new Key(keys.encode(from)),
+				to == null ? null : new Key(keys.encode(to)));
+		return new Iterator<Map.Entry<K, V>>() {
+
+			@Override
+			public boolean hasNext() {
+				return i.hasNext();
+			}
+
+			@Override
+			public Map.Entry<K, V> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Map.Entry<Key, Long> e = i.next();
+				try {
+					return new AbstractMap.SimpleImmutableEntry<K, V>(keys.decode(e.getKey().bytes),
+							value(e.getKey(), e.getValue()));
+				} catch (IOException x) {
+					throw new RuntimeException(x);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Removes all key-value pairs from this {@code KeyValueStore}.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void clear() throws IOException {
+		m.clear(dataFileID);
+		index.clear();
+	}
+
+	/**
+	 * Returns the value stored in the record at the specified location after checking the key of the record.
+	 *
+	 * @param k
+	 *            a key
+	 * @param location
+	 *            the location of the record
+	 * @return the value stored in the record at the specified location
+	 * @throws IOException
+	 *             if an I/O error occurs or the record does not contain the key
+	 */
+	V value(Key k, long location) throws IOException {
+		Object o;
+		try {
+			o = m.get(dataFileID, location);
+		} catch (InvalidLocationException e) {
+			throw new IOException(e);
+		}
+		if (!(o instanceof Record) || !Arrays.equals(((Record) o).key, k.bytes))
+			throw new IOException("the index does not match the record at " + location);
+		return value(o);
+	}
+
+	/**
+	 * Returns the value stored in the specified record.
+	 *
+	 * @param o
+	 *            a record
+	 * @return the value stored in the specified record; {@code null} if the specified record is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	V value(Object o) throws IOException {
+		return o == null ? null : values.decode(((Record) o).value);
+	}
+
+	/**
+	 * A {@code Codec} converts objects to and from bytes.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 * @param <T>
+	 *            the type of objects
+	 */
+	public interface Codec<T> {
+
+		/**
+		 * Returns the bytes representing the specified object.
+		 *
+		 * @param o
+		 *            an object
+		 * @return the bytes representing the specified object
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		byte[] encode(T o) throws IOException;
+
+		/**
+		 * Returns the object represented by the specified bytes.
+		 *
+		 * @param b
+		 *            a byte array
+		 * @return the object represented by the specified bytes
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		T decode(byte[] b) throws IOException;
+
+	}
+
+	/**
+	 * A {@code Key} is an encoded key in the index of a {@code KeyValueStore} (keys are compared as unsigned bytes).
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Key implements Comparable<Key>, Serializable {
+
+		/**
+		 * Automatically generated serial version UID.
+		 */
+		private static final long serialVersionUID = 6018457398521749112L;
+
+		/**
+		 * The bytes of this {@code Key}.
+		 */
+		byte[] bytes;
+
+		/**
+		 * Constructs a {@code Key}.
+		 *
+		 * @param bytes
+		 *            the bytes of the {@code Key}
+		 */
+		Key(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int compareTo(Key o) {
+			return Arrays.compareUnsigned(bytes, o.bytes);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.toString(bytes);
+		}
+
+	}
+
+	/**
+	 * A {@code Record} is a key-value pair stored in the data file of a {@code KeyValueStore}.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Record implements Serializable {
+
+		/**
+		 * Automatically generated serial version UID.
+		 */
+		private static final long serialVersionUID = -2781962937402257064L;
+
+		/**
+		 * The encoded key.
+		 */
+		byte[] key;
+
+		/**
+		 * The encoded value.
+		 */
+		byte[] value;
+
+		/**
+		 * Constructs a {@code Record}.
+		 *
+		 * @param key
+		 *            the encoded key
+		 * @param value
+		 *            the encoded value
+		 */
+		Record(byte[] key, byte[] value) {
+			this.key = key;
+			this.value = value;
+		}
+
+	}
+
+}
@@ -0,0 +1,188 @@
+package storage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@code LatencyHistogram} records latencies (in nanoseconds) in logarithmically spaced buckets, each of which is
+ * divided into linearly spaced sub-buckets (in the style of HdrHistogram). With the default precision of 7 bits, the
+ * value reported for a percentile is within about 1.6% of the actual value while the histogram needs only a few
+ * thousand counters regardless of the range of latencies. A {@code LatencyHistogram} can be updated by multiple
+ * threads concurrently without locking.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of bits used for the sub-buckets within each bucket.
+	 */
+	static final int PRECISION = 7;
+
+	/**
+	 * The number of sub-buckets in the first bucket (values below this number are recorded exactly).
+	 */
+	static final int SUB_BUCKETS = 1 << PRECISION;
+
+	/**
+	 * The counts of the recorded values in each sub-bucket.
+	 */
+	AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + (64 - PRECISION) * (SUB_BUCKETS / 2));
+
+	/**
+	 * The number of recorded values.
+	 */
+	LongAdder count = new LongAdder();
+
+	/**
+	 * The sum of the recorded values.
+	 */
+	LongAdder sum = new LongAdder();
+
+	/**
+	 * Records the specified latency.
+	 *
+	 * @param nanos
+	 *            a latency (in nanoseconds)
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		counts.incrementAndGet(index(nanos));
+		count.increment();
+		sum.add(nanos);
+	}
+
+	/**
+	 * Records the latency of an operation that started at the specified time.
+	 *
+	 * @param start
+	 *            the start time of the operation (obtained from {@code System.nanoTime()})
+	 * @return the latency (in nanoseconds)
+	 */
+	public long recordSince(long start) {
+		long latency = System.nanoTime() - start;
+		record(latency);
+		return latency;
+	}
+
+	/**
+	 * Adds all of the values recorded in the specified {@code LatencyHistogram} to this {@code LatencyHistogram}.
+	 *
+	 * @param h
+	 *            a {@code LatencyHistogram}
+	 */
+	public void add(LatencyHistogram h) {
+		for (int i = 0; i < counts.length(); i++) {
+			long c = h.counts.get(i);
+			if (c > 0)
+				counts.addAndGet(i, c);
+		}
+		count.add(h.count.sum());
+		sum.add(h.sum.sum());
+	}
+
+	/**
+	 * Removes all of the recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++)
+			counts.set(i, 0);
+		count.reset();
+		sum.reset();
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return the number of recorded values
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the mean of the recorded values (in nanoseconds).
+	 *
+	 * @return the mean of the recorded values (in nanoseconds); 0 if no value has been recorded
+	 */
+	public double mean() {
+		long c = count.sum();
+		return c == 0 ? 0 : (double) sum.sum() / c;
+	}
+
+	/**
+	 * Returns the value at the specified percentile (in nanoseconds).
+	 *
+	 * @param percentile
+	 *            a percentile (e.g., 99.9)
+	 * @return the value at the specified percentile (in nanoseconds); 0 if no value has been recorded
+	 */
+	public long percentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[counts.length()];
+		for (int i = 0; i < snapshot.length; i++)
+			total += snapshot[i] = counts.get(i);
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return highest(i);
+		}
+		return highest(snapshot.length - 1);
+	}
+
+	@Override
+	public String toString() {
+		return toString(TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 * Returns a summary of this {@code LatencyHistogram} using the specified time unit.
+	 *
+	 * @param unit
+	 *            a time unit
+	 * @return a summary of this {@code LatencyHistogram} using the specified time unit
+	 */
+	public String toString(TimeUnit unit) {
+		double n = unit.toNanos(1);
+		return String.format("{count:%d, mean:%.1f, p50:%.1f, p99:%.1f, p999:%.1f, max:%.1f}", count(), mean() / n,
+				percentile(50) / n, percentile(99) / n, percentile(99.9) / n, percentile(100) / n);
+	}
+
+	/**
+	 * Returns the index of the sub-bucket for the specified value.
+	 *
+	 * @param v
+	 *            a non-negative value
+	 * @return the index of the sub-bucket for the specified value
+	 */
+	static int index(long v) {
+		if (v < SUB_BUCKETS)
+			return (int) v;
+		int e = 63 - Long.numberOfLeadingZeros(v); // e >= PRECISION
+		int shift = e - PRECISION + 1;
+		return SUB_BUCKETS + (e - PRECISION) * (SUB_BUCKETS / 2) + (int) ((v >>> shift) - SUB_BUCKETS / 2);
+	}
+
+	/**
+	 * Returns the largest value that belongs to the specified sub-bucket.
+	 *
+	 * @param index
+	 *            the index of a sub-bucket
+	 * @return the largest value that belongs to the specified sub-bucket
+	 */
+	static long highest(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int e = (index - SUB_BUCKETS) / (SUB_BUCKETS / 2) + PRECISION;
+		int shift = e - PRECISION + 1;
+		long sub = (index - SUB_BUCKETS) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+		return ((sub + 1) << shift) - 1;
+	}
+
+}
@@ -0,0 +1,672 @@
+package storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * A {@code LogManager} maintains a write-ahead log. Each modification of a {@code SlottedPage} is described by a
+ * compact {@code LogRecord} (the ID of the file, the ID of the page, the offset within the page, and the modified
+ * bytes). {@code LogRecord}s are appended to an in-memory buffer and written to the log sequentially. A
+ * {@link #commit(long)} call makes {@code LogRecord}s durable. Concurrent {@link #commit(long)} calls share a single
+ * {@code fsync} (group commit): the first caller becomes the leader that writes and forces all of the buffered
+ * {@code LogRecord}s while the other callers wait for the leader and, if needed, form the next group.
+ * 
+ * The location of each {@code LogRecord} is identified by a log sequence number (LSN), the offset of the end of that
+ * {@code LogRecord} within the log. The log is stored in segment files of a fixed size (e.g., "wal.log.0",
+ * "wal.log.1", ...) so that the segments preceding the recovery start point recorded by the latest checkpoint (in
+ * "wal.log.ckpt") can be deleted.
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class LogManager {
+
+	/**
+	 * The default size (in bytes) of log segments.
+	 */
+	public static final long DEFAULT_SEGMENT_SIZE = 1 << 24;
+
+	/**
+	 * The name of the log.
+	 */
+	String name;
+
+	/**
+	 * The size (in bytes) of log segments.
+	 */
+	long segmentSize;
+
+	/**
+	 * A map that associates the index of each log segment with a {@code FileChannel} for accessing that segment.
+	 */
+	TreeMap<Long, FileChannel> segments = new TreeMap<Long, FileChannel>();
+
+	/**
+	 * A buffer containing the {@code LogRecord}s that have been appended but not yet written to the log.
+	 */
+	ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+	/**
+	 * The LSN of the last {@code LogRecord} appended to this {@code LogManager}.
+	 */
+	long appended;
+
+	/**
+	 * The LSN up to which all {@code LogRecord}s are durable.
+	 */
+	long durable;
+
+	/**
+	 * A flag indicating whether or not a group of {@code LogRecord}s is being written to the log.
+	 */
+	boolean flushing = false;
+
+	/**
+	 * The number of {@code fsync}s performed so far.
+	 */
+	long forces = 0;
+
+	/**
+	 * The number of {@link #commit(long)} calls that required the log to be forced.
+	 */
+	long commits = 0;
+
+	/**
+	 * Constructs a {@code LogManager} that uses log segments of the default size.
+	 * 
+	 * @param name
+	 *            the name of the log
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public LogManager(String name) throws IOException {
+		this(name, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Constructs a {@code LogManager}.
+	 * 
+	 * @param name
+	 *            the name of the log
+	 * @param segmentSize
+	 *            the size (in bytes) of log segments
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public LogManager(String name, long segmentSize) throws IOException {
+		this.name = name;
+		this.segmentSize = segmentSize;
+		File f = new File(name).getAbsoluteFile();
+		String[] names = f.getParentFile().list();
+		if (names != null)
+			for (String s : names)
+				if (s.startsWith(f.getName() + ".") && s.substring(f.getName().length() + 1).matches("[0-9]+"))
+					segment(Long.parseLong(s.substring(f.getName().length() + 1)));
+		appended = checkpointed();
+		if (!segments.isEmpty())
+			appended = Math.max(appended, segments.lastKey() * segmentSize + segments.lastEntry().getValue().size());
+		durable = appended;
+	}
+
+	@Override
+	public String toString() {
+		return "{name:" + name + ", appended:" + appended + ", durable:" + durable + ", commits:" + commits
+				+ ", forces:" + forces + "}";
+	}
+
+	/**
+	 * Returns the LSN of the last {@code LogRecord} appended to this {@code LogManager}.
+	 * 
+	 * @return the LSN of the last {@code LogRecord} appended to this {@code LogManager}
+	 */
+	public synchronized long appended() {
+		return appended;
+	}
+
+	/**
+	 * Returns the LSN up to which all {@code LogRecord}s are durable.
+	 * 
+	 * @return the LSN up to which all {@code LogRecord}s are durable
+	 */
+	public synchronized long durable() {
+		return durable;
+	}
+
+	/**
+	 * Returns the number of {@code fsync}s performed so far.
+	 * 
+	 * @return the number of {@code fsync}s performed so far
+	 */
+	public synchronized long forces() {
+		return forces;
+	}
+
+	/**
+	 * Returns the number of {@link #commit(long)} calls that required the log to be forced (which exceeds the number
+	 * of {@code fsync}s when concurrent commits share a force).
+	 * 
+	 * @return the number of {@link #commit(long)} calls that required the log to be forced
+	 */
+	public synchronized long commits() {
+		return commits;
+	}
+
+	/**
+	 * Appends the specified {@code LogRecord} to this {@code LogManager}. The {@code LogRecord} becomes durable when
+	 * {@link #commit(long)} is invoked with the returned LSN (or a larger one).
+	 * 
+	 * @param r
+	 *            a {@code LogRecord}
+	 * @return the LSN of the {@code LogRecord}
+	 */
+	public synchronized long append(LogRecord r) {
+		byte[] b = r.toByteArray();
+		buffer.write(b, 0, b.length);
+		appended += b.length;
+		return appended;
+	}
+
+	/**
+	 * Makes all {@code LogRecord}s up to the specified LSN durable. This method returns after (at most) one
+	 * sequential write and {@code fsync} of the log, which are shared by all of the threads committing concurrently.
+	 * If the write fails, the {@code LogRecord}s of the group remain buffered and are written by the next
+	 * {@link #commit(long)} call, so no {@code LogRecord} is reported as durable before it is forced.
+	 * 
+	 * @param lsn
+	 *            an LSN
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void commit(long lsn) throws IOException {
+		byte[] group;
+		long end;
+		synchronized (this) {
+			if (durable >= lsn)
+				return;
+			commits++;
+			while (flushing) { // wait for the current leader
+				wait(this);
+				if (durable >= lsn)
+					return;
+			}
+			// become the leader of a new group
+			flushing = true;
+			group = buffer.toByteArray();
+			buffer.reset();
+			end = appended;
+		}
+		boolean done = false;
+		try {
+			write(group, end - group.length);
+			done = true;
+		} finally {
+			synchronized (this) {
+				flushing = false;
+				if (done) {
+					durable = end;
+					forces++;
+				} else { // keep the group so that the next leader writes it again from the same position
+					byte[] rest = buffer.toByteArray();
+					buffer.reset();
+					buffer.write(group, 0, group.length);
+					buffer.write(rest, 0, rest.length);
+				}
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Makes all of the {@code LogRecord}s appended so far durable.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void commit() throws IOException {
+		commit(appended());
+	}
+
+	/**
+	 * Returns an iterator over the durable {@code LogRecord}s in this {@code LogManager}, starting with the
+	 * {@code LogRecord} at the specified LSN. The iteration stops at the first incomplete or corrupted
+	 * {@code LogRecord} (e.g., one partially written before a crash).
+	 * 
+	 * @param lsn
+	 *            the LSN of the beginning of the first {@code LogRecord} to return
+	 * @return an iterator over the durable {@code LogRecord}s in this {@code LogManager}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Iterator<LogRecord> iterator(long lsn) throws IOException {
+		commit();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new LogInputStream(lsn), 1 << 16));
+		return new Iterator<LogRecord>() {
+
+			LogRecord next = LogRecord.read(in);
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public LogRecord next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				LogRecord r = next;
+				next = LogRecord.read(in);
+				return r;
+			}
+		};
+	}
+
+	/**
+	 * Returns an iterator over the durable {@code LogRecord}s in this {@code LogManager} that are needed for recovery
+	 * (i.e., the {@code LogRecord}s following the recovery start point recorded by the latest checkpoint).
+	 * 
+	 * @return an iterator over the durable {@code LogRecord}s in this {@code LogManager} that are needed for recovery
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Iterator<LogRecord> iterator() throws IOException {
+		return iterator(checkpointed());
+	}
+
+	/**
+	 * Records the specified LSN as the recovery start point and then deletes the log segments that precede the
+	 * recovery start point. This method must be invoked only when the modifications described by the
+	 * {@code LogRecord}s preceding the specified LSN are durable in the data files.
+	 * 
+	 * @param lsn
+	 *            the LSN of the beginning of the first {@code LogRecord} needed for recovery
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void checkpoint(long lsn) throws IOException {
+		Path master = Paths.get(name + ".ckpt");
+		Path tmp = Paths.get(name + ".ckpt.tmp");
+		ByteBuffer b = ByteBuffer.allocate(2 * Long.BYTES);
+		b.putLong(lsn).putLong(~lsn).flip();
+		try (FileChannel c = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (b.hasRemaining())
+				c.write(b);
+			c.force(true);
+		}
+		Files.move(tmp, master, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		synchronized (this) {
+			while (!segments.isEmpty() && (segments.firstKey() + 1) * segmentSize <= lsn) {
+				long k = segments.firstKey();
+				segments.remove(k).close();
+				new File(name + "." + k).delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the recovery start point recorded by the latest checkpoint.
+	 * 
+	 * @return the LSN of the beginning of the first {@code LogRecord} needed for recovery; 0 if no checkpoint has been
+	 *         performed
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public long checkpointed() throws IOException {
+		File master = new File(name + ".ckpt");
+		if (master.length() != 2 * Long.BYTES)
+			return 0;
+		ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(master.toPath()));
+		long lsn = b.getLong();
+		return lsn == ~b.getLong() ? lsn : 0;
+	}
+
+	/**
+	 * Removes all {@code LogRecord}s from this {@code LogManager}. This method must be invoked only when all of the
+	 * modifications described in this {@code LogManager} are durable in the data files.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void clear() throws IOException {
+		while (flushing)
+			wait(this);
+		buffer.reset();
+		for (Map.Entry<Long, FileChannel> e : segments.entrySet()) {
+			e.getValue().close();
+			new File(name + "." + e.getKey()).delete();
+		}
+		segments.clear();
+		new File(name + ".ckpt").delete();
+		appended = durable = 0;
+	}
+
+	/**
+	 * Closes this {@code LogManager} after making all of the {@code LogRecord}s durable.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void close() throws IOException {
+		commit();
+		for (FileChannel c : segments.values())
+			c.close();
+		segments.clear();
+	}
+
+	/**
+	 * Writes the specified bytes at the specified position in the log and then forces them to the storage device.
+	 * 
+	 * @param b
+	 *            a byte array
+	 * @param position
+	 *            the position (i.e., LSN) at which the bytes are written
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void write(byte[] b, long position) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(b);
+		List<FileChannel> written = new ArrayList<FileChannel>(2);
+		while (buf.hasRemaining()) {
+			long k = position / segmentSize;
+			FileChannel c = segment(k);
+			long offset = position - k * segmentSize;
+			buf.limit((int) Math.min(b.length, buf.position() + segmentSize - offset));
+			position += c.write(buf, offset);
+			buf.limit(b.length);
+			if (!written.contains(c))
+				written.add(c);
+		}
+		for (FileChannel c : written)
+			c.force(false);
+	}
+
+	/**
+	 * Returns a {@code FileChannel} for accessing the specified log segment (creating the segment if needed).
+	 * 
+	 * @param k
+	 *            the index of a log segment
+	 * @return a {@code FileChannel} for accessing the specified log segment
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	synchronized FileChannel segment(long k) throws IOException {
+		FileChannel c = segments.get(k);
+		if (c == null) {
+			c = FileChannel.open(Paths.get(name + "." + k), StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			segments.put(k, c);
+		}
+		return c;
+	}
+
+	/**
+	 * A {@code LogInputStream} reads the durable part of the log sequentially across log segments.
+	 * 
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	class LogInputStream extends InputStream {
+
+		/**
+		 * The LSN of the next byte to read.
+		 */
+		long position;
+
+		/**
+		 * Constructs a {@code LogInputStream}.
+		 * 
+		 * @param position
+		 *            the LSN of the first byte to read
+		 */
+		LogInputStream(long position) {
+			this.position = position;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long k = position / segmentSize;
+			FileChannel c;
+			long end;
+			synchronized (LogManager.this) {
+				c = segments.get(k);
+				end = durable;
+			}
+			if (c == null || position >= end)
+				return -1;
+			len = (int) Math.min(len, Math.min(end - position, (k + 1) * segmentSize - position));
+			int n = c.read(ByteBuffer.wrap(b, off, len), position - k * segmentSize);
+			if (n > 0)
+				position += n;
+			return n;
+		}
+
+	}
+
+	/**
+	 * Waits on the monitor of the specified object.
+	 * 
+	 * @param o
+	 *            an object whose monitor is owned by the current thread
+	 * @throws IOException
+	 *             if the current thread is interrupted
+	 */
+	static void wait(Object o) throws IOException {
+		try {
+			o.wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new java.io.InterruptedIOException();
+		}
+	}
+
+	/**
+	 * A {@code LogRecord} describes a modification of a file.
+	 * 
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	public static class LogRecord {
+
+		/**
+		 * The type of {@code LogRecord}s describing modifications of {@code SlottedPage}s.
+		 */
+		public static final byte UPDATE = 1;
+
+		/**
+		 * The type of {@code LogRecord}s describing truncations of files.
+		 */
+		public static final byte TRUNCATE = 2;
+
+		/**
+		 * The type of this {@code LogRecord}.
+		 */
+		byte type;
+
+		/**
+		 * The ID of the file.
+		 */
+		int fileID;
+
+		/**
+		 * The ID of the {@code SlottedPage} (the number of remaining {@code SlottedPage}s in case of truncation).
+		 */
+		int pageID;
+
+		/**
+		 * The offset of the modified bytes within the {@code SlottedPage}.
+		 */
+		int offset;
+
+		/**
+		 * The modified bytes.
+		 */
+		byte[] data;
+
+		/**
+		 * Constructs a {@code LogRecord}.
+		 * 
+		 * @param type
+		 *            the type of the {@code LogRecord}
+		 * @param fileID
+		 *            the ID of the file
+		 * @param pageID
+		 *            the ID of the {@code SlottedPage} (the number of remaining {@code SlottedPage}s in case of
+		 *            truncation)
+		 * @param offset
+		 *            the offset of the modified bytes within the {@code SlottedPage}
+		 * @param data
+		 *            the modified bytes
+		 */
+		public LogRecord(byte type, int fileID, int pageID, int offset, byte[] data) {
+			this.type = type;
+			this.fileID = fileID;
+			this.pageID = pageID;
+			this.offset = offset;
+			this.data = data;
+		}
+
+		/**
+		 * Constructs a {@code LogRecord} that describes the specified modified byte range of the specified
+		 * {@code SlottedPage} (one {@code LogRecord} is needed for each modified byte range).
+		 * 
+		 * @param fileID
+		 *            the ID of the file containing the {@code SlottedPage}
+		 * @param p
+		 *            a {@code SlottedPage}
+		 * @param range
+		 *            the index of a modified byte range of the {@code SlottedPage}
+		 */
+		public LogRecord(int fileID, SlottedPage p, int range) {
+			this(UPDATE, fileID, p.pageID(), p.modifiedFrom(range),
+					java.util.Arrays.copyOfRange(p.data(), p.modifiedFrom(range), p.modifiedTo(range)));
+		}
+
+		@Override
+		public String toString() {
+			return "{type:" + type + ", fileID:" + fileID + ", pageID:" + pageID + ", offset:" + offset + ", length:"
+					+ (data == null ? 0 : data.length) + "}";
+		}
+
+		/**
+		 * Returns the type of this {@code LogRecord}.
+		 * 
+		 * @return the type of this {@code LogRecord}
+		 */
+		public byte type() {
+			return type;
+		}
+
+		/**
+		 * Returns the ID of the file modified by this {@code LogRecord}.
+		 * 
+		 * @return the ID of the file modified by this {@code LogRecord}
+		 */
+		public int fileID() {
+			return fileID;
+		}
+
+		/**
+		 * Returns the ID of the {@code SlottedPage} modified by this {@code LogRecord} (the number of remaining
+		 * {@code SlottedPage}s in case of truncation).
+		 * 
+		 * @return the ID of the {@code SlottedPage} modified by this {@code LogRecord}
+		 */
+		public int pageID() {
+			return pageID;
+		}
+
+		/**
+		 * Applies this {@code LogRecord} to the specified {@code SlottedPage}.
+		 * 
+		 * @param p
+		 *            a {@code SlottedPage}
+		 */
+		public void apply(SlottedPage p) {
+			System.arraycopy(data, 0, p.data(), offset, data.length);
+		}
+
+		/**
+		 * Returns a byte array representing this {@code LogRecord} ({@code length, type, fileID, pageID, offset,
+		 * data, checksum}).
+		 * 
+		 * @return a byte array representing this {@code LogRecord}
+		 */
+		byte[] toByteArray() {
+			int length = data == null ? 0 : data.length;
+			ByteArrayOutputStream b = new ByteArrayOutputStream(length + 25);
+			DataOutputStream out = new DataOutputStream(b);
+			try {
+				out.writeInt(length);
+				out.writeByte(type);
+				out.writeInt(fileID);
+				out.writeInt(pageID);
+				out.writeInt(offset);
+				if (length > 0)
+					out.write(data);
+				CRC32 crc = new CRC32();
+				crc.update(b.toByteArray());
+				out.writeInt((int) crc.getValue());
+			} catch (IOException e) { // cannot happen
+				throw new IllegalStateException(e);
+			}
+			return b.toByteArray();
+		}
+
+		/**
+		 * Reads a {@code LogRecord} from the specified {@code DataInputStream}.
+		 * 
+		 * @param in
+		 *            a {@code DataInputStream}
+		 * @return the {@code LogRecord} read; {@code null} if the end of the log or an incomplete/corrupted
+		 *         {@code LogRecord} is reached
+		 */
+		static LogRecord read(DataInputStream in) {
+			try {
+				int length = in.readInt();
+				if (length < 0 || length > (1 << 26))
+					return null;
+				byte type = in.readByte();
+				int fileID = in.readInt();
+				int pageID = in.readInt();
+				int offset = in.readInt();
+				byte[] data = new byte[length];
+				in.readFully(data);
+				int checksum = in.readInt();
+				LogRecord r = new LogRecord(type, fileID, pageID, offset, data);
+				byte[] b = r.toByteArray();
+				if (ByteBuffer.wrap(b, b.length - Integer.BYTES, Integer.BYTES).getInt() != checksum)
+					return null;
+				return r;
+			} catch (EOFException e) {
+				return null;
+			} catch (IOException e) {
+				return null;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,29 @@
+package storage;
+
+/**
+ * A {@code PageFormat} creates the {@code SlottedPage}s of a file (see
+ * {@link FileManager#setPageFormat(int, PageFormat)}). Each format is a subclass of {@code SlottedPage} that
+ * interprets the byte array of a page in its own way, so pages of any format are buffered, logged, and written by the
+ * {@code FileManager} in the same way.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public interface PageFormat {
+
+	/**
+	 * The default {@code PageFormat}, which stores objects of possibly different sizes (see {@link SlottedPage}).
+	 */
+	PageFormat SLOTTED = SlottedPage::new;
+
+	/**
+	 * Creates an empty {@code SlottedPage} (whose byte array may then be overwritten with data read from a file).
+	 *
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param size
+	 *            the size (in bytes) of the {@code SlottedPage}
+	 * @return an empty {@code SlottedPage}
+	 */
+	SlottedPage newPage(int pageID, int size);
+
+}
@@ -0,0 +1,197 @@
+package storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A {@code PageTrace} records accesses to {@code SlottedPage}s in a compact binary file (see
+ * {@link FileManager#startTrace(String)}). Each access is stored as three variable-length integers: the time elapsed
+ * (in nanoseconds) since the previous access, the file ID combined with a flag indicating whether or not the access is
+ * a write, and the page ID. A typical access thus takes 4 to 8 bytes. A trace can be replayed using
+ * {@link #replay(String, Listener)} (e.g., by a {@code BufferSimulator}).
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class PageTrace {
+
+	/**
+	 * The magic number at the beginning of each trace file.
+	 */
+	static final int MAGIC = 0x50545243; // "PTRC"
+
+	/**
+	 * The output stream for writing the trace.
+	 */
+	DataOutputStream out;
+
+	/**
+	 * The time (obtained from {@code System.nanoTime()}) at which the trace started.
+	 */
+	long start;
+
+	/**
+	 * The time (in nanoseconds since the start of the trace) of the last access recorded.
+	 */
+	long last = 0;
+
+	/**
+	 * The number of accesses recorded.
+	 */
+	long count = 0;
+
+	/**
+	 * Constructs a {@code PageTrace} that records accesses in the specified file.
+	 *
+	 * @param name
+	 *            the name of the trace file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public PageTrace(String name) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(name), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeLong(System.currentTimeMillis());
+		start = System.nanoTime();
+	}
+
+	/**
+	 * Records an access to the specified {@code SlottedPage}.
+	 *
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param write
+	 *            {@code true} if the {@code SlottedPage} is updated; {@code false} if it is read
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void record(int fileID, int pageID, boolean write) throws IOException {
+		long time = System.nanoTime() - start;
+		writeVarLong(out, Math.max(0, time - last));
+		last = Math.max(last, time);
+		writeVarLong(out, ((fileID & 0xffffffffL) << 1) | (write ? 1 : 0));
+		writeVarLong(out, pageID & 0xffffffffL);
+		count++;
+	}
+
+	/**
+	 * Returns the number of accesses recorded.
+	 *
+	 * @return the number of accesses recorded
+	 */
+	public synchronized long count() {
+		return count;
+	}
+
+	/**
+	 * Closes this {@code PageTrace} after writing all of the recorded accesses to the trace file.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Replays the accesses recorded in the specified trace file.
+	 *
+	 * @param name
+	 *            the name of the trace file
+	 * @param listener
+	 *            the {@code Listener} to notify of each access
+	 * @return the number of accesses replayed
+	 * @throws IOException
+	 *             if an I/O error occurs or the file is not a trace file
+	 */
+	public static long replay(String name, Listener listener) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(name), 1 << 16))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(name + " is not a page trace");
+			in.readLong(); // the wall-clock time at which the trace started
+			long time = 0;
+			long count = 0;
+			while (true) {
+				long delta;
+				try {
+					delta = readVarLong(in);
+				} catch (EOFException e) {
+					return count;
+				}
+				time += delta;
+				long v = readVarLong(in);
+				listener.access(time, (int) (v >>> 1), (int) readVarLong(in), (v & 1) == 1);
+				count++;
+			}
+		}
+	}
+
+	/**
+	 * Writes the specified non-negative value using 7 bits per byte (the most significant bit of each byte indicates
+	 * whether or not more bytes follow).
+	 *
+	 * @param out
+	 *            a {@code DataOutputStream}
+	 * @param v
+	 *            a non-negative value
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static void writeVarLong(DataOutputStream out, long v) throws IOException {
+		while ((v & ~0x7FL) != 0) {
+			out.write((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.write((int) v);
+	}
+
+	/**
+	 * Reads a value written by {@link #writeVarLong(DataOutputStream, long)}.
+	 *
+	 * @param in
+	 *            a {@code DataInputStream}
+	 * @return the value read
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static long readVarLong(DataInputStream in) throws IOException {
+		long v = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.readUnsignedByte();
+			v |= ((long) (b & 0x7F)) << shift;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+	}
+
+	/**
+	 * A {@code Listener} is notified of each access replayed from a trace.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	public interface Listener {
+
+		/**
+		 * Is invoked for each access replayed from a trace.
+		 *
+		 * @param time
+		 *            the time (in nanoseconds since the start of the trace) of the access
+		 * @param fileID
+		 *            the ID of the file containing the accessed {@code SlottedPage}
+		 * @param pageID
+		 *            the ID of the accessed {@code SlottedPage}
+		 * @param write
+		 *            {@code true} if the {@code SlottedPage} was updated; {@code false} if it was read
+		 */
+		void access(long time, int fileID, int pageID, boolean write);
+
+	}
+
+}
@@ -0,0 +1,251 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code PaxPage} stores records that conform to a declared schema using the PAX (Partition Attributes Across)
+ * layout: within each page, the values of each field are stored contiguously in a mini-column, so the value of field
+ * {@code j} in the record at index {@code i} is located at {@code column(j) + i * width(j)}. Each record is an
+ * {@code Object[]} containing one value per field. A scan that needs only a few fields can decode the corresponding
+ * mini-columns into primitive arrays in bulk (e.g., {@link #ints(int)}) without touching the other fields or
+ * materializing records. As in a {@code FixedLengthPage}, an occupancy bitmap marks the indices whose records have
+ * not been removed (see {@link #isOccupied(int)}). A file of {@code PaxPage}s can be used through the
+ * {@code FileManager} API after {@link FileManager#setPageFormat(int, PageFormat)} is invoked with
+ * {@link #format(Type...)}, and its pages can be scanned using {@link FileManager#pageIterator(int)}.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class PaxPage extends FixedLengthPage {
+
+	/**
+	 * The types of the fields in a schema.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	public enum Type {
+
+		/**
+		 * A field of {@code Integer}s.
+		 */
+		INT(Integer.BYTES),
+
+		/**
+		 * A field of {@code Long}s.
+		 */
+		LONG(Long.BYTES),
+
+		/**
+		 * A field of {@code Double}s.
+		 */
+		DOUBLE(Double.BYTES);
+
+		/**
+		 * The width (in bytes) of each value of this {@code Type}.
+		 */
+		final int width;
+
+		/**
+		 * Constructs a {@code Type}.
+		 *
+		 * @param width
+		 *            the width (in bytes) of each value of the {@code Type}
+		 */
+		Type(int width) {
+			this.width = width;
+		}
+
+	}
+
+	/**
+	 * The schema (the types of the fields) of the records in this {@code PaxPage}.
+	 */
+	Type[] schema;
+
+	/**
+	 * The offset of the mini-column of each field in the byte array of this {@code PaxPage}.
+	 */
+	int[] columns;
+
+	/**
+	 * Constructs a {@code PaxPage}.
+	 *
+	 * @param pageID
+	 *            the ID of the {@code PaxPage}
+	 * @param size
+	 *            the size (in bytes) of the {@code PaxPage}
+	 * @param schema
+	 *            the types of the fields of records
+	 */
+	public PaxPage(int pageID, int size, Type... schema) {
+		super(pageID, size, width(schema), null);
+		this.schema = schema.clone();
+		columns = new int[schema.length];
+		int offset = start;
+		for (int j = 0; j < schema.length; j++) {
+			columns[j] = offset;
+			offset += capacity * schema[j].width;
+		}
+	}
+
+	/**
+	 * Returns a {@code PageFormat} that creates {@code PaxPage}s.
+	 *
+	 * @param schema
+	 *            the types of the fields of records
+	 * @return a {@code PageFormat} that creates {@code PaxPage}s
+	 */
+	public static PageFormat format(Type... schema) {
+		Type[] s = schema.clone();
+		return (pageID, size) -> new PaxPage(pageID, size, s);
+	}
+
+	/**
+	 * Returns the values of the specified {@link Type#INT} field for the indices from 0 to {@link #entryCount()}
+	 * (exclusive), including the stale values at the indices of removed records.
+	 *
+	 * @param field
+	 *            the index of a field
+	 * @return the values of the specified field
+	 */
+	public int[] ints(int field) {
+		int[] values = new int[entryCount()];
+		column(field, Type.INT).asIntBuffer().get(values);
+		return values;
+	}
+
+	/**
+	 * Returns the values of the specified {@link Type#LONG} field for the indices from 0 to {@link #entryCount()}
+	 * (exclusive), including the stale values at the indices of removed records.
+	 *
+	 * @param field
+	 *            the index of a field
+	 * @return the values of the specified field
+	 */
+	public long[] longs(int field) {
+		long[] values = new long[entryCount()];
+		column(field, Type.LONG).asLongBuffer().get(values);
+		return values;
+	}
+
+	/**
+	 * Returns the values of the specified {@link Type#DOUBLE} field for the indices from 0 to {@link #entryCount()}
+	 * (exclusive), including the stale values at the indices of removed records.
+	 *
+	 * @param field
+	 *            the index of a field
+	 * @return the values of the specified field
+	 */
+	public double[] doubles(int field) {
+		double[] values = new double[entryCount()];
+		column(field, Type.DOUBLE).asDoubleBuffer().get(values);
+		return values;
+	}
+
+	/**
+	 * Writes the fields of the specified record to the mini-columns at the specified index and marks the index as
+	 * occupied. All of the fields are encoded before this {@code PaxPage} is modified, so a record that does not
+	 * conform to the schema leaves the {@code PaxPage} unchanged.
+	 *
+	 * @param index
+	 *            an index
+	 * @param o
+	 *            a record (an {@code Object[]} containing one value per field)
+	 * @throws IOException
+	 *             if the record does not conform to the schema
+	 */
+	@Override
+	void write(int index, Object o) throws IOException {
+		if (!(o instanceof Object[]) || ((Object[]) o).length != schema.length)
+			throw new IOException("a record must be an array of " + schema.length + " values");
+		Object[] r = (Object[]) o;
+		ByteBuffer b = ByteBuffer.allocate(length);
+		try {
+			for (int j = 0; j < schema.length; j++)
+				switch (schema[j]) {
+				case INT:
+					b.putInt((Integer) r[j]);
+					break;
+				case LONG:
+					b.putLong((Long) r[j]);
+					break;
+				case DOUBLE:
+					b.putDouble((Double) r[j]);
+					break;
+				}
+		} catch (ClassCastException | NullPointerException e) {
+			throw new IOException("a record does not conform to the schema", e);
+		}
+		int position = 0;
+		for (int j = 0; j < schema.length; j++) {
+			int offset = columns[j] + index * schema[j].width;
+			System.arraycopy(b.array(), position, data, offset, schema[j].width);
+			modified(offset, offset + schema[j].width);
+			position += schema[j].width;
+		}
+		setOccupied(index, true);
+	}
+
+	/**
+	 * Reads the record at the specified index from the mini-columns.
+	 *
+	 * @param index
+	 *            an index
+	 * @return the record at the specified index (an {@code Object[]} containing one value per field)
+	 */
+	@Override
+	Object read(int index) {
+		ByteBuffer b = ByteBuffer.wrap(data);
+		Object[] r = new Object[schema.length];
+		for (int j = 0; j < schema.length; j++) {
+			int offset = columns[j] + index * schema[j].width;
+			switch (schema[j]) {
+			case INT:
+				r[j] = b.getInt(offset);
+				break;
+			case LONG:
+				r[j] = b.getLong(offset);
+				break;
+			case DOUBLE:
+				r[j] = b.getDouble(offset);
+				break;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Returns a {@code ByteBuffer} over the occupied part (up to {@link #entryCount()}) of the mini-column of the
+	 * specified field.
+	 *
+	 * @param field
+	 *            the index of a field
+	 * @param type
+	 *            the expected type of the field
+	 * @return a {@code ByteBuffer} over the occupied part of the mini-column of the specified field
+	 * @throws IllegalArgumentException
+	 *             if the field is not of the expected type
+	 */
+	ByteBuffer column(int field, Type type) {
+		if (schema[field] != type)
+			throw new IllegalArgumentException("field " + field + " is of type " + schema[field]);
+		return ByteBuffer.wrap(data, columns[field], entryCount() * type.width).slice();
+	}
+
+	/**
+	 * Returns the width (in bytes) of records that conform to the specified schema.
+	 *
+	 * @param schema
+	 *            the types of the fields of records
+	 * @return the width (in bytes) of records that conform to the specified schema
+	 */
+	static int width(Type... schema) {
+		if (schema.length == 0)
+			throw new IllegalArgumentException("a schema must have at least one field");
+		int width = 0;
+		for (Type t : schema)
+			width += t.width;
+		return width;
+	}
+
+}
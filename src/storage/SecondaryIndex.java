@@ -0,0 +1,229 @@
+package storage;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A {@code SecondaryIndex} associates the values of an attribute of the objects in a file with the locations of those
+ * objects. The attribute is defined by an extractor function (objects for which the function returns {@code null} are
+ * not indexed). A {@code SecondaryIndex} is created by {@link FileManager#createIndex(int, int, Function)} and is then
+ * maintained by {@link FileManager#add(int, Object)}, {@link FileManager#put(int, Long, Object)},
+ * {@link FileManager#remove(int, Long)}, and {@link FileManager#addAll(int, Iterator, double)} while they hold the
+ * lock on the {@code FileManager}, so the index updates are logged together with the data update and made durable by
+ * the same log force. The entries are stored in a {@code BPlusTree} whose keys combine each attribute value with a
+ * location (so that many objects can share the same attribute value). Since the original locations of objects remain
+ * valid when objects are moved (see {@link ForwardingTable}), the entries are not affected by relocation or
+ * {@link FileManager#vacuum(int, int)}.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ * @param <A>
+ *            the type of attribute values
+ */
+public class SecondaryIndex<A extends Comparable<? super A>> {
+
+	/**
+	 * The {@code FileManager} that manages the indexed file and the index file.
+	 */
+	FileManager m;
+
+	/**
+	 * The ID of the indexed file.
+	 */
+	int fileID;
+
+	/**
+	 * The function that extracts the attribute value from each object.
+	 */
+	Function<Object, ? extends A> extractor;
+
+	/**
+	 * The {@code BPlusTree} storing the entries of this {@code SecondaryIndex}.
+	 */
+	BPlusTree<Key> tree;
+
+	/**
+	 * Constructs a {@code SecondaryIndex}.
+	 *
+	 * @param m
+	 *            the {@code FileManager} that manages the indexed file and the index file
+	 * @param fileID
+	 *            the ID of the indexed file
+	 * @param indexFileID
+	 *            the ID of the index file
+	 * @param extractor
+	 *            the function that extracts the attribute value from each object
+	 */
+	SecondaryIndex(FileManager m, int fileID, int indexFileID, Function<Object, ? extends A> extractor) {
+		this.m = m;
+		this.fileID = fileID;
+		this.extractor = extractor;
+		this.tree = new BPlusTree<Key>(m, indexFileID);
+	}
+
+	/**
+	 * Returns the locations of the objects whose attribute values are equal to the specified value.
+	 *
+	 * @param value
+	 *            an attribute value
+	 * @return the locations of the objects whose attribute values are equal to the specified value (in ascending
+	 *         order)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public List<Long> lookup(A value) throws IOException {
+		return range(value, true, value, true);
+	}
+
+	/**
+	 * Returns the locations of the objects whose attribute values are in the specified range (in the order of
+	 * attribute values).
+	 *
+	 * @param from
+	 *            the lower bound (inclusive) of the range
+	 * @param to
+	 *            the upper bound (exclusive) of the range
+	 * @return the locations of the objects whose attribute values are in the specified range
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public List<Long> range(A from, A to) throws IOException {
+		return range(from, true, to, false);
+	}
+
+	/**
+	 * Returns the locations of the objects whose attribute values are in the specified range.
+	 *
+	 * @param from
+	 *            the lower bound of the range
+	 * @param fromInclusive
+	 *            {@code true} if the lower bound is inclusive
+	 * @param to
+	 *            the upper bound of the range
+	 * @param toInclusive
+	 *            {@code true} if the upper bound is inclusive
+	 * @return the locations of the objects whose attribute values are in the specified range
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	List<Long> range(A from, boolean fromInclusive, A to, boolean toInclusive) throws IOException {
+		List<Long> locations = new ArrayList<Long>();
+		synchronized (m) { // the entries are read consistently with concurrent updates
+			Key lower = new Key(from, fromInclusive ? Long.MIN_VALUE : Long.MAX_VALUE);
+			Key upper = new Key(to, toInclusive ? Long.MAX_VALUE : Long.MIN_VALUE);
+			Iterator<Map.Entry<Key, Long>> i = tree.range(lower, upper);
+			while (i.hasNext())
+				locations.add(i.next().getValue());
+		}
+		return locations;
+	}
+
+	/**
+	 * Updates this {@code SecondaryIndex} to reflect that the object at the specified location has changed (the
+	 * caller must hold the lock on the {@code FileManager}).
+	 *
+	 * @param location
+	 *            the location of the object
+	 * @param old
+	 *            the previous object at the location ({@code null} if none)
+	 * @param o
+	 *            the new object at the location ({@code null} if the object has been removed)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void update(long location, Object old, Object o) throws IOException {
+		A before = old == null ? null : extractor.apply(old);
+		A after = o == null ? null : extractor.apply(o);
+		if (before != null && after != null && before.compareTo(after) == 0)
+			return;
+		if (before != null)
+			tree.delete(new Key(before, location));
+		if (after != null)
+			tree.update(new Key(after, location), location);
+	}
+
+	/**
+	 * Builds this {@code SecondaryIndex} from the objects currently in the indexed file (the caller must hold the lock
+	 * on the {@code FileManager} and must have registered this {@code SecondaryIndex} on the indexed file). The
+	 * entries are inserted one {@code SlottedPage} of the indexed file at a time rather than collected and sorted in
+	 * memory, so the memory used does not grow with the size of the indexed file. The index updates for each
+	 * {@code SlottedPage} are made durable by a single log force.
+	 *
+	 * @param home
+	 *            the function that returns the original location of the object at each current location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void build(Function<Long, Long> home) throws IOException {
+		int size = m.size(fileID);
+		for (int pageID = 0; pageID < size; pageID++) {
+			SlottedPage p = m.page(fileID, pageID);
+			m.deferWrites(fileID);
+			try {
+				for (int i = p.skip(0); i < p.entryCount(); i = p.skip(i + 1)) {
+					A value = extractor.apply(FileManager.object(p, i));
+					if (value != null) {
+						long location = home.apply(m.concatenate(pageID, i));
+						tree.update(new Key(value, location), location);
+					}
+				}
+			} finally {
+				m.writeDeferred();
+			}
+		}
+	}
+
+	/**
+	 * A {@code Key} is an entry key of a {@code SecondaryIndex}, which combines an attribute value with a location.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	static class Key implements Comparable<Key>, Serializable {
+
+		/**
+		 * Automatically generated serial version UID.
+		 */
+		private static final long serialVersionUID = -4318640377524315507L;
+
+		/**
+		 * The attribute value.
+		 */
+		Comparable<Object> value;
+
+		/**
+		 * The location.
+		 */
+		long location;
+
+		/**
+		 * Constructs a {@code Key}.
+		 *
+		 * @param value
+		 *            an attribute value
+		 * @param location
+		 *            a location
+		 */
+		@SuppressWarnings("unchecked")
+		Key(Comparable<?> value, long location) {
+			this.value = (Comparable<Object>) value;
+			this.location = location;
+		}
+
+		@Override
+		public int compareTo(Key o) {
+			int c = value.compareTo(o.value);
+			return c != 0 ? c : Long.compare(location, o.location);
+		}
+
+		@Override
+		public String toString() {
+			return value + "@" + location;
+		}
+
+	}
+
+}
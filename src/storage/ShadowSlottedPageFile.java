@@ -0,0 +1,360 @@
+package storage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A {@code ShadowSlottedPageFile} stores {@code SlottedPage}s using shadow paging. The {@code SlottedPage} with ID
+ * {@code i} is stored at the physical position {@code table[i]}, where {@code table} is a page table. A
+ * {@code SlottedPage} is never overwritten in place. Each saved {@code SlottedPage} is written to a fresh physical
+ * position that the committed page table does not reference, and the page table is updated in memory. A commit then
+ * syncs the data and writes the new page table, tagged with an epoch number and a checksum, to the one of two page
+ * table files (e.g., "0.map0" and "0.map1" for "0.dat") that does not hold the current page table. When this
+ * {@code ShadowSlottedPageFile} is opened, the valid page table with the larger epoch becomes the root, so a commit
+ * takes effect atomically once its page table is durable. A crash before that point (or a torn page table) leaves
+ * the previous page table and the {@code SlottedPage}s it references intact. No write-ahead log is needed.
+ *
+ * {@link #save(SlottedPage)} and {@link #save(Collection)} write to fresh positions and only update the in-memory
+ * page table. The {@code SlottedPage}s saved since the last commit become durable together when {@link #commit()} is
+ * invoked (e.g., by a {@code FileManager} at the end of each update; see
+ * {@link FileManager#atomically(int, java.util.concurrent.Callable)} for grouping updates). Each commit costs two
+ * syncs and writes the whole page table (whose size grows with the number of {@code SlottedPage}s), so many small
+ * updates are best grouped into a batch. Outside a batch, {@link #truncate(int)} and {@link #clear()} are committed
+ * on their own. Between {@link #begin()} and {@link #commit()}, they are also only applied to the in-memory page
+ * table, so all of the updates in the batch become visible after a crash together or not at all. {@link #abort()}
+ * reverts to the committed page table. Fresh positions are allocated in ascending order from the lowest free
+ * position, so the {@code SlottedPage}s saved together are mostly written by sequential writes.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class ShadowSlottedPageFile extends SlottedPageFile {
+
+	/**
+	 * The magic number at the beginning of each page table file ("SPT" followed by 0).
+	 */
+	static final int TABLE_MAGIC = 0x53505400;
+
+	/**
+	 * The page table: the physical position of each {@code SlottedPage} (-1 if the {@code SlottedPage} has not been
+	 * written).
+	 */
+	int[] table = new int[16];
+
+	/**
+	 * The number of {@code SlottedPage}s in this {@code ShadowSlottedPageFile}.
+	 */
+	int count = 0;
+
+	/**
+	 * The committed page table.
+	 */
+	int[] committed = new int[0];
+
+	/**
+	 * The epoch of the committed page table.
+	 */
+	long epoch = 0;
+
+	/**
+	 * The physical positions that are referenced by the committed page table or have been allocated since the last
+	 * commit.
+	 */
+	BitSet used = new BitSet();
+
+	/**
+	 * The physical positions allocated since the last commit (which can be overwritten until the next commit).
+	 */
+	BitSet fresh = new BitSet();
+
+	/**
+	 * A flag indicating whether or not a batch is in progress.
+	 */
+	boolean batch = false;
+
+	/**
+	 * Constructs a {@code ShadowSlottedPageFile}. If the file exists but has no page table (e.g., it was created as a
+	 * plain {@code SlottedPageFile}), the identity page table is committed.
+	 *
+	 * @param name
+	 *            the system-dependent filename (e.g., "0.dat")
+	 * @param slottedPageSize
+	 *            the size (in bytes) of {@code SlottedPage}s
+	 * @throws FileNotFoundException
+	 *             if the specified file cannot be found/created
+	 * @throws IOException
+	 *             if an I/O error occurs or the file has a different format or page size
+	 */
+	public ShadowSlottedPageFile(String name, int slottedPageSize) throws FileNotFoundException, IOException {
+		super(name, slottedPageSize);
+		if (!load()) {
+			count = super.size();
+			table = new int[Math.max(16, count)];
+			for (int i = 0; i < count; i++)
+				table[i] = i;
+			commitTable();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "shadow paged " + super.toString();
+	}
+
+	/**
+	 * Returns the number of {@code SlottedPage}s in this {@code ShadowSlottedPageFile} (including those saved in the
+	 * current batch).
+	 *
+	 * @return the number of {@code SlottedPage}s in this {@code ShadowSlottedPageFile}
+	 */
+	@Override
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Begins a batch so that the following updates are committed together by {@link #commit()}.
+	 *
+	 * @throws IllegalStateException
+	 *             if a batch is already in progress
+	 */
+	public synchronized void begin() {
+		if (batch)
+			throw new IllegalStateException("a batch is already in progress on " + name);
+		batch = true;
+	}
+
+	/**
+	 * Commits the updates performed since the last commit (e.g., since {@link #begin()}) by atomically replacing the
+	 * committed page table.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void commit() throws IOException {
+		batch = false;
+		if (!fresh.isEmpty() || count != committed.length) // otherwise the committed page table is up to date
+			commitTable();
+	}
+
+	/**
+	 * Discards the updates performed since {@link #begin()} by reverting to the committed page table.
+	 */
+	public synchronized void abort() {
+		batch = false;
+		count = committed.length;
+		table = Arrays.copyOf(committed, Math.max(16, count));
+		reset();
+	}
+
+	@Override
+	public synchronized void clear() throws IOException {
+		count = 0;
+		if (!batch) {
+			commitTable();
+			super.truncate(0); // no position is referenced any more
+		}
+	}
+
+	@Override
+	public synchronized void truncate(int size) throws IOException {
+		if (size < count) {
+			count = size;
+			if (!batch)
+				commitTable();
+		}
+	}
+
+	@Override
+	public synchronized SlottedPage get(int pageID) throws IOException {
+		if (pageID < 0 || pageID >= count)
+			return null;
+		if (table[pageID] < 0) // never written
+			return newPage(pageID);
+		return read(table[pageID], pageID);
+	}
+
+	/**
+	 * Creates the specified number of consecutive {@code SlottedPage}s from this {@code ShadowSlottedPageFile},
+	 * starting with the specified page ID. The {@code SlottedPage}s stored at consecutive physical positions are read
+	 * by a single sequential read.
+	 *
+	 * @param pageID
+	 *            the ID of the first {@code SlottedPage} to create
+	 * @param n
+	 *            the maximum number of {@code SlottedPage}s to create
+	 * @return the {@code SlottedPage}s created from this {@code ShadowSlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public synchronized List<SlottedPage> get(int pageID, int n) throws IOException {
+		int end = Math.min(count, pageID + n);
+		List<SlottedPage> pages = new ArrayList<SlottedPage>(Math.max(0, end - pageID));
+		for (int start = pageID; start < end;) {
+			if (table[start] < 0) {
+				pages.add(newPage(start++));
+				continue;
+			}
+			int i = start + 1;
+			while (i < end && table[i] == table[i - 1] + 1)
+				i++;
+			pages.addAll(read(table[start], i - start, start, 1));
+			start = i;
+		}
+		return pages;
+	}
+
+	@Override
+	public synchronized void save(SlottedPage p) throws IOException {
+		write(position(p.pageID()), p);
+	}
+
+	/**
+	 * Saves the specified {@code SlottedPage}s to this {@code ShadowSlottedPageFile}. The {@code SlottedPage}s are
+	 * written to fresh physical positions in ascending order so that each run of consecutive positions is written by a
+	 * single sequential write.
+	 *
+	 * @param pages
+	 *            {@code SlottedPage}s
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public synchronized void save(Collection<SlottedPage> pages) throws IOException {
+		List<SlottedPage> sorted = new ArrayList<SlottedPage>(pages);
+		sorted.sort((p1, p2) -> Integer.compare(p1.pageID(), p2.pageID()));
+		Map<SlottedPage, Integer> positions = new IdentityHashMap<SlottedPage, Integer>();
+		for (SlottedPage p : sorted)
+			positions.put(p, position(p.pageID()));
+		sorted.sort((p1, p2) -> Integer.compare(positions.get(p1), positions.get(p2)));
+		write(sorted, p -> positions.get(p));
+	}
+
+	/**
+	 * Returns the physical position at which the specified {@code SlottedPage} is to be written, allocating a fresh
+	 * position unless the current one has been allocated since the last commit.
+	 *
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @return the physical position at which the specified {@code SlottedPage} is to be written
+	 */
+	int position(int pageID) {
+		if (pageID >= table.length)
+			table = Arrays.copyOf(table, Math.max(pageID + 1, table.length * 2));
+		for (; count <= pageID; count++)
+			table[count] = -1; // the pages skipped over (if any) have not been written
+		if (table[pageID] >= 0 && fresh.get(table[pageID]))
+			return table[pageID];
+		int position = used.nextClearBit(0);
+		used.set(position);
+		fresh.set(position);
+		table[pageID] = position;
+		return position;
+	}
+
+	/**
+	 * Makes the current page table the committed page table: syncs the data, writes the page table to the page table
+	 * file not holding the committed page table, and syncs that file. The positions that are no longer referenced
+	 * become free and the unreferenced space at the end of the file is released.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void commitTable() throws IOException {
+		super.sync(); // the pages must be durable before the page table referencing them
+		ByteBuffer b = ByteBuffer.allocate(20 + count * 4 + 8);
+		b.putInt(TABLE_MAGIC).putLong(epoch + 1).putInt(slottedPageSize).putInt(count);
+		for (int i = 0; i < count; i++)
+			b.putInt(table[i]);
+		CRC32 crc = new CRC32();
+		crc.update(b.array(), 0, b.position());
+		b.putLong(crc.getValue());
+		long start = System.nanoTime();
+		try (RandomAccessFile f = new RandomAccessFile(tableName(epoch + 1), "rw")) {
+			f.setLength(0);
+			f.write(b.array());
+			f.getChannel().force(true); // the new root
+		}
+		metrics.sync(start);
+		epoch++;
+		committed = Arrays.copyOf(table, count);
+		reset();
+		int end = used.length();
+		if (end < super.size())
+			super.truncate(end);
+	}
+
+	/**
+	 * Loads the valid page table with the larger epoch.
+	 *
+	 * @return {@code true} if a valid page table is found; {@code false} otherwise
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	boolean load() throws IOException {
+		int[] root = null;
+		for (int i = 0; i < 2; i++) {
+			File f = new File(tableName(i));
+			if (!f.exists())
+				continue;
+			ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(f.toPath()));
+			if (b.capacity() < 28 || b.getInt() != TABLE_MAGIC)
+				continue;
+			long e = b.getLong();
+			if (b.getInt() != slottedPageSize)
+				throw new IOException(f + " describes pages of a different size");
+			int n = b.getInt();
+			if (n < 0 || b.capacity() != 28 + n * 4L)
+				continue; // torn
+			CRC32 crc = new CRC32();
+			crc.update(b.array(), 0, b.capacity() - 8);
+			int[] t = new int[n];
+			b.asIntBuffer().get(t);
+			if (b.getLong(b.capacity() - 8) != crc.getValue() || root != null && e < epoch)
+				continue;
+			root = t;
+			epoch = e;
+		}
+		if (root == null)
+			return false;
+		committed = root;
+		abort();
+		return true;
+	}
+
+	/**
+	 * Marks exactly the positions referenced by the committed page table as used.
+	 */
+	void reset() {
+		used.clear();
+		fresh.clear();
+		for (int p : committed)
+			if (p >= 0)
+				used.set(p);
+	}
+
+	/**
+	 * Returns the name of the page table file for the specified epoch.
+	 *
+	 * @param epoch
+	 *            an epoch
+	 * @return the name of the page table file for the specified epoch
+	 */
+	String tableName(long epoch) {
+		int dot = name.lastIndexOf('.');
+		return (dot < 0 ? name : name.substring(0, dot)) + ".map" + (epoch & 1);
+	}
+
+}
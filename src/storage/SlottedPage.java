@@ -5,8 +5,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * A {@code SlottedPage} can store objects of possibly different sizes in a byte array.
@@ -25,6 +25,30 @@ public class SlottedPage implements Iterable<Object> {
 	 */
 	byte[] data;
 
+	/**
+	 * The maximum number of disjoint modified byte ranges tracked for each {@code SlottedPage} (the closest ranges are
+	 * merged beyond this number).
+	 */
+	static final int MAX_MODIFIED_RANGES = 4;
+
+	/**
+	 * The largest gap (in bytes) between two modified byte ranges that are merged into one (about the size of the
+	 * header and checksum of a log record, so logging the gap costs no more than logging the ranges separately).
+	 */
+	static final int MODIFIED_RANGE_GAP = 24;
+
+	/**
+	 * The disjoint byte ranges of this {@code SlottedPage} that have been modified since the last call to
+	 * {@link #resetModified()}, in ascending order (the beginning (inclusive) and end (exclusive) of each range).
+	 */
+	int[] modified = new int[2 * (MAX_MODIFIED_RANGES + 1)];
+
+	/**
+	 * The number of byte ranges of this {@code SlottedPage} that have been modified since the last call to
+	 * {@link #resetModified()}.
+	 */
+	int modifiedRanges = 0;
+
 	/**
 	 * Constructs a {@code SlottedPage}.
 	 * 
@@ -166,9 +190,10 @@ public class SlottedPage implements Iterable<Object> {
 		}
 		Object old = get(index);
 		byte[] b = toByteArray(o);
-		if (old != null && b.length <= toByteArray(old).length)
+		if (old != null && b.length <= toByteArray(old).length) {
 			System.arraycopy(b, 0, data, getLocation(index), b.length);
-		else
+			modified(getLocation(index), getLocation(index) + b.length);
+		} else
 			saveLocation(index, save(o));
 		return old;
 	}
@@ -211,66 +236,97 @@ public class SlottedPage implements Iterable<Object> {
 	@Override
 	public Iterator<Object> iterator() {
 		
-		class SlottedPageIterator<T> implements Iterator {
-			SlottedPage sp;
-			// store the current index and the count
-			int current = 0, count;
-
-			public SlottedPageIterator(SlottedPage sp) {
-				this.sp = sp;
-				count = sp.entryCount();
-			}
+		class SlottedPageIterator implements Iterator<Object> {
+			// the index of the next object to return (removed objects are skipped)
+			int current = skip(0);
 
 			@Override
 			public boolean hasNext() {
-				// check if there are more still to go
-				return (count > 0);
+				return current < entryCount();
 			}
 
 			@Override
 			public Object next() {
-				Object o = null; // initialize to null
-				while(o == null) { // if the object is null (first, or was removed)
-					try{
-						o = get(current++); // fetch the next one
-						count --; // mark it as removed
-					} catch(Exception e) {
-						e.printStackTrace();
-						throw new RuntimeException();
-					}
+				if (!hasNext())
+					throw new NoSuchElementException();
+				try {
+					Object o = get(current);
+					current = skip(current + 1);
+					return o;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
 				}
-				return o;
 			}
 		}
-		return new SlottedPageIterator<Object>(this);
-		//throw new UnsupportedOperationException();
+		return new SlottedPageIterator();
 	}
 
-	private static void p(String s) { System.out.println(s);}
+	/**
+	 * Returns the smallest index no smaller than the specified index at which an object is stored (the number of
+	 * entries if no such index).
+	 * 
+	 * @param index
+	 *            an index
+	 * @return the smallest index no smaller than the specified index at which an object is stored
+	 */
+	int skip(int index) {
+		while (index < entryCount() && getLocation(index) == -1)
+			index++;
+		return index;
+	}
 
-	
-	public ArrayList<Integer> removed_indexes = new ArrayList<>();
 	/**
-	 * Reorganizes this {@code SlottedPage} to maximize its free space.
+	 * Reorganizes this {@code SlottedPage} to maximize its free space. The objects that have not been removed are
+	 * moved (in the order of their indices) to the end of the byte array so that the space of removed objects is
+	 * reclaimed. The indices of the objects do not change.
 	 * 
 	 * @throws IOException
 	 *             if an I/O error occurs
-	 * @throws IndexOutOfBoundsException
 	 */
 	protected void compact() throws IOException {
-		// Go through each index we want to shift from the data start to the data end. That means 
-		for(int current_index = entryCount()-1; current_index > 0 ; current_index--) {
-			// If we've already compacted it, skip it and make sure it's a removed index
-			if(getLocation(current_index) == -1 && !removed_indexes.contains(current_index))
-			{ 
-				try {
-					// If we haven't, do the compact on the index
-					Sanity.doCompact(this, current_index);
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+		StorageEvents.Compaction event = new StorageEvents.Compaction();
+		event.begin();
+		int free = freeSpaceSize();
+		byte[] copy = data.clone();
+		int location = data.length - Integer.BYTES;
+		for (int i = 0; i < entryCount(); i++) {
+			int from = getLocation(i);
+			if (from != -1) {
+				int length = length(copy, from);
+				location -= length;
+				System.arraycopy(copy, from, data, location, length);
+				saveLocation(i, location);
 			}
 		}
+		setStartOfDataStorage(location);
+		modified(0, data.length); // objects may have been moved anywhere
+		if (event.shouldCommit()) {
+			event.pageID = pageID;
+			event.bytes = freeSpaceSize() - free;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes representing the object that begins at the specified offset in the specified byte
+	 * array.
+	 * 
+	 * @param b
+	 *            a byte array
+	 * @param offset
+	 *            the offset in the byte array of the first byte of the object
+	 * @return the number of bytes representing the object
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static int length(byte[] b, int offset) throws IOException {
+		ByteArrayInputStream in = new ByteArrayInputStream(b, offset, b.length - offset);
+		try {
+			new ObjectInputStream(in).readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+		return b.length - offset - in.available();
 	}
 
 
@@ -308,6 +364,7 @@ public class SlottedPage implements Iterable<Object> {
 		}
 		int location = startOfDataStorage() - b.length;
 		System.arraycopy(b, 0, data, location, b.length);
+		modified(location, location + b.length);
 		setStartOfDataStorage(location);
 		return location;
 	}
@@ -395,6 +452,100 @@ public class SlottedPage implements Iterable<Object> {
 		data[location + 1] = (byte) (value >>> 16);
 		data[location + 2] = (byte) (value >>> 8);
 		data[location + 3] = (byte) value;
+		modified(location, location + Integer.BYTES);
+	}
+
+	/**
+	 * Records that the specified byte range of this {@code SlottedPage} has been modified. The modified byte ranges
+	 * are kept apart (e.g., the entry count and slot in the header and the object near the end of the
+	 * {@code SlottedPage} after {@link #add(Object)}) so that they are logged without the unmodified bytes between
+	 * them.
+	 * 
+	 * @param from
+	 *            the beginning (inclusive) of the byte range
+	 * @param to
+	 *            the end (exclusive) of the byte range
+	 */
+	protected void modified(int from, int to) {
+		int i = modifiedRanges++;
+		for (; i > 0 && modified[2 * i - 2] > from; i--) { // keeps the ranges sorted by their beginnings
+			modified[2 * i] = modified[2 * i - 2];
+			modified[2 * i + 1] = modified[2 * i - 1];
+		}
+		modified[2 * i] = from;
+		modified[2 * i + 1] = to;
+		int n = 0; // merges the ranges that overlap or are separated by small gaps
+		for (int j = 1; j < modifiedRanges; j++)
+			if (modified[2 * j] - modified[2 * n + 1] <= MODIFIED_RANGE_GAP)
+				modified[2 * n + 1] = Math.max(modified[2 * n + 1], modified[2 * j + 1]);
+			else {
+				n++;
+				modified[2 * n] = modified[2 * j];
+				modified[2 * n + 1] = modified[2 * j + 1];
+			}
+		modifiedRanges = n + 1;
+		if (modifiedRanges > MAX_MODIFIED_RANGES) { // merges the two ranges separated by the smallest gap
+			int closest = 0;
+			for (int j = 1; j < modifiedRanges - 1; j++)
+				if (modified[2 * j + 2] - modified[2 * j + 1] < modified[2 * closest + 2] - modified[2 * closest + 1])
+					closest = j;
+			modified[2 * closest + 1] = modified[2 * closest + 3];
+			for (int j = closest + 1; j < modifiedRanges - 1; j++) {
+				modified[2 * j] = modified[2 * j + 2];
+				modified[2 * j + 1] = modified[2 * j + 3];
+			}
+			modifiedRanges--;
+		}
+	}
+
+	/**
+	 * Determines whether or not this {@code SlottedPage} has been modified since the last call to
+	 * {@link #resetModified()}.
+	 * 
+	 * @return {@code true} if this {@code SlottedPage} has been modified since the last call to
+	 *         {@link #resetModified()}; {@code false} otherwise
+	 */
+	boolean isModified() {
+		return modifiedRanges > 0;
+	}
+
+	/**
+	 * Returns the number of disjoint byte ranges of this {@code SlottedPage} that have been modified since the last
+	 * call to {@link #resetModified()}.
+	 * 
+	 * @return the number of disjoint byte ranges of this {@code SlottedPage} that have been modified
+	 */
+	int modifiedRanges() {
+		return modifiedRanges;
+	}
+
+	/**
+	 * Returns the beginning (inclusive) of the specified modified byte range of this {@code SlottedPage}.
+	 * 
+	 * @param range
+	 *            the index of a modified byte range (in ascending order)
+	 * @return the beginning (inclusive) of the specified modified byte range
+	 */
+	int modifiedFrom(int range) {
+		return modified[2 * range];
+	}
+
+	/**
+	 * Returns the end (exclusive) of the specified modified byte range of this {@code SlottedPage}.
+	 * 
+	 * @param range
+	 *            the index of a modified byte range (in ascending order)
+	 * @return the end (exclusive) of the specified modified byte range
+	 */
+	int modifiedTo(int range) {
+		return modified[2 * range + 1];
+	}
+
+	/**
+	 * Forgets the byte ranges of this {@code SlottedPage} that have been modified so far.
+	 */
+	void resetModified() {
+		modifiedRanges = 0;
 	}
 
 	/**
@@ -419,11 +570,19 @@ public class SlottedPage implements Iterable<Object> {
 	 *             if an I/O error occurs
 	 */
 	protected static byte[] toByteArray(Object o) throws IOException {
+		StorageEvents.Serialization event = new StorageEvents.Serialization();
+		event.begin();
 		ByteArrayOutputStream b = new ByteArrayOutputStream();
 		ObjectOutputStream out = new ObjectOutputStream(b);
 		out.writeObject(o);
 		out.flush();
-		return b.toByteArray();
+		byte[] bytes = b.toByteArray();
+		if (event.shouldCommit()) {
+			event.bytes = bytes.length;
+			event.objectClass = o == null ? null : o.getClass();
+			event.commit();
+		}
+		return bytes;
 	}
 
 	/**
@@ -441,7 +600,18 @@ public class SlottedPage implements Iterable<Object> {
 		try {
 			if (b == null)
 				return null;
-			return new ObjectInputStream(new ByteArrayInputStream(b, offset, b.length - offset)).readObject();
+			StorageEvents.Serialization event = new StorageEvents.Serialization();
+			event.begin();
+			ByteArrayInputStream in = new ByteArrayInputStream(b, offset, b.length - offset);
+			Object o = new ObjectInputStream(in).readObject();
+			if (event.shouldCommit()) {
+				event.pageID = pageID;
+				event.bytes = b.length - offset - in.available();
+				event.deserialization = true;
+				event.objectClass = o == null ? null : o.getClass();
+				event.commit();
+			}
+			return o;
 		} catch (IOException e) {
 			throw e;
 		} catch (Exception e) {
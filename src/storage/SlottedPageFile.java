@@ -4,9 +4,37 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
 
 /**
- * A {@code SlottedPageFile} represents a file consisting of {@code SlottedPage}s.
+ * A {@code SlottedPageFile} represents a file consisting of {@code SlottedPage}s. A {@code SlottedPageFile} can be
+ * accessed by multiple threads (e.g., a thread writing dirty pages in the background).
+ * 
+ * The first page of each file is a header page (superblock) that records a magic number, the format version, the size
+ * of {@code SlottedPage}s, the number of {@code SlottedPage}s in the file, and (if the file is a stripe of a
+ * {@code StripedSlottedPageFile}) the index of the stripe and the number of stripes, so the {@code SlottedPage} with ID
+ * {@code i} is stored at offset {@code (i + 1) * slottedPageSize}. The number of {@code SlottedPage}s is kept in
+ * memory (so that no system call is needed to find out the size of the file) and written back to the header page
+ * when the file is synced, truncated, or closed.
+ * 
+ * Space is preallocated in extents that grow geometrically (from 1 MB to 64 MB by default) so that appending a
+ * {@code SlottedPage} usually overwrites zero-filled space that is already allocated (rather than changing the length
+ * of the file). The number of {@code SlottedPage}s (the logical size) is therefore tracked separately from the length
+ * of the file (the physical size).
+ * 
+ * A file written before header pages were introduced (which stores the {@code SlottedPage} with ID {@code i} at offset
+ * {@code i * slottedPageSize}) is upgraded to this format when it is opened.
  * 
  * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
  */
@@ -18,29 +46,92 @@ public class SlottedPageFile {
 	String name;
 
 	/**
-	 * A {@code RandomAccessFile}
+	 * A {@code RandomAccessFile} ({@code null} while the file handle is released; see {@link #release()})
 	 */
 	RandomAccessFile file;
 
+	/**
+	 * The number of I/O operations that are being performed without holding the lock on this
+	 * {@code SlottedPageFile} (e.g., syncs).
+	 */
+	int inFlight = 0;
+
 	/**
 	 * The size (in bytes) of {@code SlottedPage}s.
 	 */
 	int slottedPageSize;
 
 	/**
-	 * The number of seeks performed so far.
+	 * The magic number at the beginning of each {@code SlottedPageFile} ("SPF" followed by 0).
+	 */
+	static final int MAGIC = 0x53504600;
+
+	/**
+	 * The version of the file format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * A buffer of zeros used to fill preallocated space.
+	 */
+	static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(1 << 20).asReadOnlyBuffer();
+
+	/**
+	 * The number of {@code SlottedPage}s in this {@code SlottedPageFile}.
 	 */
-	int seeks = 0;
+	int pageCount = 0;
 
 	/**
-	 * The number of {@code SlottedPage}s read.
+	 * The index of the stripe that this {@code SlottedPageFile} stores (see {@link StripedSlottedPageFile}).
 	 */
-	int reads = 0;
+	int stripe = 0;
 
 	/**
-	 * The number of {@code SlottedPage}s written.
+	 * The number of stripes of the logical file to which this {@code SlottedPageFile} belongs (0 if this
+	 * {@code SlottedPageFile} is not a stripe).
 	 */
-	int writes = 0;
+	int stripes = 0;
+
+	/**
+	 * The number of {@code SlottedPage}s for which space is allocated in the file (excluding the header page).
+	 */
+	int allocated = 0;
+
+	/**
+	 * The minimum size (in bytes) of each extent.
+	 */
+	int minExtent = 1 << 20;
+
+	/**
+	 * The maximum size (in bytes) of each extent (0 if no space is preallocated).
+	 */
+	int maxExtent = 1 << 26;
+
+	/**
+	 * A flag indicating whether or not {@link #pageCount} has changed since the header page was last written.
+	 */
+	boolean headerDirty = false;
+
+	/**
+	 * A flag indicating whether or not data has been written to the file since it was last forced to the storage
+	 * device.
+	 */
+	boolean unsynced = false;
+
+	/**
+	 * The ID of the file that this {@code SlottedPageFile} stores (-1 if unknown).
+	 */
+	int fileID = -1;
+
+	/**
+	 * The {@code IOMetrics} in which the I/O operations on this {@code SlottedPageFile} are recorded.
+	 */
+	IOMetrics metrics = new IOMetrics();
+
+	/**
+	 * The {@code PageFormat} that creates the {@code SlottedPage}s of this {@code SlottedPageFile}.
+	 */
+	PageFormat format = PageFormat.SLOTTED;
 
 	/**
 	 * Constructs a {@code SlottedPageFile}.
@@ -51,16 +142,87 @@ public class SlottedPageFile {
 	 *            the size (in bytes) of {@code SlottedPage}s
 	 * @throws FileNotFoundException
 	 *             if the specified file cannot be found/created
+	 * @throws IOException
+	 *             if an I/O error occurs or the file has a different format or page size
 	 */
-	public SlottedPageFile(String name, int slottedPageSize) throws FileNotFoundException {
+	public SlottedPageFile(String name, int slottedPageSize) throws FileNotFoundException, IOException {
 		this.name = name;
 		this.slottedPageSize = slottedPageSize;
-		file = new java.io.RandomAccessFile(name, "rw");
+		open();
+	}
+
+	/**
+	 * Constructs a {@code SlottedPageFile} that is not backed by a single physical file (used by subclasses such as
+	 * {@code StripedSlottedPageFile}).
+	 * 
+	 * @param name
+	 *            the name of the {@code SlottedPageFile}
+	 * @param slottedPageSize
+	 *            the size (in bytes) of {@code SlottedPage}s
+	 * @param file
+	 *            the {@code RandomAccessFile} backing the {@code SlottedPageFile} ({@code null} if none)
+	 */
+	protected SlottedPageFile(String name, int slottedPageSize, RandomAccessFile file) {
+		this.name = name;
+		this.slottedPageSize = slottedPageSize;
+		this.file = file;
 	}
 
 	@Override
 	public String toString() {
-		return "{name:" + name + ", reads:" + reads + ", writes:" + writes + "}";
+		return "{name:" + name + ", reads:" + metrics.getReads() + ", writes:" + metrics.getWrites() + "}";
+	}
+
+	/**
+	 * Returns the {@code IOMetrics} in which the I/O operations on this {@code SlottedPageFile} are recorded.
+	 * 
+	 * @return the {@code IOMetrics} in which the I/O operations on this {@code SlottedPageFile} are recorded
+	 */
+	public IOMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the {@code IOMetrics} in which the I/O operations on this {@code SlottedPageFile} are recorded (e.g., so
+	 * that the statistics of a file survive the file being cleared and reopened).
+	 * 
+	 * @param metrics
+	 *            an {@code IOMetrics}
+	 */
+	public void setMetrics(IOMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Sets the ID of the file that this {@code SlottedPageFile} stores (used to label the events emitted by this
+	 * {@code SlottedPageFile}).
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 */
+	void setFileID(int fileID) {
+		this.fileID = fileID;
+	}
+
+	/**
+	 * Sets the {@code PageFormat} that creates the {@code SlottedPage}s of this {@code SlottedPageFile}.
+	 * 
+	 * @param format
+	 *            a {@code PageFormat}
+	 */
+	void setPageFormat(PageFormat format) {
+		this.format = format;
+	}
+
+	/**
+	 * Creates an empty {@code SlottedPage} in the {@code PageFormat} of this {@code SlottedPageFile}.
+	 * 
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @return an empty {@code SlottedPage}
+	 */
+	SlottedPage newPage(int pageID) {
+		return format.newPage(pageID, slottedPageSize);
 	}
 
 	/**
@@ -70,8 +232,8 @@ public class SlottedPageFile {
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	public int size() throws IOException {
-		return (int) (file.length() / slottedPageSize);
+	public synchronized int size() throws IOException {
+		return pageCount;
 	}
 
 	/**
@@ -81,8 +243,70 @@ public class SlottedPageFile {
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	public void close() throws IOException {
+	public synchronized void close() throws IOException {
+		if (file != null) {
+			if (headerDirty)
+				writeHeader();
+			file.close();
+			file = null;
+		}
+	}
+
+	/**
+	 * Releases the file handle of this {@code SlottedPageFile} unless an I/O operation is in progress. The data written
+	 * so far is forced to the storage device first, so {@link #sync()} does not reopen the file. The in-memory
+	 * metadata (e.g., the number of {@code SlottedPage}s) is retained, and the file is reopened (without reading the
+	 * header page again) when it is accessed next.
+	 * 
+	 * @return {@code true} if the file handle is released (or has already been released); {@code false} if an I/O
+	 *         operation is in progress
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized boolean release() throws IOException {
+		if (file == null)
+			return true;
+		if (inFlight > 0)
+			return false;
+		if (headerDirty)
+			writeHeader();
+		if (unsynced) { // so that sync() need not reopen the file
+			long start = System.nanoTime();
+			file.getChannel().force(false);
+			metrics.sync(start);
+			unsynced = false;
+		}
 		file.close();
+		file = null;
+		return true;
+	}
+
+	/**
+	 * Sets the sizes of the extents in which space is preallocated. Each extent is as large as the space allocated so
+	 * far (i.e., the file size doubles), but no smaller than the specified minimum and no larger than the specified
+	 * maximum.
+	 * 
+	 * @param minExtent
+	 *            the minimum size (in bytes) of each extent (0 to let the extents of a small file start from a single
+	 *            {@code SlottedPage})
+	 * @param maxExtent
+	 *            the maximum size (in bytes) of each extent (0 to disable preallocation so that space is allocated
+	 *            one {@code SlottedPage} at a time)
+	 */
+	public synchronized void setExtents(int minExtent, int maxExtent) {
+		if (minExtent < 0 || maxExtent < minExtent)
+			throw new IllegalArgumentException("extents: " + minExtent + ", " + maxExtent);
+		this.minExtent = minExtent;
+		this.maxExtent = maxExtent;
+	}
+
+	/**
+	 * Returns the number of file handles that this {@code SlottedPageFile} uses while open.
+	 * 
+	 * @return the number of file handles that this {@code SlottedPageFile} uses while open
+	 */
+	public int handles() {
+		return 1;
 	}
 
 	/**
@@ -91,10 +315,62 @@ public class SlottedPageFile {
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	public void clear() throws IOException {
-		file.close();
+	public synchronized void clear() throws IOException {
+		if (file != null)
+			file.close();
 		new File(name).delete();
-		file = new java.io.RandomAccessFile(name, "rw");
+		open();
+	}
+
+	/**
+	 * Forces all of the data of this {@code SlottedPageFile} to be written to the storage device. Nothing is done if
+	 * no data has been written since the file was last forced (e.g., before its handle was released).
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void sync() throws IOException {
+		long start = System.nanoTime();
+		RandomAccessFile f;
+		synchronized (this) {
+			if (headerDirty)
+				writeHeader();
+			if (!unsynced)
+				return;
+			unsynced = false; // a write during the force marks the file again
+			f = handle();
+			inFlight++; // the handle must not be released while forcing
+		}
+		boolean forced = false;
+		try {
+			f.getChannel().force(false);
+			forced = true;
+		} finally {
+			synchronized (this) {
+				inFlight--;
+				if (!forced)
+					unsynced = true;
+			}
+		}
+		metrics.sync(start);
+	}
+
+	/**
+	 * Truncates this {@code SlottedPageFile} so that it contains at most the specified number of {@code SlottedPage}s.
+	 * 
+	 * @param size
+	 *            the maximum number of {@code SlottedPage}s that this {@code SlottedPageFile} can contain after
+	 *            truncation
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void truncate(int size) throws IOException {
+		if (size < pageCount) {
+			pageCount = size;
+			writeHeader(); // the header must not claim pages that no longer exist
+			handle().setLength((size + 1L) * slottedPageSize); // also releases the preallocated space
+			allocated = size;
+		}
 	}
 
 	/**
@@ -109,16 +385,24 @@ public class SlottedPageFile {
 	 *             if an I/O error occurs
 	 */
 	public SlottedPage get(int pageID) throws IOException {
-		if (pageID < 0)
-			return null;
-		long pos = ((long) pageID) * slottedPageSize;
-		if (pos + slottedPageSize > file.length())
-			return null;
-		seek(pos);
-		SlottedPage p = new SlottedPage(pageID, slottedPageSize);
-		file.read(p.data());
-		reads++;
-		return p;
+		return read(pageID, pageID);
+	}
+
+	/**
+	 * Creates the specified number of consecutive {@code SlottedPage}s from this {@code SlottedPageFile}, starting
+	 * with the specified page ID, using a single sequential read. Fewer {@code SlottedPage}s are returned if the end
+	 * of this {@code SlottedPageFile} is reached.
+	 * 
+	 * @param pageID
+	 *            the ID of the first {@code SlottedPage} to create
+	 * @param count
+	 *            the maximum number of {@code SlottedPage}s to create
+	 * @return the {@code SlottedPage}s created from this {@code SlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public List<SlottedPage> get(int pageID, int count) throws IOException {
+		return read(pageID, count, pageID, 1);
 	}
 
 	/**
@@ -130,9 +414,341 @@ public class SlottedPageFile {
 	 *             if an I/O error occurs
 	 */
 	public void save(SlottedPage p) throws IOException {
-		seek(p.pageID() * slottedPageSize);
+		write(p.pageID(), p);
+	}
+
+	/**
+	 * Saves the specified {@code SlottedPage}s to this {@code SlottedPageFile}. The {@code SlottedPage}s are sorted by
+	 * ID and each run of consecutive {@code SlottedPage}s is written by a single sequential write.
+	 * 
+	 * @param pages
+	 *            {@code SlottedPage}s
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void save(Collection<SlottedPage> pages) throws IOException {
+		List<SlottedPage> sorted = new ArrayList<SlottedPage>(pages);
+		sorted.sort((p1, p2) -> Integer.compare(p1.pageID(), p2.pageID()));
+		write(sorted, p -> p.pageID());
+	}
+
+	/**
+	 * Writes the specified {@code SlottedPage}s (sorted by position) so that each run of {@code SlottedPage}s at
+	 * consecutive positions is written by a single sequential write.
+	 * 
+	 * @param pages
+	 *            {@code SlottedPage}s sorted by position
+	 * @param position
+	 *            a function that returns the position (in pages) of each {@code SlottedPage} within this
+	 *            {@code SlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void write(List<SlottedPage> pages, ToIntFunction<SlottedPage> position) throws IOException {
+		int start = 0;
+		for (int i = 1; i <= pages.size(); i++)
+			if (i == pages.size() || position.applyAsInt(pages.get(i)) != position.applyAsInt(pages.get(i - 1)) + 1) {
+				write(position.applyAsInt(pages.get(start)), pages.subList(start, i));
+				start = i;
+			}
+	}
+
+	/**
+	 * Creates a {@code SlottedPage} with the specified page ID from the data stored at the specified position (in
+	 * pages) of this {@code SlottedPageFile} ({@code null} if no data is stored at that position).
+	 * 
+	 * @param position
+	 *            the position (in pages) of the data within this {@code SlottedPageFile}
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage} to create
+	 * @return a {@code SlottedPage} created from this {@code SlottedPageFile}; {@code null} if no data is stored at
+	 *         the specified position
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	synchronized SlottedPage read(int position, int pageID) throws IOException {
+		if (position < 0 || position >= pageCount)
+			return null;
+		long pos = (position + 1L) * slottedPageSize;
+		StorageEvents.PageRead event = new StorageEvents.PageRead();
+		event.begin();
+		long start = System.nanoTime();
+		seek(pos);
+		SlottedPage p = newPage(pageID);
+		file.readFully(p.data());
+		p.resetModified();
+		metrics.read(slottedPageSize, start);
+		if (event.shouldCommit()) {
+			event.fileID = fileID;
+			event.pageID = pageID;
+			event.bytes = slottedPageSize;
+			event.commit();
+		}
+		return p;
+	}
+
+	/**
+	 * Creates {@code SlottedPage}s from the data stored at the specified number of consecutive positions (in pages) of
+	 * this {@code SlottedPageFile}, starting at the specified position, using a single sequential read. Fewer
+	 * {@code SlottedPage}s are created if the end of this {@code SlottedPageFile} is reached.
+	 * 
+	 * @param position
+	 *            the position (in pages) of the first {@code SlottedPage} within this {@code SlottedPageFile}
+	 * @param count
+	 *            the maximum number of {@code SlottedPage}s to create
+	 * @param pageID
+	 *            the ID of the first {@code SlottedPage} to create
+	 * @param step
+	 *            the difference between the IDs of consecutive {@code SlottedPage}s
+	 * @return the {@code SlottedPage}s created from this {@code SlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	synchronized List<SlottedPage> read(int position, int count, int pageID, int step) throws IOException {
+		count = Math.min(count, pageCount - position);
+		if (position < 0 || count <= 0)
+			return new ArrayList<SlottedPage>(0);
+		if (count == 1)
+			return new ArrayList<SlottedPage>(Collections.singletonList(read(position, pageID)));
+		StorageEvents.PageRead event = new StorageEvents.PageRead();
+		event.begin();
+		long start = System.nanoTime();
+		seek((position + 1L) * slottedPageSize);
+		byte[] data = new byte[count * slottedPageSize];
+		file.readFully(data);
+		List<SlottedPage> pages = new ArrayList<SlottedPage>(count);
+		for (int i = 0; i < count; i++) {
+			SlottedPage p = newPage(pageID + i * step);
+			System.arraycopy(data, i * slottedPageSize, p.data(), 0, slottedPageSize);
+			p.resetModified();
+			pages.add(p);
+		}
+		metrics.read(data.length, start);
+		if (event.shouldCommit()) {
+			event.fileID = fileID;
+			event.pageID = pageID;
+			event.bytes = data.length;
+			event.commit();
+		}
+		return pages;
+	}
+
+	/**
+	 * Writes the specified {@code SlottedPage} at the specified position (in pages) of this {@code SlottedPageFile}.
+	 * 
+	 * @param position
+	 *            the position (in pages) within this {@code SlottedPageFile}
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	synchronized void write(int position, SlottedPage p) throws IOException {
+		StorageEvents.PageWrite event = new StorageEvents.PageWrite();
+		event.begin();
+		long start = System.nanoTime();
+		if (position >= allocated)
+			allocate(position + 1);
+		seek((position + 1L) * slottedPageSize);
 		file.write(p.data());
-		writes++;
+		unsynced = true;
+		if (position >= pageCount) {
+			pageCount = position + 1;
+			headerDirty = true;
+		}
+		metrics.write(slottedPageSize, start);
+		if (event.shouldCommit()) {
+			event.fileID = fileID;
+			event.pageID = p.pageID();
+			event.bytes = slottedPageSize;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Writes the specified {@code SlottedPage}s at consecutive positions (in pages) of this {@code SlottedPageFile},
+	 * starting at the specified position, using a single sequential write.
+	 * 
+	 * @param position
+	 *            the position (in pages) of the first {@code SlottedPage} within this {@code SlottedPageFile}
+	 * @param pages
+	 *            {@code SlottedPage}s
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	synchronized void write(int position, List<SlottedPage> pages) throws IOException {
+		if (pages.size() == 1) {
+			write(position, pages.get(0));
+			return;
+		}
+		StorageEvents.PageWrite event = new StorageEvents.PageWrite();
+		event.begin();
+		long start = System.nanoTime();
+		int end = position + pages.size();
+		if (end > allocated)
+			allocate(end);
+		byte[] data = new byte[pages.size() * slottedPageSize];
+		for (int i = 0; i < pages.size(); i++)
+			System.arraycopy(pages.get(i).data(), 0, data, i * slottedPageSize, slottedPageSize);
+		seek((position + 1L) * slottedPageSize);
+		file.write(data);
+		unsynced = true;
+		if (end > pageCount) {
+			pageCount = end;
+			headerDirty = true;
+		}
+		metrics.write(data.length, start);
+		if (event.shouldCommit()) {
+			event.fileID = fileID;
+			event.pageID = pages.get(0).pageID();
+			event.bytes = data.length;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Opens the file of this {@code SlottedPageFile}, writing a header page if the file is new and validating the
+	 * header page otherwise. A file without a header page (i.e., one written before header pages were introduced) is
+	 * upgraded first (see {@link #upgrade()}).
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs or the file has a different format or page size
+	 */
+	void open() throws IOException {
+		file = new java.io.RandomAccessFile(name, "rw");
+		long length = file.length();
+		allocated = (int) Math.max(0, length / slottedPageSize - 1);
+		if (length == 0) {
+			pageCount = 0;
+			writeHeader();
+			return;
+		}
+		try {
+			if (length < 16 || file.readInt() != MAGIC) {
+				if (length % slottedPageSize != 0)
+					throw new IOException(name + " is not a slotted page file");
+				file.close();
+				upgrade();
+				open();
+				return;
+			}
+			int version = file.readInt();
+			if (version != VERSION)
+				throw new IOException(name + " has an unsupported format version: " + version);
+			int size = file.readInt();
+			if (size != slottedPageSize)
+				throw new IOException(
+						name + " consists of " + size + "-byte pages (not " + slottedPageSize + "-byte pages)");
+			pageCount = file.readInt();
+			stripe = file.readInt();
+			stripes = file.readInt();
+			// pages appended after the header was last written (e.g., before a crash) are also counted
+			for (int i = allocated - 1; i >= pageCount; i--) {
+				file.seek((i + 2L) * slottedPageSize - 4); // the end of the page (never 0 once the page is written)
+				if (file.readInt() != 0) {
+					pageCount = i + 1;
+					break;
+				}
+			}
+			headerDirty = false;
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Upgrades the file of this {@code SlottedPageFile} which has no header page (i.e., stores the
+	 * {@code SlottedPage} with ID {@code i} at offset {@code i * slottedPageSize}) by writing a copy of the file
+	 * preceded by a header page and then atomically replacing the file with the copy, so a crash during the upgrade
+	 * leaves the original file intact. Since such a file does not record the size of its {@code SlottedPage}s, it must
+	 * be opened with the size it was written with.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void upgrade() throws IOException {
+		Path original = Paths.get(name);
+		Path copy = Paths.get(name + ".upgrade");
+		try (FileChannel in = FileChannel.open(original, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			long length = in.size();
+			pageCount = (int) (length / slottedPageSize);
+			ByteBuffer header = ByteBuffer.wrap(header());
+			while (header.hasRemaining())
+				out.write(header);
+			for (long position = 0; position < length;)
+				position += in.transferTo(position, length - position, out);
+			out.force(true);
+		}
+		Files.move(copy, original, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Preallocates zero-filled space in extents so that this {@code SlottedPageFile} can store at least the specified
+	 * number of {@code SlottedPage}s.
+	 * 
+	 * @param pages
+	 *            the number of {@code SlottedPage}s to accommodate
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void allocate(int pages) throws IOException {
+		FileChannel channel = handle().getChannel();
+		while (allocated < pages) {
+			long extent = Math.min(maxExtent, Math.max(minExtent, ((long) allocated) * slottedPageSize));
+			int n = (int) Math.max(pages - allocated, extent / slottedPageSize);
+			long position = (allocated + 1L) * slottedPageSize;
+			long end = position + ((long) n) * slottedPageSize;
+			while (position < end) {
+				ByteBuffer b = ZEROS.duplicate();
+				b.limit((int) Math.min(b.capacity(), end - position));
+				position += channel.write(b, position);
+			}
+			unsynced = true;
+			allocated += n;
+		}
+	}
+
+	/**
+	 * Writes the header page of this {@code SlottedPageFile}.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void writeHeader() throws IOException {
+		byte[] header = header();
+		seek(0);
+		file.write(header);
+		headerDirty = false;
+		unsynced = true;
+	}
+
+	/**
+	 * Returns the content of the header page of this {@code SlottedPageFile}.
+	 * 
+	 * @return the content of the header page of this {@code SlottedPageFile}
+	 */
+	byte[] header() {
+		byte[] header = new byte[slottedPageSize];
+		ByteBuffer.wrap(header).putInt(MAGIC).putInt(VERSION).putInt(slottedPageSize).putInt(pageCount).putInt(stripe)
+				.putInt(stripes);
+		return header;
+	}
+
+	/**
+	 * Returns the {@code RandomAccessFile} of this {@code SlottedPageFile}, reopening the file if its handle has been
+	 * released.
+	 * 
+	 * @return the {@code RandomAccessFile} of this {@code SlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	RandomAccessFile handle() throws IOException {
+		if (file == null)
+			file = new java.io.RandomAccessFile(name, "rw");
+		return file;
 	}
 
 	/**
@@ -145,9 +761,9 @@ public class SlottedPageFile {
 	 *             if an I/O error occurs.
 	 */
 	void seek(long pos) throws IOException {
-		if (pos != file.getFilePointer()) {
+		if (pos != handle().getFilePointer()) {
 			file.seek(pos);
-			seeks++;
+			metrics.seeks.increment();
 		}
 	}
 
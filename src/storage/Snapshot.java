@@ -0,0 +1,151 @@
+package storage;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@code Snapshot} provides iterators that see the files managed by a {@code FileManager} as of the time when the
+ * {@code Snapshot} was opened (see {@link FileManager#snapshot()}). While a {@code Snapshot} is open, the first
+ * modification of each {@code SlottedPage} after the latest {@code Snapshot} was opened saves a copy of the
+ * {@code SlottedPage} (copy-on-write), and the iterators of each {@code Snapshot} read the oldest copy saved after the
+ * {@code Snapshot} was opened (or the current {@code SlottedPage} if it has not been modified since then). Iterators
+ * hold the lock on the {@code FileManager} only while obtaining each {@code SlottedPage}, so long scans do not block
+ * writers and writers do not block scans. The copies are discarded when no open {@code Snapshot} needs them, so each
+ * {@code Snapshot} must be closed after use.
+ *
+ * Snapshots cover the updates performed by {@link FileManager#add(int, Object)},
+ * {@link FileManager#put(int, Long, Object)}, {@link FileManager#remove(int, Long)},
+ * {@link FileManager#addAll(int, Iterator, double)}, and {@link FileManager#vacuum(int, int)}, but not
+ * {@link FileManager#clear(int)}.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class Snapshot implements AutoCloseable {
+
+	/**
+	 * The {@code FileManager} that manages the files.
+	 */
+	FileManager m;
+
+	/**
+	 * The number of this {@code Snapshot} (snapshots opened later have larger numbers).
+	 */
+	long number;
+
+	/**
+	 * A map that associates the ID of each file with the number of {@code SlottedPage}s in that file when this
+	 * {@code Snapshot} was opened (recorded before the file is first updated after this {@code Snapshot} was opened).
+	 */
+	Map<Integer, Integer> sizes = new HashMap<Integer, Integer>();
+
+	/**
+	 * A flag indicating whether this {@code Snapshot} has been closed.
+	 */
+	boolean closed = false;
+
+	/**
+	 * Constructs a {@code Snapshot}.
+	 *
+	 * @param m
+	 *            the {@code FileManager} that manages the files
+	 * @param number
+	 *            the number of the {@code Snapshot}
+	 */
+	Snapshot(FileManager m, long number) {
+		this.m = m;
+		this.number = number;
+	}
+
+	@Override
+	public String toString() {
+		return "snapshot " + number;
+	}
+
+	/**
+	 * Returns an iterator over the objects that the specified file contained when this {@code Snapshot} was opened.
+	 *
+	 * @param fileID
+	 *            the ID of the file
+	 * @return an iterator over the objects that the specified file contained when this {@code Snapshot} was opened
+	 *         (which throws an {@code IllegalStateException} if this {@code Snapshot} is closed during the iteration)
+	 */
+	public Iterator<Object> iterator(int fileID) {
+		return new Iterator<Object>() {
+
+			/**
+			 * The ID of the next {@code SlottedPage} to read.
+			 */
+			int pageID = 0;
+
+			/**
+			 * An iterator over the objects in the current {@code SlottedPage}.
+			 */
+			Iterator<Object> objects = null;
+
+			@Override
+			public boolean hasNext() {
+				while (objects == null || !objects.hasNext()) {
+					SlottedPage p;
+					try {
+						synchronized (m) {
+							if (closed)
+								throw new IllegalStateException(Snapshot.this + " is closed");
+							if (pageID >= size(fileID))
+								return false;
+							p = m.page(Snapshot.this, fileID, pageID++);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					objects = p.iterator(); // objects are deserialized without holding the lock
+				}
+				return true;
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return objects.next();
+			}
+		};
+	}
+
+	/**
+	 * Closes this {@code Snapshot} so that the copies of {@code SlottedPage}s that only this {@code Snapshot} needs
+	 * are discarded.
+	 */
+	@Override
+	public void close() {
+		synchronized (m) {
+			if (!closed) {
+				closed = true;
+				m.release(this);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of {@code SlottedPage}s that the specified file contained when this {@code Snapshot} was
+	 * opened (the caller must hold the lock on the {@code FileManager}).
+	 *
+	 * @param fileID
+	 *            the ID of the file
+	 * @return the number of {@code SlottedPage}s that the specified file contained when this {@code Snapshot} was
+	 *         opened
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int size(int fileID) throws IOException {
+		Integer size = sizes.get(fileID);
+		if (size == null) { // the file has not been updated since this snapshot was opened
+			size = m.size(fileID);
+			sizes.put(fileID, size);
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,134 @@
+package storage;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * {@code StorageEvents} defines the Java Flight Recorder (JFR) events emitted by the {@code storage} package: page
+ * reads and writes ({@code SlottedPageFile}), compactions ({@code SlottedPage}), object serialization and
+ * deserialization ({@code SlottedPage}), and buffer evictions ({@code BufferedFileManager}). Each event records its
+ * duration together with the file ID, the page ID, and the number of bytes involved (-1 if unknown at the point where
+ * the event is emitted). The events are disabled unless a recording enables them, for example:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording:filename=storage.jfr,settings=profile ...
+ * jfr print --events storage.PageRead storage.jfr
+ * </pre>
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class StorageEvents {
+
+	/**
+	 * A {@code PageEvent} describes an operation on a {@code SlottedPage}.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	@Category({ "Storage" })
+	@StackTrace(false)
+	abstract static class PageEvent extends Event {
+
+		/**
+		 * The ID of the file containing the {@code SlottedPage} (-1 if unknown).
+		 */
+		@Label("File ID")
+		int fileID = -1;
+
+		/**
+		 * The ID of the {@code SlottedPage} (-1 if unknown).
+		 */
+		@Label("Page ID")
+		int pageID = -1;
+
+		/**
+		 * The number of bytes involved in the operation.
+		 */
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+	}
+
+	/**
+	 * A {@code PageRead} describes a {@code SlottedPage} read from a {@code SlottedPageFile}.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	@Name("storage.PageRead")
+	@Label("Page Read")
+	@Description("A page read from a data file")
+	static class PageRead extends PageEvent {
+	}
+
+	/**
+	 * A {@code PageWrite} describes a {@code SlottedPage} written to a {@code SlottedPageFile}.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	@Name("storage.PageWrite")
+	@Label("Page Write")
+	@Description("A page written to a data file")
+	static class PageWrite extends PageEvent {
+	}
+
+	/**
+	 * A {@code Compaction} describes the compaction of a {@code SlottedPage} (the number of bytes is the free space
+	 * gained).
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	@Name("storage.Compaction")
+	@Label("Page Compaction")
+	@Description("The compaction of a slotted page")
+	static class Compaction extends PageEvent {
+	}
+
+	/**
+	 * A {@code Serialization} describes the conversion of an object into bytes or vice versa.
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	@Name("storage.Serialization")
+	@Label("Object Serialization")
+	@Description("The serialization or deserialization of an object stored in a slotted page")
+	static class Serialization extends PageEvent {
+
+		/**
+		 * {@code true} for deserialization (bytes to an object); {@code false} for serialization.
+		 */
+		@Label("Deserialization")
+		boolean deserialization;
+
+		/**
+		 * The class of the object.
+		 */
+		@Label("Object Class")
+		Class<?> objectClass;
+
+	}
+
+	/**
+	 * An {@code Eviction} describes the eviction of a {@code SlottedPage} from the buffer of a
+	 * {@code BufferedFileManager} (the number of bytes is the number of bytes written, 0 for a clean page).
+	 *
+	 * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+	 */
+	@Name("storage.Eviction")
+	@Label("Buffer Eviction")
+	@Description("The eviction of a page from the buffer")
+	static class Eviction extends PageEvent {
+
+		/**
+		 * {@code true} if the evicted {@code SlottedPage} was dirty (and thus written).
+		 */
+		@Label("Dirty")
+		boolean dirty;
+
+	}
+
+}
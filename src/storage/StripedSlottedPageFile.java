@@ -0,0 +1,361 @@
+package storage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A {@code StripedSlottedPageFile} stripes a logical file of {@code SlottedPage}s across a number of physical
+ * {@code SlottedPageFile}s in a round-robin manner. The {@code SlottedPage} with ID {@code i} is stored at position
+ * {@code i / n} of stripe {@code i % n}, where {@code n} is the number of stripes. Multi-page reads and writes are
+ * issued to all stripes in parallel. The header page of each stripe records the index of the stripe and the number of
+ * stripes, so reopening a {@code StripedSlottedPageFile} with a different number or order of directories fails
+ * instead of mapping {@code SlottedPage}s to the wrong stripes.
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class StripedSlottedPageFile extends SlottedPageFile {
+
+	/**
+	 * The {@code SlottedPageFile}s storing the stripes of this {@code StripedSlottedPageFile}.
+	 */
+	SlottedPageFile[] stripes;
+
+	/**
+	 * The {@code ExecutorService} for accessing the stripes in parallel.
+	 */
+	ExecutorService executor;
+
+	/**
+	 * Constructs a {@code StripedSlottedPageFile}.
+	 * 
+	 * @param name
+	 *            the name of the {@code StripedSlottedPageFile} (e.g., "0.dat")
+	 * @param slottedPageSize
+	 *            the size (in bytes) of {@code SlottedPage}s
+	 * @param directories
+	 *            the directories in which the stripes are stored (one stripe per directory)
+	 * @throws FileNotFoundException
+	 *             if a stripe cannot be found/created
+	 * @throws IOException
+	 *             if an I/O error occurs, a stripe has a different format or page size, or the stripes were created
+	 *             with a different number or order of directories
+	 */
+	public StripedSlottedPageFile(String name, int slottedPageSize, String... directories)
+			throws FileNotFoundException, IOException {
+		super(name, slottedPageSize, null);
+		if (directories.length == 0)
+			throw new IllegalArgumentException();
+		for (int i = 0; i < directories.length; i++) {
+			File f = new File(stripeName(directories[i], name, i));
+			if (!f.exists())
+				for (String d : directories) {
+					File g = new File(stripeName(d, name, i));
+					if (g.exists() && !g.equals(f))
+						throw new IOException(
+								"stripe " + i + " of " + name + " is in " + d + " (not in " + directories[i] + ")");
+				}
+		}
+		stripes = new SlottedPageFile[directories.length];
+		try {
+			for (int i = 0; i < stripes.length; i++) {
+				SlottedPageFile s = stripes[i] = new SlottedPageFile(stripeName(directories[i], name, i),
+						slottedPageSize);
+				if (s.stripes == 0) { // a new stripe
+					s.stripe = i;
+					s.stripes = stripes.length;
+					s.writeHeader();
+				} else if (s.stripe != i || s.stripes != stripes.length)
+					throw new IOException(s.name + " is stripe " + s.stripe + " of " + s.stripes
+							+ " stripes (not stripe " + i + " of " + stripes.length + " stripes)");
+			}
+		} catch (IOException e) {
+			for (SlottedPageFile s : stripes)
+				if (s != null)
+					s.close();
+			throw e;
+		}
+		setMetrics(metrics);
+		executor = Executors.newFixedThreadPool(stripes.length, r -> {
+			Thread t = new Thread(r, "stripe-io-" + name);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(stripes);
+	}
+
+	/**
+	 * Sets the {@code IOMetrics} in which the I/O operations on this {@code StripedSlottedPageFile} (i.e., on all of
+	 * its stripes) are recorded.
+	 * 
+	 * @param metrics
+	 *            an {@code IOMetrics}
+	 */
+	@Override
+	public void setMetrics(IOMetrics metrics) {
+		super.setMetrics(metrics);
+		for (SlottedPageFile s : stripes)
+			s.setMetrics(metrics);
+	}
+
+	@Override
+	public synchronized void setExtents(int minExtent, int maxExtent) {
+		super.setExtents(minExtent, maxExtent);
+		for (SlottedPageFile s : stripes)
+			s.setExtents(minExtent, maxExtent);
+	}
+
+	@Override
+	void setPageFormat(PageFormat format) {
+		super.setPageFormat(format);
+		for (SlottedPageFile s : stripes)
+			s.setPageFormat(format);
+	}
+
+	@Override
+	void setFileID(int fileID) {
+		super.setFileID(fileID);
+		for (SlottedPageFile s : stripes)
+			s.setFileID(fileID);
+	}
+
+	/**
+	 * Returns the number of stripes in this {@code StripedSlottedPageFile}.
+	 * 
+	 * @return the number of stripes in this {@code StripedSlottedPageFile}
+	 */
+	public int stripeCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * Returns the number of {@code SlottedPage}s in this {@code StripedSlottedPageFile}.
+	 * 
+	 * @return the number of {@code SlottedPage}s in this {@code StripedSlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public int size() throws IOException {
+		int size = 0;
+		for (int i = 0; i < stripes.length; i++) {
+			int s = stripes[i].size();
+			if (s > 0)
+				size = Math.max(size, (s - 1) * stripes.length + i + 1);
+		}
+		return size;
+	}
+
+	/**
+	 * Closes this {@code StripedSlottedPageFile} and releases any system resources associated with this
+	 * {@code StripedSlottedPageFile}.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		for (SlottedPageFile f : stripes)
+			f.close();
+	}
+
+	@Override
+	public boolean release() throws IOException {
+		boolean released = true;
+		for (SlottedPageFile f : stripes)
+			released &= f.release();
+		return released;
+	}
+
+	@Override
+	public int handles() {
+		return stripes.length;
+	}
+
+	/**
+	 * Removes all data from this {@code StripedSlottedPageFile}.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void clear() throws IOException {
+		for (SlottedPageFile f : stripes)
+			f.clear();
+	}
+
+	@Override
+	public void sync() throws IOException {
+		for (SlottedPageFile f : stripes)
+			f.sync();
+	}
+
+	@Override
+	public void truncate(int size) throws IOException {
+		for (int i = 0; i < stripes.length; i++)
+			stripes[i].truncate((size - i + stripes.length - 1) / stripes.length);
+	}
+
+	@Override
+	public SlottedPage get(int pageID) throws IOException {
+		if (pageID < 0)
+			return null;
+		return stripes[pageID % stripes.length].read(pageID / stripes.length, pageID);
+	}
+
+	/**
+	 * Creates the specified number of consecutive {@code SlottedPage}s from this {@code StripedSlottedPageFile},
+	 * starting with the specified page ID. The stripes are read in parallel. Fewer {@code SlottedPage}s are returned
+	 * if the end of this {@code StripedSlottedPageFile} is reached.
+	 * 
+	 * @param pageID
+	 *            the ID of the first {@code SlottedPage} to create
+	 * @param count
+	 *            the maximum number of {@code SlottedPage}s to create
+	 * @return the {@code SlottedPage}s created from this {@code StripedSlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public List<SlottedPage> get(int pageID, int count) throws IOException {
+		SlottedPage[] pages = new SlottedPage[Math.max(count, 0)];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(stripes.length);
+		for (int s = 0; s < stripes.length; s++) {
+			int stripe = s;
+			tasks.add(() -> {
+				// each stripe reads its own pages by a single sequential read
+				int first = first(pageID, stripe);
+				if (first < pageID + count)
+					for (SlottedPage p : stripes[stripe].read(first / stripes.length,
+							(pageID + count - first + stripes.length - 1) / stripes.length, first, stripes.length))
+						pages[p.pageID() - pageID] = p;
+				return null;
+			});
+		}
+		invokeAll(tasks);
+		List<SlottedPage> l = new ArrayList<SlottedPage>(pages.length);
+		for (SlottedPage p : pages) {
+			if (p == null)
+				break;
+			l.add(p);
+		}
+		return l;
+	}
+
+	@Override
+	public void save(SlottedPage p) throws IOException {
+		stripes[p.pageID() % stripes.length].write(p.pageID() / stripes.length, p);
+	}
+
+	/**
+	 * Saves the specified {@code SlottedPage}s to this {@code StripedSlottedPageFile}. The stripes are written in
+	 * parallel and each run of {@code SlottedPage}s at consecutive positions of a stripe is written by a single
+	 * sequential write.
+	 * 
+	 * @param pages
+	 *            {@code SlottedPage}s
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void save(Collection<SlottedPage> pages) throws IOException {
+		List<List<SlottedPage>> groups = new ArrayList<List<SlottedPage>>(stripes.length);
+		for (int i = 0; i < stripes.length; i++)
+			groups.add(new ArrayList<SlottedPage>());
+		for (SlottedPage p : pages)
+			groups.get(p.pageID() % stripes.length).add(p);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(stripes.length);
+		for (int s = 0; s < stripes.length; s++) {
+			int stripe = s;
+			List<SlottedPage> group = groups.get(s);
+			if (group.isEmpty())
+				continue;
+			tasks.add(() -> {
+				group.sort((p1, p2) -> Integer.compare(p1.pageID(), p2.pageID()));
+				stripes[stripe].write(group, p -> p.pageID() / stripes.length);
+				return null;
+			});
+		}
+		invokeAll(tasks);
+	}
+
+	/**
+	 * Returns the ID of the first {@code SlottedPage} that is not smaller than the specified page ID and belongs to
+	 * the specified stripe.
+	 * 
+	 * @param pageID
+	 *            a page ID
+	 * @param stripe
+	 *            the index of a stripe
+	 * @return the ID of the first {@code SlottedPage} that is not smaller than the specified page ID and belongs to
+	 *         the specified stripe
+	 */
+	int first(int pageID, int stripe) {
+		int offset = Math.floorMod(stripe - pageID, stripes.length);
+		return pageID + offset;
+	}
+
+	/**
+	 * Executes the specified tasks in parallel and waits until all of them complete.
+	 * 
+	 * @param tasks
+	 *            the tasks to execute
+	 * @throws IOException
+	 *             if an I/O error occurs while executing a task
+	 */
+	void invokeAll(List<Callable<Void>> tasks) throws IOException {
+		if (tasks.size() == 1) { // no need to hand over the work to another thread
+			try {
+				tasks.get(0).call();
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IOException(e);
+			}
+			return;
+		}
+		try {
+			for (Future<Void> f : executor.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the name of the specified stripe.
+	 * 
+	 * @param directory
+	 *            the directory containing the stripe
+	 * @param name
+	 *            the name of the {@code StripedSlottedPageFile} (e.g., "0.dat")
+	 * @param stripe
+	 *            the index of the stripe
+	 * @return the name of the specified stripe (e.g., "dir/0.1.dat")
+	 */
+	static String stripeName(String directory, String name, int stripe) {
+		int i = name.lastIndexOf('.');
+		String s = i < 0 ? name + "." + stripe : name.substring(0, i) + "." + stripe + name.substring(i);
+		return new File(directory, s).getPath();
+	}
+
+}
@@ -0,0 +1,129 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import storage.BPlusTree;
+import storage.BufferedFileManager;
+import storage.FileManager;
+
+/**
+ * This program tests the {@link BPlusTree} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class BPlusTreeTest {
+
+	/**
+	 * The number of keys to insert.
+	 */
+	static int keys = 5000;
+
+	/**
+	 * Tests {@link BPlusTree#put(Comparable, long)}, {@link BPlusTree#get(Comparable)}, and
+	 * {@link BPlusTree#remove(Comparable)} using random keys and compares the results with a {@code TreeMap}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void update() throws Exception {
+		update(FileManager.class, SlottedPageTest.slottedPageSize);
+		update(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests {@link BPlusTree#put(Comparable, long)}, {@link BPlusTree#get(Comparable)}, and
+	 * {@link BPlusTree#remove(Comparable)} using the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void update(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.initialize(c, args);
+		BPlusTree<Integer> t = new BPlusTree<Integer>(m, 0);
+		TreeMap<Integer, Long> expected = new TreeMap<Integer, Long>();
+		Random r = new Random(0);
+		for (int i = 0; i < keys; i++) {
+			int key = r.nextInt(keys * 2);
+			assertEquals(expected.put(key, (long) i), t.put(key, i));
+		}
+		for (int i = 0; i < keys / 2; i++) {
+			int key = r.nextInt(keys * 2);
+			assertEquals(expected.remove(key), t.remove(key));
+		}
+		assertTrue(t.height() > 1);
+		m.shutdown();
+		m = FileManagerTest.newInstance(c, args); // the tree is persistent
+		t = new BPlusTree<Integer>(m, 0);
+		for (int key = 0; key < keys * 2; key++)
+			assertEquals(expected.get(key), t.get(key));
+		assertEquals(new ArrayList<Map.Entry<Integer, Long>>(expected.subMap(100, 1000).entrySet()),
+				list(t.range(100, 1000)));
+		assertEquals(new ArrayList<Map.Entry<Integer, Long>>(expected.entrySet()), list(t.range(null, null)));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests {@link BPlusTree#build(Iterator)}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void build() throws Exception {
+		FileManager m = FileManagerTest.initialize(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+		BPlusTree<Integer> t = new BPlusTree<Integer>(m, 0);
+		List<Map.Entry<Integer, Long>> entries = new ArrayList<Map.Entry<Integer, Long>>();
+		for (int i = 0; i < keys * 10; i++)
+			entries.add(new AbstractMap.SimpleImmutableEntry<Integer, Long>(i * 2, (long) i));
+		assertEquals(entries.size(), t.build(entries.iterator()));
+		int height = t.height();
+		assertTrue(height >= 3);
+		for (int i = 0; i < keys * 10; i += 7) {
+			assertEquals((long) i, (long) t.get(i * 2));
+			assertNull(t.get(i * 2 + 1));
+		}
+		assertEquals(entries, list(t.range(null, null)));
+		assertEquals(entries.subList(5, 50), list(t.range(9, 100)));
+		for (int i = 0; i < keys; i++) // insertions into a bulk-built tree
+			t.put(i * 2 + 1, -i);
+		assertEquals((long) -7, (long) t.get(15));
+		assertEquals(entries.size() + keys, list(t.range(null, null)).size());
+		assertTrue(t.height() <= height + 1);
+		assertEquals(0, t.build(new ArrayList<Map.Entry<Integer, Long>>().iterator()));
+		assertNull(t.get(0));
+		m.shutdown();
+	}
+
+	/**
+	 * Returns a list containing the elements from the specified iterator.
+	 *
+	 * @param <T>
+	 *            the type of elements
+	 * @param i
+	 *            an iterator
+	 * @return a list containing the elements from the specified iterator
+	 */
+	static <T> List<T> list(Iterator<T> i) {
+		List<T> l = new ArrayList<T>();
+		while (i.hasNext())
+			l.add(i.next());
+		return l;
+	}
+
+}
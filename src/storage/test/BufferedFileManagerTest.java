@@ -1,8 +1,25 @@
 package storage.test;
 
+import static org.junit.Assert.*;
+
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import storage.BufferStatistics;
 import storage.BufferedFileManager;
+import storage.FileManager;
 
 /**
  * This program tests the {@code BufferedFileManager} class.
@@ -42,4 +59,69 @@ public class BufferedFileManagerTest {
 		out.println();
 	}
 
+	/**
+	 * Tests {@link BufferedFileManager#statistics()} and {@link BufferedFileManager#statistics(int)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void statistics() throws Exception {
+		int bufferSize = 4;
+		BufferedFileManager m = (BufferedFileManager) FileManagerTest.initialize(BufferedFileManager.class,
+				SlottedPageTest.slottedPageSize, bufferSize);
+		m.exportMetrics("test");
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		m.get(0, locations[locations.length - 1]); // a hit
+		m.get(0, locations[0]); // a miss
+		BufferStatistics s = m.statistics(0);
+		assertTrue(s.getHits() > 0);
+		assertTrue(s.getMisses() > 0);
+		assertTrue(s.getDirtyEvictions() > 0);
+		assertEquals(bufferSize, s.getResident());
+		assertTrue(s.getDirty() <= s.getResident());
+		assertEquals(s.getHits(), m.statistics().getHits());
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("storage:type=BufferStatistics,name=\"test\",fileID=0");
+		assertEquals((long) bufferSize, server.getAttribute(name, "Resident"));
+		m.shutdown();
+		assertFalse(server.isRegistered(name));
+	}
+
+	/**
+	 * Tests whether {@link BufferedFileManager}s emit JFR events for page writes and buffer evictions.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void events() throws Exception {
+		Path dump = Paths.get("test.jfr");
+		try (Recording r = new Recording()) {
+			r.enable("storage.PageWrite");
+			r.enable("storage.Eviction");
+			r.start();
+			FileManager m = FileManagerTest.initialize(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 4);
+			FileManagerTest.add(m, FileManagerTest.additions);
+			m.shutdown();
+			r.stop();
+			r.dump(dump);
+		}
+		int writes = 0;
+		int evictions = 0;
+		for (RecordedEvent e : RecordingFile.readAllEvents(dump)) {
+			String type = e.getEventType().getName();
+			if (type.equals("storage.PageWrite"))
+				writes++;
+			else if (type.equals("storage.Eviction") && e.getBoolean("dirty"))
+				evictions++;
+			else
+				continue;
+			assertEquals(0, e.getInt("fileID"));
+		}
+		Files.delete(dump);
+		assertTrue(evictions > 0);
+		assertTrue(writes >= evictions);
+	}
+
 }
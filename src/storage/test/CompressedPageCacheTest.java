@@ -0,0 +1,111 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.CompressedPageCache;
+import storage.SlottedPage;
+
+/**
+ * This program tests the {@link CompressedPageCache} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class CompressedPageCacheTest {
+
+	/**
+	 * The number of objects to add.
+	 */
+	static int objects = 5000;
+
+	/**
+	 * Tests {@link CompressedPageCache#put(long, byte[])}, {@link CompressedPageCache#take(long)},
+	 * {@link CompressedPageCache#decompress(long, byte[], byte[])}, and the eviction of the least recently used
+	 * entries.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void operations() throws Exception {
+		int size = SlottedPageTest.slottedPageSize;
+		CompressedPageCache c = new CompressedPageCache(4L * size, size);
+		SlottedPage[] pages = new SlottedPage[400];
+		for (int i = 0; i < pages.length; i++) {
+			pages[i] = new SlottedPage(i, size);
+			for (int j = 0; j < 10; j++)
+				pages[i].add(i * 10 + j);
+			c.put(i, pages[i].data());
+		}
+		assertTrue(c.bytes() <= 4L * size);
+		assertTrue(c.compressionRatio() > 2);
+		assertTrue(c.pages() > 8); // more pages than the capacity in uncompressed form
+		byte[] data = new byte[size];
+		assertNull(c.take(0)); // the least recently used entries are evicted
+		c.decompress(pages.length - 1, c.take(pages.length - 1), data);
+		assertArrayEquals(pages[pages.length - 1].data(), data);
+		assertNull(c.take(pages.length - 1)); // removed
+		byte[] random = new byte[size];
+		new Random(0).nextBytes(random);
+		c.put(-1, random); // kept as is
+		c.decompress(-1, c.take(-1), data);
+		assertArrayEquals(random, data);
+		c.removeIf(key -> key % 2 == 0);
+		assertNull(c.take(pages.length - 2));
+		assertNotNull(c.take(pages.length - 3));
+		assertEquals(3, c.hits());
+		assertEquals(3, c.misses());
+		c.close();
+		assertEquals(0, c.pages());
+		assertEquals(0, c.bytes());
+	}
+
+	/**
+	 * Tests whether the buffer misses of a {@link BufferedFileManager} are served from the second-tier cache.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void secondTier() throws Exception {
+		BufferedFileManager m = new BufferedFileManager(SlottedPageTest.slottedPageSize, 4);
+		m.setSecondTier(1 << 20);
+		m.clear(0);
+		long[] locations = FileManagerTest.add(m, objects);
+		m.flush();
+		List<Object> expected = SlottedPageTest.list(m.iterator(0)); // the clean pages evicted are cached
+		long reads = m.metrics(0).getReads();
+		assertEquals(expected, SlottedPageTest.list(m.iterator(0)));
+		assertEquals(reads, m.metrics(0).getReads()); // no page is read from the data file
+		assertTrue(m.secondTier().hits() > 0);
+		CompressedPageCache replaced = m.secondTier();
+		assertTrue(replaced.pages() > 0);
+		m.setSecondTier(1 << 20); // the replaced cache is closed
+		assertEquals(0, replaced.pages());
+		for (int i = 0; i < objects; i += 3)
+			m.put(0, locations[i], -i);
+		for (int i = 0; i < objects; i++)
+			assertEquals(i % 3 == 0 ? -i : i, m.get(0, locations[i]));
+		m.vacuum(0, Integer.MAX_VALUE);
+		m.clear(0);
+		assertEquals(0, SlottedPageTest.list(m.iterator(0)).size());
+		assertEquals(0, m.secondTier().pages());
+		m.shutdown();
+		m = new BufferedFileManager(SlottedPageTest.slottedPageSize, 4); // without the second-tier cache
+		m.clear(0);
+		FileManagerTest.add(m, objects);
+		m.flush();
+		SlottedPageTest.list(m.iterator(0));
+		reads = m.metrics(0).getReads();
+		SlottedPageTest.list(m.iterator(0));
+		assertTrue(m.metrics(0).getReads() > reads);
+		m.shutdown();
+	}
+
+}
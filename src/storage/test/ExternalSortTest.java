@@ -0,0 +1,79 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.ExternalSort;
+import storage.FileManager;
+
+/**
+ * This program tests the {@link ExternalSort} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class ExternalSortTest {
+
+	/**
+	 * The number of objects to sort.
+	 */
+	static int objects = 20000;
+
+	/**
+	 * Tests {@link ExternalSort#sort(int, int, Comparator)} using random integers and compares the result with a
+	 * sorted list.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void sort() throws Exception {
+		sort(FileManager.class, SlottedPageTest.slottedPageSize);
+		sort(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests {@link ExternalSort#sort(int, int, Comparator)} using the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void sort(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.initialize(c, args);
+		List<Integer> expected = new ArrayList<Integer>();
+		Random r = new Random(0);
+		for (int i = 0; i < objects; i++) {
+			int v = r.nextInt(objects);
+			m.add(0, v);
+			expected.add(v);
+		}
+		ExternalSort s = new ExternalSort(m, 2, 16); // 16 pages of memory result in about 50 runs
+		assertEquals(objects, s.sort(0, 1, Comparator.<Integer>naturalOrder()));
+		assertTrue(s.passes() >= 3); // run generation, an intermediate merge pass, and the final merge pass
+		expected.sort(null);
+		assertEquals(expected, SlottedPageTest.list(m.iterator(1)));
+		s = new ExternalSort(m, 2, 64);
+		s.setFanIn(64); // all runs are merged at once
+		assertEquals(objects, s.sort(0, 1, Comparator.<Integer>reverseOrder()));
+		assertEquals(2, s.passes());
+		expected.sort(Comparator.reverseOrder());
+		assertEquals(expected, SlottedPageTest.list(m.iterator(1)));
+		assertEquals(objects, SlottedPageTest.list(m.iterator(0)).size()); // the input file is not modified
+		m.clear(0);
+		assertEquals(0, s.sort(0, 1, Comparator.<Integer>naturalOrder()));
+		assertFalse(m.iterator(1).hasNext());
+		m.shutdown();
+	}
+
+}
@@ -2,17 +2,29 @@ package storage.test;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.stream.IntStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.Test;
 
+import storage.BufferedFileManager;
 import storage.FileManager;
+import storage.IOMetrics;
+import storage.LogManager;
 import storage.SlottedPageFile;
+import storage.StripedSlottedPageFile;
 import storage.StorageManager.InvalidLocationException;
 
 /**
@@ -141,6 +153,370 @@ public class FileManagerTest {
 				assertEquals(i, it.next());
 	}
 
+	/**
+	 * Tests {@link FileManager#stripe(int, String...)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void stripe() throws Exception {
+		FileManager m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		m.stripe(1, ".", ".", ".");
+		m.clear(1);
+		long[] locations = new long[additions];
+		for (int i = 0; i < additions; i++)
+			locations[i] = m.add(1, i);
+		for (int i = 0; i < additions; i++)
+			assertEquals(i, m.get(1, locations[i]));
+		ArrayList<Object> list = SlottedPageTest.list(m.iterator(1));
+		assertEquals(additions, list.size());
+		for (int i = 0; i < additions; i++)
+			assertEquals(i, list.get(i));
+		m.shutdown();
+		StripedSlottedPageFile f = new StripedSlottedPageFile(1 + ".dat", SlottedPageTest.slottedPageSize, ".", ".", ".");
+		assertEquals(first(locations[additions - 1]) + 1, f.size());
+		assertEquals(1, f.get(1).pageID());
+		f.close();
+	}
+
+	/**
+	 * Tests whether reopening a {@link StripedSlottedPageFile} with a different number or order of directories fails.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void stripeLayout() throws Exception {
+		String[] directories = { "stripe0", "stripe1" };
+		for (String d : directories) {
+			new File(d).mkdir();
+			for (File f : new File(d).listFiles())
+				f.delete();
+		}
+		FileManager m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		m.stripe(1, directories);
+		m.clear(1);
+		long[] locations = new long[additions];
+		for (int i = 0; i < additions; i++)
+			locations[i] = m.add(1, i);
+		m.shutdown();
+		String[][] layouts = { { "stripe1", "stripe0" }, { "stripe0" }, { "stripe0", "stripe1", "stripe0" } };
+		for (String[] l : layouts)
+			try {
+				new StripedSlottedPageFile(1 + ".dat", SlottedPageTest.slottedPageSize, l).close();
+				fail("expecting an " + IOException.class.getSimpleName());
+			} catch (IOException e) {
+			}
+		m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		m.stripe(1, directories);
+		for (int i = 0; i < additions; i++)
+			assertEquals(i, m.get(1, locations[i]));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests whether the header page of a {@link SlottedPageFile} records the number of pages and rejects a wrong page
+	 * size.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void superblock() throws Exception {
+		FileManager m = initialize(FileManager.class, SlottedPageTest.slottedPageSize);
+		long[] locations = add(m, additions);
+		m.shutdown();
+		SlottedPageFile f = new SlottedPageFile(0 + ".dat", SlottedPageTest.slottedPageSize);
+		assertEquals(first(locations[additions - 1]) + 1, f.size());
+		f.truncate(1);
+		f.close();
+		f = new SlottedPageFile(0 + ".dat", SlottedPageTest.slottedPageSize);
+		assertEquals(1, f.size());
+		assertEquals(null, f.get(1));
+		f.close();
+		try {
+			new SlottedPageFile(0 + ".dat", SlottedPageTest.slottedPageSize * 2);
+			fail("expecting an " + IOException.class.getSimpleName());
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Tests whether a file without a header page (as written before header pages were introduced) is upgraded when it
+	 * is opened.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void upgrade() throws Exception {
+		FileManager m = initialize(FileManager.class, SlottedPageTest.slottedPageSize);
+		long[] locations = add(m, additions);
+		m.shutdown();
+		int pages = first(locations[additions - 1]) + 1;
+		byte[] data = new byte[pages * SlottedPageTest.slottedPageSize];
+		try (RandomAccessFile f = new RandomAccessFile(0 + ".dat", "rw")) {
+			f.seek(SlottedPageTest.slottedPageSize);
+			f.readFully(data);
+			f.setLength(0);
+			f.write(data); // the pages without the header page
+		}
+		m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		for (int i = 0; i < additions; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		m.shutdown();
+		assertFalse(new File(0 + ".dat.upgrade").exists());
+		SlottedPageFile f = new SlottedPageFile(0 + ".dat", SlottedPageTest.slottedPageSize);
+		assertEquals(pages, f.size());
+		f.close();
+	}
+
+	/**
+	 * Tests whether {@link SlottedPageFile}s preallocate space in extents while keeping track of the number of pages
+	 * (also after a crash that leaves a stale header page).
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void extents() throws Exception {
+		FileManager m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		m.setExtents(1 << 16, 1 << 18);
+		m.clear(0);
+		long[] locations = add(m, additions);
+		m.shutdown();
+		int pages = first(locations[additions - 1]) + 1;
+		long length = new File(0 + ".dat").length();
+		assertTrue(length > (pages + 1L) * SlottedPageTest.slottedPageSize);
+		assertEquals(0, (length - SlottedPageTest.slottedPageSize) % (1 << 16)); // the header page followed by extents
+		try (RandomAccessFile f = new RandomAccessFile(0 + ".dat", "rw")) {
+			f.seek(12);
+			f.writeInt(0); // as if the header had not been written since the file was created
+		}
+		SlottedPageFile f = new SlottedPageFile(0 + ".dat", SlottedPageTest.slottedPageSize);
+		assertEquals(pages, f.size());
+		f.close();
+		m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		for (int i = 0; i < additions; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests {@link FileManager#vacuum(int, int)} on a file from which most objects have been removed.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void vacuum() throws Exception {
+		vacuum(FileManager.class, SlottedPageTest.slottedPageSize);
+		vacuum(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 4);
+	}
+
+	/**
+	 * Tests {@link FileManager#vacuum(int, int)} using the specified type of {@link FileManager}.
+	 * 
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	void vacuum(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = initialize(c, args);
+		long[] locations = add(m, additions);
+		for (int i = 0; i < additions; i++)
+			if (i % 4 != 0)
+				m.remove(0, locations[i]);
+		int pages = first(locations[additions - 1]) + 1;
+		int truncated = m.vacuum(0, 1);
+		assertEquals(1, truncated); // incremental
+		m.put(0, locations[additions - 4], -1); // an object moved by the vacuum
+		truncated += m.vacuum(0, Integer.MAX_VALUE);
+		assertTrue(truncated > pages / 2);
+		check(m, locations);
+		long location = m.add(0, additions);
+		for (long l : locations)
+			assertTrue(l != location);
+		m.shutdown();
+		SlottedPageFile f = new SlottedPageFile(0 + ".dat", SlottedPageTest.slottedPageSize);
+		assertEquals(pages - truncated + (first(location) < pages - truncated ? 0 : 1), f.size());
+		f.close();
+		m = newInstance(c, args); // the forwarded locations remain valid after a restart
+		check(m, locations);
+		assertEquals(additions, m.get(0, location));
+		m.shutdown();
+	}
+
+	/**
+	 * Checks whether the objects remaining after the removals in {@link #vacuum(Class, Object...)} can be found.
+	 * 
+	 * @param m
+	 *            a {@link FileManager}
+	 * @param locations
+	 *            the locations of the objects added originally
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void check(FileManager m, long[] locations) throws Exception {
+		ArrayList<Object> remaining = new ArrayList<Object>();
+		for (int i = 0; i < additions; i++) {
+			Object expected = i % 4 != 0 ? null : i == additions - 4 ? -1 : i;
+			assertEquals(expected, m.get(0, locations[i]));
+			if (expected != null)
+				remaining.add(expected);
+		}
+		ArrayList<Object> scanned = new ArrayList<Object>();
+		for (Iterator<Object> i = m.iterator(0); i.hasNext();) {
+			Object o = i.next();
+			if (!o.equals(additions))
+				scanned.add(o);
+		}
+		scanned.sort(null);
+		remaining.sort(null);
+		assertEquals(remaining, scanned);
+	}
+
+	/**
+	 * Tests whether {@link FileManager#put(int, Long, Object)} moves objects that no longer fit in their
+	 * {@code SlottedPage}s while keeping their locations valid.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void grow() throws Exception {
+		FileManager m = initialize(FileManager.class, SlottedPageTest.slottedPageSize);
+		long[] locations = add(m, additions);
+		String large = String.format("%0" + SlottedPageTest.slottedPageSize / 4 + "d", 0);
+		String larger = large + large;
+		assertEquals(0, m.put(0, locations[0], large));
+		assertEquals(large, m.put(0, locations[0], larger));
+		assertEquals(larger, m.get(0, locations[0]));
+		assertEquals(1, m.put(0, locations[1], large));
+		assertEquals(large, m.get(0, locations[1]));
+		assertEquals(large, m.remove(0, locations[1]));
+		assertEquals(null, m.get(0, locations[1]));
+		assertEquals(additions - 1, SlottedPageTest.list(m.iterator(0)).size());
+		m.shutdown();
+		m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		assertEquals(larger, m.get(0, locations[0]));
+		assertEquals(null, m.get(0, locations[1]));
+		for (int i = 2; i < additions; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests {@link FileManager#addAll(int, Iterator, double)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void addAll() throws Exception {
+		addAll(FileManager.class, SlottedPageTest.slottedPageSize);
+		addAll(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests {@link FileManager#addAll(int, Iterator, double)} using the specified type of {@link FileManager}.
+	 * 
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void addAll(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = initialize(c, args);
+		long[] expected = add(m, additions);
+		m.clear(0);
+		int n = additions * 20;
+		long bytes = m.metrics(0).getBytesWritten();
+		long writes = m.metrics(0).getWrites();
+		long[] locations = m.addAll(0, IntStream.range(0, n).boxed().iterator(), 1.0);
+		assertArrayEquals(expected, Arrays.copyOf(locations, additions)); // packed as by add(int, Object)
+		int pages = (int) (locations[n - 1] >>> 32) + 1;
+		assertEquals((long) pages * SlottedPageTest.slottedPageSize, m.metrics(0).getBytesWritten() - bytes);
+		assertTrue(m.metrics(0).getWrites() - writes < pages / 100); // each page is written once in a large batch
+		m.clear(0);
+		locations = m.addAll(0, IntStream.range(0, n).boxed().iterator(), 0.5);
+		assertTrue((locations[n - 1] >>> 32) + 1 > pages * 1.8);
+		m.shutdown();
+		m = newInstance(c, args);
+		for (int i = 0; i < n; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		assertEquals(n, SlottedPageTest.list(m.iterator(0)).size());
+		assertTrue(m.add(0, n) >>> 32 >= locations[n - 1] >>> 32); // new objects follow the loaded ones
+		m.shutdown();
+	}
+
+	/**
+	 * Tests {@link FileManager#setMaxOpenHandles(int)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void handles() throws Exception {
+		FileManager m = newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		m.setMaxOpenHandles(2);
+		int files = 5;
+		long[][] locations = new long[files][additions / 10];
+		for (int f = 0; f < files; f++)
+			m.clear(f);
+		for (int i = 0; i < additions / 10; i++)
+			for (int f = 0; f < files; f++) {
+				locations[f][i] = m.add(f, f * additions + i);
+				assertTrue(m.openHandles() <= 2);
+			}
+		for (int f = 0; f < files; f++)
+			for (int i = 0; i < additions / 10; i++)
+				assertEquals(f * additions + i, m.get(f, locations[f][i]));
+		assertTrue(m.openHandles() <= 2);
+		new LogManager(LogManagerTest.logName).clear();
+		m.setLogManager(new LogManager(LogManagerTest.logName)); // syncs every file
+		long[] syncs = new long[files];
+		for (int f = 0; f < files; f++)
+			syncs[f] = m.metrics(f).getSyncs();
+		m.checkpoint(); // the files released or synced before are neither reopened nor synced again
+		for (int f = 0; f < files; f++)
+			assertEquals(syncs[f], m.metrics(f).getSyncs());
+		m.shutdown();
+	}
+
+	/**
+	 * Tests {@link FileManager#metrics(int)} and {@link FileManager#exportMetrics(String)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void metrics() throws Exception {
+		FileManager m = initialize(FileManager.class, SlottedPageTest.slottedPageSize);
+		m.exportMetrics("test");
+		long[] locations = add(m, additions);
+		for (long location : locations)
+			m.get(0, location);
+		IOMetrics metrics = m.metrics(0);
+		assertTrue(metrics.getWrites() >= additions);
+		assertTrue(metrics.getReads() >= additions);
+		assertEquals(metrics.getWrites() * SlottedPageTest.slottedPageSize, metrics.getBytesWritten());
+		assertEquals(metrics.getReads() * SlottedPageTest.slottedPageSize, metrics.getBytesRead());
+		assertEquals(metrics.getReads(), metrics.readLatency().count());
+		assertTrue(metrics.getReadLatencyP50() <= metrics.getReadLatencyP999());
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("storage:type=IOMetrics,name=\"test\",fileID=0");
+		assertEquals(metrics.getWrites(), server.getAttribute(name, "Writes"));
+		m.shutdown();
+		assertFalse(server.isRegistered(name));
+	}
+
 	/**
 	 * Constructs a {@link FileManager} and initializes it.
 	 * 
@@ -268,6 +644,17 @@ public class FileManagerTest {
 		return (((long) i) << 32) | j;
 	}
 
+	/**
+	 * Returns an {@code int} value obtained from the first 4 bytes of the given {@code long} value.
+	 * 
+	 * @param l
+	 *            a {@code long} value.
+	 * @return an {@code int} value obtained from the first 4 bytes of the given {@code long} value
+	 */
+	protected int first(long l) {
+		return (int) (l >> 32);
+	}
+
 	/**
 	 * Tests a {@link FileManager} by adding, removing, and accessing objects.
 	 * 
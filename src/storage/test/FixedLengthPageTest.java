@@ -0,0 +1,121 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.FixedLengthPage;
+import storage.KeyValueStore;
+import storage.SlottedPage;
+
+/**
+ * This program tests the {@link FixedLengthPage} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class FixedLengthPageTest {
+
+	/**
+	 * The number of additions to perform.
+	 */
+	static int additions = 10000;
+
+	/**
+	 * Tests {@link FixedLengthPage#add(Object)}, {@link FixedLengthPage#get(int)},
+	 * {@link FixedLengthPage#put(int, Object)}, and {@link FixedLengthPage#remove(int)}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void operations() throws Exception {
+		FixedLengthPage p = new FixedLengthPage(0, SlottedPageTest.slottedPageSize, Integer.BYTES,
+				KeyValueStore.INTEGER);
+		assertEquals((SlottedPageTest.slottedPageSize - 8) * 8 / 33, p.capacity()); // 4 bytes and 1 bit per record
+		for (int i = 0; i < p.capacity(); i++)
+			assertEquals(i, p.add(i));
+		try {
+			p.add(0);
+			fail();
+		} catch (SlottedPage.OverflowException e) {
+		}
+		assertEquals(0, p.freeSpaceSize());
+		assertEquals(3, p.remove(3));
+		assertEquals(null, p.remove(3));
+		assertEquals(null, p.get(3));
+		assertEquals(5, p.put(5, -5));
+		assertEquals(-5, p.get(5));
+		ArrayList<Object> l = SlottedPageTest.list(p.iterator());
+		assertEquals(p.capacity() - 1, l.size());
+		assertEquals(Arrays.asList(0, 1, 2, 4, -5, 6), l.subList(0, 6));
+		try {
+			p.get(p.capacity());
+			fail();
+		} catch (SlottedPage.IndexOutOfBoundsException e) {
+		}
+		try {
+			p.put(0, "not an integer");
+			fail();
+		} catch (ClassCastException e) {
+		}
+	}
+
+	/**
+	 * Tests a file of {@link FixedLengthPage}s managed by a {@link FileManager}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void file() throws Exception {
+		file(FileManager.class, SlottedPageTest.slottedPageSize);
+		file(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests a file of {@link FixedLengthPage}s managed by the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void file(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.newInstance(c, args);
+		m.setPageFormat(1, FixedLengthPage.format(Integer.BYTES, KeyValueStore.INTEGER));
+		m.clear(0);
+		m.clear(1);
+		long[] locations = new long[additions];
+		for (int i = 0; i < additions; i++) {
+			locations[i] = m.add(1, i);
+			m.add(0, i);
+		}
+		int pages = (int) (locations[additions - 1] >>> 32) + 1;
+		assertTrue(m.add(0, 0) >>> 32 > pages * 10); // much denser than SlottedPages
+		for (int i = 0; i < additions; i += 2)
+			assertEquals(i, m.remove(1, locations[i]));
+		for (int i = 1; i < additions; i += 4)
+			assertEquals(i, m.put(1, locations[i], -i));
+		m.shutdown();
+		m = FileManagerTest.newInstance(c, args);
+		m.setPageFormat(1, FixedLengthPage.format(Integer.BYTES, KeyValueStore.INTEGER));
+		for (int i = 0; i < additions; i++)
+			assertEquals(i % 2 == 0 ? null : i % 4 == 1 ? -i : i, m.get(1, locations[i]));
+		assertEquals(additions / 2, SlottedPageTest.list(m.iterator(1)).size());
+		try {
+			m.setPageFormat(1, FixedLengthPage.format(Long.BYTES, KeyValueStore.LONG));
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		m.shutdown();
+	}
+
+}
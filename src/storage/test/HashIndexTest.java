@@ -0,0 +1,106 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.HashIndex;
+
+/**
+ * This program tests the {@link HashIndex} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class HashIndexTest {
+
+	/**
+	 * The number of keys to insert.
+	 */
+	static int keys = 5000;
+
+	/**
+	 * Tests {@link HashIndex#put(byte[], long)}, {@link HashIndex#get(byte[])}, and {@link HashIndex#remove(byte[])}
+	 * using random keys and compares the results with a {@code HashMap}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void update() throws Exception {
+		update(FileManager.class, SlottedPageTest.slottedPageSize);
+		update(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests {@link HashIndex#put(byte[], long)}, {@link HashIndex#get(byte[])}, and {@link HashIndex#remove(byte[])}
+	 * using the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void update(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.initialize(c, args);
+		HashIndex h = new HashIndex(m, 0);
+		HashMap<Integer, Long> expected = new HashMap<Integer, Long>();
+		Random r = new Random(0);
+		for (int i = 0; i < keys; i++) {
+			int key = r.nextInt(keys * 2);
+			assertEquals(expected.put(key, (long) i), h.put(key(key), i));
+		}
+		for (int i = 0; i < keys / 2; i++) {
+			int key = r.nextInt(keys * 2);
+			assertEquals(expected.remove(key), h.remove(key(key)));
+		}
+		assertTrue(h.buckets() > 1);
+		int depth = h.depth();
+		m.shutdown();
+		m = FileManagerTest.newInstance(c, args); // the directory is rebuilt from the buckets
+		h = new HashIndex(m, 0);
+		assertEquals(depth, h.depth());
+		for (int key = 0; key < keys * 2; key++)
+			assertEquals(expected.get(key), h.get(key(key)));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests whether each look-up reads a single page.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void reads() throws Exception {
+		FileManager m = FileManagerTest.initialize(FileManager.class, SlottedPageTest.slottedPageSize);
+		HashIndex h = new HashIndex(m, 0);
+		for (int i = 0; i < keys; i++)
+			h.put(key(i), i);
+		long reads = m.metrics(0).getReads();
+		for (int i = 0; i < keys; i++)
+			assertEquals((long) i, (long) h.get(key(i)));
+		assertEquals(keys, m.metrics(0).getReads() - reads);
+		m.shutdown();
+	}
+
+	/**
+	 * Returns a byte array representing the specified integer.
+	 *
+	 * @param i
+	 *            an integer
+	 * @return a byte array representing the specified integer
+	 */
+	static byte[] key(int i) {
+		return ByteBuffer.allocate(Integer.BYTES).putInt(i).array();
+	}
+
+}
@@ -0,0 +1,64 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.KeyValueStore;
+
+/**
+ * This program tests the {@link KeyValueStore} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class KeyValueStoreTest {
+
+	/**
+	 * The number of operations to perform.
+	 */
+	static int operations = 3000;
+
+	/**
+	 * Tests {@link KeyValueStore#put(Object, Object)}, {@link KeyValueStore#get(Object)},
+	 * {@link KeyValueStore#delete(Object)}, and {@link KeyValueStore#range(Object, Object)} using random operations and
+	 * compares the results with a {@code TreeMap}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void operations() throws Exception {
+		FileManager m = FileManagerTest.initialize(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+		m.clear(1);
+		KeyValueStore<Integer, String> s = new KeyValueStore<Integer, String>(m, 0, 1, KeyValueStore.INTEGER,
+				KeyValueStore.STRING);
+		TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+		Random r = new Random(0);
+		for (int i = 0; i < operations; i++) {
+			int key = r.nextInt(operations) - operations / 2; // negative keys as well
+			String value = "value" + i + "x".repeat(r.nextInt(100)); // values of different sizes
+			if (r.nextInt(4) == 0)
+				assertEquals(expected.remove(key), s.delete(key));
+			else
+				assertEquals(expected.put(key, value), s.put(key, value));
+		}
+		m.shutdown();
+		m = FileManagerTest.newInstance(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+		s = new KeyValueStore<Integer, String>(m, 0, 1, KeyValueStore.INTEGER, KeyValueStore.STRING);
+		for (int key = -operations / 2; key < operations / 2; key++)
+			assertEquals(expected.get(key), s.get(key));
+		assertEquals(new ArrayList<Map.Entry<Integer, String>>(expected.subMap(-100, 100).entrySet()),
+				BPlusTreeTest.list(s.range(-100, 100)));
+		assertEquals(expected.size(), BPlusTreeTest.list(s.range(null, null)).size());
+		m.shutdown();
+	}
+
+}
@@ -0,0 +1,186 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.LogManager;
+import storage.LogManager.LogRecord;
+
+/**
+ * This program tests the {@link LogManager} class.
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ * 
+ */
+public class LogManagerTest {
+
+	/**
+	 * The name of the log file.
+	 */
+	static String logName = "test.log";
+
+	/**
+	 * Tests whether the updates described in a {@link LogManager} are redone after a crash.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void recover() throws Exception {
+		new LogManager(logName).clear();
+		FileManager m = FileManagerTest.initialize(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 4);
+		m.setLogManager(new LogManager(logName));
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		m.remove(0, locations[1]);
+		// crash: the dirty pages in the buffer are lost, but the log is durable
+		FileManager n = FileManagerTest.newInstance(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 4);
+		n.setLogManager(new LogManager(logName));
+		assertEquals(0, n.get(0, locations[0]));
+		assertEquals(null, n.get(0, locations[1]));
+		for (int i = 2; i < locations.length; i++)
+			assertEquals(i, n.get(0, locations[i]));
+		assertEquals(FileManagerTest.additions - 1, SlottedPageTest.list(n.iterator(0)).size());
+		n.shutdown();
+		assertFalse(new File(logName + ".0").exists());
+	}
+
+	/**
+	 * Tests whether the log records describing an addition cover only the modified parts of a {@code SlottedPage}
+	 * (i.e., not the free space between the header and the objects) and are redone correctly.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void modifiedRanges() throws Exception {
+		new LogManager(logName).clear();
+		FileManager m = FileManagerTest.initialize(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 4);
+		LogManager log = new LogManager(logName);
+		m.setLogManager(log);
+		List<Long> locations = new ArrayList<Long>();
+		for (int i = 0; i < FileManagerTest.additions; i++) {
+			long appended = log.appended();
+			locations.add(m.add(0, i));
+			assertTrue(log.appended() - appended < SlottedPageTest.slottedPageSize / 8);
+		}
+		// crash: the dirty pages in the buffer are lost, but the log is durable
+		FileManager n = FileManagerTest.newInstance(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 4);
+		n.setLogManager(new LogManager(logName));
+		for (int i = 0; i < locations.size(); i++)
+			assertEquals(i, n.get(0, locations.get(i)));
+		n.shutdown();
+	}
+
+	/**
+	 * Tests whether recovery after a crash starts from the point recorded by the latest checkpoint.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void checkpoint() throws Exception {
+		new LogManager(logName).clear();
+		FileManager m = FileManagerTest.initialize(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+		LogManager log = new LogManager(logName, 4096);
+		m.setLogManager(log);
+		m.setCheckpointInterval(1);
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		m.setCheckpointInterval(0);
+		m.checkpoint();
+		long start = log.checkpointed();
+		assertTrue(start > 0);
+		assertFalse(new File(logName + ".0").exists()); // the segments preceding the checkpoint are deleted
+		m.remove(0, locations[0]);
+		m.put(0, locations[1], -1);
+		// crash
+		FileManager n = FileManagerTest.newInstance(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+		n.setLogManager(new LogManager(logName, 4096));
+		assertEquals(null, n.get(0, locations[0]));
+		assertEquals(-1, n.get(0, locations[1]));
+		for (int i = 2; i < locations.length; i++)
+			assertEquals(i, n.get(0, locations[i]));
+		n.shutdown();
+	}
+
+	/**
+	 * Tests whether concurrent commits share log forces.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void groupCommit() throws Exception {
+		new LogManager(logName).clear();
+		FileManager m = FileManagerTest.initialize(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+		LogManager log = new LogManager(logName);
+		m.setLogManager(log);
+		List<Thread> threads = new ArrayList<Thread>();
+		List<Exception> errors = new ArrayList<Exception>();
+		for (int t = 0; t < 8; t++)
+			threads.add(new Thread(() -> {
+				try {
+					for (int i = 0; i < 100; i++)
+						m.add(0, i);
+				} catch (Exception e) {
+					synchronized (errors) {
+						errors.add(e);
+					}
+				}
+			}));
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		assertTrue(errors.isEmpty());
+		assertEquals(800, SlottedPageTest.list(m.iterator(0)).size());
+		assertTrue(log + "", log.forces() < log.commits()); // concurrent commits share forces
+		m.shutdown();
+	}
+
+	/**
+	 * Tests whether the {@code LogRecord}s of a group whose write fails are written by the next commit (instead of
+	 * being skipped while later {@code LogRecord}s are reported as durable).
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void failedWrite() throws Exception {
+		new LogManager(logName).clear();
+		LogManager log = new LogManager(logName, 256);
+		File blocker = new File(logName + ".1");
+		assertTrue(blocker.mkdir()); // the second log segment cannot be opened
+		try {
+			List<Long> lsns = new ArrayList<Long>();
+			for (int i = 0; i < 8; i++)
+				lsns.add(log.append(new LogRecord(LogRecord.UPDATE, 0, i, 0, new byte[32])));
+			try {
+				log.commit(lsns.get(lsns.size() - 1));
+				fail();
+			} catch (IOException e) {
+			}
+			assertEquals(0, log.durable());
+			assertTrue(blocker.delete());
+			lsns.add(log.append(new LogRecord(LogRecord.UPDATE, 0, 8, 0, new byte[32])));
+			log.commit(lsns.get(lsns.size() - 1));
+			assertEquals(log.appended(), log.durable());
+			int pageID = 0;
+			for (Iterator<LogRecord> i = log.iterator(); i.hasNext();)
+				assertEquals(pageID++, i.next().pageID());
+			assertEquals(lsns.size(), pageID);
+		} finally {
+			blocker.delete();
+			log.close();
+		}
+	}
+
+}
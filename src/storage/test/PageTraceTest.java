@@ -0,0 +1,91 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import storage.BufferSimulator;
+import storage.BufferStatistics;
+import storage.BufferedFileManager;
+import storage.PageTrace;
+
+/**
+ * This program tests the {@link PageTrace} and {@link BufferSimulator} classes.
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ * 
+ */
+public class PageTraceTest {
+
+	/**
+	 * The name of the trace file.
+	 */
+	static String traceName = "test.trace";
+
+	/**
+	 * Tests whether replaying a trace against a {@link BufferSimulator} using the LRU policy reproduces the buffer
+	 * hits and misses of the traced {@link BufferedFileManager}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void replay() throws Exception {
+		int bufferSize = 4;
+		BufferedFileManager m = (BufferedFileManager) FileManagerTest.initialize(BufferedFileManager.class,
+				SlottedPageTest.slottedPageSize, bufferSize);
+		m.startTrace(traceName);
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		for (int i = 0; i < locations.length; i += 7)
+			assertEquals(i, m.get(0, locations[i]));
+		m.remove(0, locations[0]);
+		m.stopTrace();
+		BufferStatistics s = m.statistics(0);
+		m.shutdown();
+		List<Boolean> writes = new ArrayList<Boolean>();
+		BufferSimulator lru = BufferSimulator.create("LRU", bufferSize);
+		long count = PageTrace.replay(traceName, (time, fileID, pageID, write) -> {
+			assertEquals(0, fileID);
+			writes.add(write);
+			lru.access(time, fileID, pageID, write);
+		});
+		assertEquals(count, writes.size());
+		assertTrue(writes.contains(true) && writes.contains(false));
+		assertEquals(s.getHits(), lru.hits());
+		assertEquals(s.getMisses(), lru.misses());
+	}
+
+	/**
+	 * Tests the replacement policies of {@link BufferSimulator}s.
+	 */
+	@Test
+	public void policies() {
+		long[] keys = { 1, 2, 1, 3, 4, 1, 2 };
+		assertEquals(2, run(BufferSimulator.create("LRU", 3), keys).hits()); // 1, 1
+		assertEquals(1, run(BufferSimulator.create("FIFO", 3), keys).hits()); // 1 (then 1 is evicted by 4)
+		assertEquals(1, run(BufferSimulator.create("CLOCK", 3), keys).hits()); // 1 (4 sweeps away all references)
+		BufferSimulator s = BufferSimulator.create("LRU", 1);
+		s.access(1, true);
+		s.access(2, false);
+		assertEquals(1, s.writes()); // the dirty page is written when evicted
+	}
+
+	/**
+	 * Replays the specified accesses (reads) against the specified {@link BufferSimulator}.
+	 * 
+	 * @param s
+	 *            a {@link BufferSimulator}
+	 * @param keys
+	 *            the {@code SlottedPage}s to access
+	 * @return the specified {@link BufferSimulator}
+	 */
+	static BufferSimulator run(BufferSimulator s, long[] keys) {
+		for (long key : keys)
+			s.access(key, false);
+		return s;
+	}
+
+}
@@ -0,0 +1,151 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.PaxPage;
+import storage.PaxPage.Type;
+import storage.SlottedPage;
+
+/**
+ * This program tests the {@link PaxPage} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class PaxPageTest {
+
+	/**
+	 * The number of records to add.
+	 */
+	static int records = 10000;
+
+	/**
+	 * Tests {@link PaxPage#add(Object)}, {@link PaxPage#get(int)}, {@link PaxPage#remove(int)}, and the methods that
+	 * decode mini-columns.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void operations() throws Exception {
+		PaxPage p = new PaxPage(0, SlottedPageTest.slottedPageSize, Type.INT, Type.LONG, Type.DOUBLE);
+		assertEquals((SlottedPageTest.slottedPageSize - 8) * 8 / (20 * 8 + 1), p.capacity());
+		for (int i = 0; i < p.capacity(); i++)
+			assertEquals(i, p.add(record(i)));
+		assertArrayEquals(new Object[] { 7, 7L, 3.5 }, (Object[]) p.get(7));
+		assertArrayEquals(new Object[] { 7, 7L, 3.5 }, (Object[]) p.remove(7));
+		assertFalse(p.isOccupied(7));
+		assertArrayEquals(new Object[] { 8, 8L, 4.0 }, (Object[]) p.put(8, record(-8)));
+		int[] ints = p.ints(0);
+		long[] longs = p.longs(1);
+		double[] doubles = p.doubles(2);
+		assertEquals(p.capacity(), ints.length);
+		for (int i = 0; i < ints.length; i++) {
+			int expected = i == 8 ? -8 : i;
+			assertEquals(expected, ints[i]);
+			assertEquals(expected, longs[i]);
+			assertEquals(expected / 2.0, doubles[i], 0);
+		}
+		assertEquals(p.capacity() - 1, SlottedPageTest.list(p.iterator()).size());
+		try {
+			p.ints(1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			p.put(0, new Object[] { 0, 0 });
+			fail();
+		} catch (IOException e) {
+		}
+		try {
+			p.put(0, new Object[] { 0, 0, 0 });
+			fail();
+		} catch (IOException e) {
+		}
+		try {
+			p.put(1, new Object[] { -1, null, -1.0 });
+			fail();
+		} catch (IOException e) {
+		}
+		assertArrayEquals(new Object[] { 1, 1L, 0.5 }, (Object[]) p.get(1)); // rejected puts leave the record intact
+	}
+
+	/**
+	 * Tests column scans over a file of {@link PaxPage}s managed by a {@link FileManager}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void scan() throws Exception {
+		scan(FileManager.class, SlottedPageTest.slottedPageSize);
+		scan(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests column scans over a file of {@link PaxPage}s managed by the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void scan(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.newInstance(c, args);
+		m.setPageFormat(1, PaxPage.format(Type.INT, Type.LONG, Type.DOUBLE));
+		m.clear(1);
+		List<Object> l = new ArrayList<Object>();
+		for (int i = 0; i < records; i++)
+			l.add(record(i));
+		long[] locations = m.addAll(1, l.iterator(), 1.0);
+		for (int i = 0; i < records; i += 3)
+			m.remove(1, locations[i]);
+		m.shutdown();
+		m = FileManagerTest.newInstance(c, args);
+		m.setPageFormat(1, PaxPage.format(Type.INT, Type.LONG, Type.DOUBLE));
+		long sum = 0;
+		double total = 0;
+		for (Iterator<SlottedPage> i = m.pageIterator(1); i.hasNext();) {
+			PaxPage p = (PaxPage) i.next();
+			int[] ints = p.ints(0); // only the first and third fields are decoded
+			double[] doubles = p.doubles(2);
+			for (int j = 0; j < ints.length; j++)
+				if (p.isOccupied(j)) {
+					sum += ints[j];
+					total += doubles[j];
+				}
+		}
+		long expected = 0;
+		for (int i = 0; i < records; i++)
+			if (i % 3 != 0)
+				expected += i;
+		assertEquals(expected, sum);
+		assertEquals(expected / 2.0, total, 0);
+		assertArrayEquals(record(5), (Object[]) m.get(1, locations[5]));
+		assertEquals(null, m.get(1, locations[6]));
+		m.shutdown();
+	}
+
+	/**
+	 * Returns a record derived from the specified integer.
+	 *
+	 * @param i
+	 *            an integer
+	 * @return a record derived from the specified integer
+	 */
+	static Object[] record(int i) {
+		return new Object[] { i, (long) i, i / 2.0 };
+	}
+
+}
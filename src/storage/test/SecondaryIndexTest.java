@@ -0,0 +1,157 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.LogManager;
+import storage.SecondaryIndex;
+
+/**
+ * This program tests the {@link SecondaryIndex} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class SecondaryIndexTest {
+
+	/**
+	 * The number of objects to add.
+	 */
+	static int objects = 2000;
+
+	/**
+	 * The extractor that maps each integer to its remainder modulo 7 (other objects are not indexed).
+	 */
+	static Function<Object, Integer> remainder = o -> o instanceof Integer ? Math.floorMod((Integer) o, 7) : null;
+
+	/**
+	 * Tests whether a {@link SecondaryIndex} is maintained by {@link FileManager#add(int, Object)},
+	 * {@link FileManager#put(int, Long, Object)}, {@link FileManager#remove(int, Long)}, and
+	 * {@link FileManager#vacuum(int, int)}.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void maintenance() throws Exception {
+		maintenance(FileManager.class, SlottedPageTest.slottedPageSize);
+		maintenance(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests whether a {@link SecondaryIndex} is maintained using the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void maintenance(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.initialize(c, args);
+		m.clear(1);
+		TreeMap<Long, Object> expected = new TreeMap<Long, Object>();
+		for (int i = 0; i < objects / 2; i++) // added before the index is created
+			expected.put(m.add(0, i), i);
+		SecondaryIndex<Integer> index = m.createIndex(0, 1, remainder);
+		check(index, expected);
+		List<Long> locations = new ArrayList<Long>(expected.keySet());
+		for (int i = objects / 2; i < objects; i++)
+			expected.put(m.add(0, i), i);
+		long[] loaded = m.addAll(0, Arrays.asList(-1, -2, -3).iterator(), 1.0);
+		for (int i = 0; i < loaded.length; i++)
+			expected.put(loaded[i], -i - 1);
+		for (int i = 0; i < locations.size(); i += 3) { // changes the attribute values of some objects
+			long l = locations.get(i);
+			m.put(0, l, (Integer) expected.get(l) + 1);
+			expected.put(l, (Integer) expected.get(l) + 1);
+		}
+		String large = String.format("%0" + SlottedPageTest.slottedPageSize / 2 + "d", 0);
+		m.put(0, locations.get(1), large); // relocated and no longer indexed
+		expected.put(locations.get(1), large);
+		for (int i = 2; i < locations.size(); i += 2) {
+			m.remove(0, locations.get(i));
+			expected.remove(locations.get(i));
+		}
+		check(index, expected);
+		m.vacuum(0, Integer.MAX_VALUE); // the original locations remain valid
+		check(index, expected);
+		m.shutdown();
+		m = FileManagerTest.newInstance(c, args);
+		index = m.createIndex(0, 1, remainder); // the index is persistent
+		check(index, expected);
+		assertEquals(index.lookup(2).size() + index.lookup(3).size(), index.range(2, 4).size());
+		m.clear(0);
+		assertEquals(0, index.range(0, 7).size());
+		m.shutdown();
+	}
+
+	/**
+	 * Tests whether the log records of an update and of the resulting index updates are made durable by a single log
+	 * force when a {@link FileManager} writes {@code SlottedPage}s directly.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void logging() throws Exception {
+		FileManager m = FileManagerTest.initialize(FileManager.class, SlottedPageTest.slottedPageSize);
+		m.clear(1);
+		TreeMap<Long, Object> expected = new TreeMap<Long, Object>();
+		for (int i = 0; i < objects / 2; i++)
+			expected.put(m.add(0, i), i);
+		new LogManager(LogManagerTest.logName).clear();
+		LogManager log = new LogManager(LogManagerTest.logName);
+		m.setLogManager(log);
+		SecondaryIndex<Integer> index = m.createIndex(0, 1, remainder);
+		for (int i = objects / 2; i < objects; i++) {
+			long forces = log.forces();
+			expected.put(m.add(0, i), i);
+			assertEquals(forces + 1, log.forces());
+		}
+		long l = expected.firstKey();
+		long forces = log.forces();
+		m.put(0, l, -1);
+		expected.put(l, -1);
+		m.remove(0, expected.lastKey());
+		expected.remove(expected.lastKey());
+		assertEquals(forces + 2, log.forces());
+		check(index, expected);
+		m.shutdown();
+		m = FileManagerTest.newInstance(FileManager.class, SlottedPageTest.slottedPageSize);
+		check(m.createIndex(0, 1, remainder), expected);
+		m.shutdown();
+	}
+
+	/**
+	 * Checks whether the specified {@link SecondaryIndex} agrees with the specified map.
+	 *
+	 * @param index
+	 *            a {@link SecondaryIndex}
+	 * @param expected
+	 *            a map associating the location of each object with that object
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void check(SecondaryIndex<Integer> index, TreeMap<Long, Object> expected) throws Exception {
+		for (int r = 0; r < 7; r++) {
+			List<Long> locations = new ArrayList<Long>();
+			for (Map.Entry<Long, Object> e : expected.entrySet())
+				if (Integer.valueOf(r).equals(remainder.apply(e.getValue())))
+					locations.add(e.getKey());
+			assertEquals(locations, index.lookup(r));
+		}
+	}
+
+}
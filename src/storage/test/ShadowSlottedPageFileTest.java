@@ -0,0 +1,249 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.ShadowSlottedPageFile;
+
+/**
+ * This program tests the {@link ShadowSlottedPageFile} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class ShadowSlottedPageFileTest {
+
+	/**
+	 * The number of objects to add.
+	 */
+	static int objects = 3000;
+
+	/**
+	 * The names of the files storing file 2, its page tables, and its forwarding table.
+	 */
+	static String[] names = { "2.dat", "2.map0", "2.map1", "2.fwd" };
+
+	/**
+	 * Tests whether the updates performed by {@link FileManager#atomically(int, java.util.concurrent.Callable)} are
+	 * committed and aborted as a whole.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void batch() throws Exception {
+		batch(FileManager.class, SlottedPageTest.slottedPageSize);
+		batch(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests batches using the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void batch(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = open(c, args);
+		m.clear(2);
+		TreeMap<Long, Object> expected = new TreeMap<Long, Object>();
+		FileManager fm = m;
+		List<Long> locations = m.atomically(2, () -> {
+			List<Long> l = new ArrayList<Long>();
+			for (int i = 0; i < objects; i++)
+				l.add(fm.add(2, i));
+			return l;
+		});
+		for (int i = 0; i < objects; i++)
+			expected.put(locations.get(i), i);
+		check(m, expected);
+		TreeMap<Long, Object> loaded = new TreeMap<Long, Object>(expected);
+		m.atomically(2, () -> { // updates spread over many pages
+			for (int i = 0; i < objects; i += 7)
+				fm.put(2, locations.get(i), -i);
+			for (int i = 3; i < objects; i += 11)
+				fm.remove(2, locations.get(i));
+			copy("", "crash."); // the files as of a crash before the commit
+			return null;
+		});
+		for (int i = 0; i < objects; i += 7)
+			expected.put(locations.get(i), -i);
+		for (int i = 3; i < objects; i += 11)
+			expected.remove(locations.get(i));
+		check(m, expected);
+		try { // a failed batch is aborted
+			m.atomically(2, () -> {
+				fm.put(2, locations.get(1), -1);
+				fm.remove(2, locations.get(2));
+				fm.add(2, objects);
+				throw new Exception("failure");
+			});
+			fail();
+		} catch (IOException e) {
+		}
+		check(m, expected);
+		String large = String.format("%0" + SlottedPageTest.slottedPageSize / 2 + "d", 0);
+		try { // objects cannot be moved in a batch
+			m.atomically(2, () -> fm.put(2, locations.get(5), large));
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		check(m, expected);
+		m.shutdown();
+		m = open(c, args);
+		check(m, expected); // the committed batches are durable
+		m.shutdown();
+		copy("crash.", ""); // recovers from the crash
+		m = open(c, args);
+		check(m, loaded);
+		m.shutdown();
+		String latest = epoch(names[1]) > epoch(names[2]) ? names[1] : names[2];
+		try (RandomAccessFile f = new RandomAccessFile(latest, "rw")) { // a torn page table
+			f.setLength(f.length() - 1);
+		}
+		m = open(c, args);
+		check(m, new TreeMap<Long, Object>()); // the page table committed before the first batch (by the clear)
+		m.shutdown();
+	}
+
+	/**
+	 * Tests whether the updates performed outside batches are durable as soon as they complete.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void unbatched() throws Exception {
+		unbatched(FileManager.class, SlottedPageTest.slottedPageSize);
+		unbatched(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests updates outside batches using the specified type of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void unbatched(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = open(c, args);
+		m.clear(2);
+		TreeMap<Long, Object> expected = new TreeMap<Long, Object>();
+		List<Long> locations = new ArrayList<Long>();
+		for (int i = 0; i < objects / 10; i++) {
+			long l = m.add(2, i);
+			locations.add(l);
+			expected.put(l, i);
+		}
+		for (int i = 0; i < locations.size(); i += 7) {
+			m.put(2, locations.get(i), -i);
+			expected.put(locations.get(i), -i);
+		}
+		for (int i = 3; i < locations.size(); i += 11) {
+			m.remove(2, locations.get(i));
+			expected.remove(locations.get(i));
+		}
+		String large = String.format("%0" + SlottedPageTest.slottedPageSize / 2 + "d", 0);
+		long last = locations.get(locations.size() - 1);
+		m.put(2, last, large); // moved to a new page (so the objects are still iterated in the order of locations)
+		expected.put(last, large);
+		check(m, expected);
+		copy("", "crash."); // the files as of a crash (the buffer, if any, is lost)
+		m.shutdown();
+		copy("crash.", "");
+		m = open(c, args);
+		check(m, expected); // every completed update is durable
+		m.shutdown();
+	}
+
+	/**
+	 * Constructs a {@link FileManager} in which file 2 uses shadow paging.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @return a new {@link FileManager}
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static FileManager open(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.newInstance(c, args);
+		m.setShadowPaging(2);
+		return m;
+	}
+
+	/**
+	 * Checks whether file 2 agrees with the specified map.
+	 *
+	 * @param m
+	 *            a {@link FileManager}
+	 * @param expected
+	 *            a map associating the location of each object with that object
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void check(FileManager m, TreeMap<Long, Object> expected) throws Exception {
+		for (Map.Entry<Long, Object> e : expected.entrySet())
+			assertEquals(e.getValue(), m.get(2, e.getKey()));
+		assertEquals(new ArrayList<Object>(expected.values()), SlottedPageTest.list(m.iterator(2)));
+	}
+
+	/**
+	 * Copies the files storing file 2 and its page tables.
+	 *
+	 * @param from
+	 *            the prefix of the names of the source files
+	 * @param to
+	 *            the prefix of the names of the target files
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static void copy(String from, String to) throws IOException {
+		for (String name : names) {
+			File f = new File(from + name);
+			if (f.exists())
+				Files.copy(f.toPath(), new File(to + name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Returns the epoch recorded in the specified page table file.
+	 *
+	 * @param name
+	 *            the name of a page table file
+	 * @return the epoch recorded in the specified page table file (-1 if the file does not exist)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static long epoch(String name) throws IOException {
+		if (!new File(name).exists())
+			return -1;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(name))) {
+			in.readInt(); // the magic number
+			return in.readLong();
+		}
+	}
+
+}
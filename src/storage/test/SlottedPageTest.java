@@ -104,6 +104,9 @@ public class SlottedPageTest {
 		list.remove(1);
 		p.remove(1);
 		assertEquals(list, list(p.iterator()));
+		list.remove(1);
+		p.remove(2); // the last object
+		assertEquals(list, list(p.iterator()));
 	}
 
 	/**
@@ -0,0 +1,108 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.FileManager;
+import storage.Snapshot;
+
+/**
+ * This program tests the {@link Snapshot} class.
+ *
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ *
+ */
+public class SnapshotTest {
+
+	/**
+	 * The number of objects to add.
+	 */
+	static int objects = 3000;
+
+	/**
+	 * Tests whether the iterators of a {@link Snapshot} are unaffected by {@link FileManager#add(int, Object)},
+	 * {@link FileManager#put(int, Long, Object)}, {@link FileManager#remove(int, Long)}, and
+	 * {@link FileManager#vacuum(int, int)} performed after the {@link Snapshot} is opened.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void isolation() throws Exception {
+		isolation(FileManager.class, SlottedPageTest.slottedPageSize);
+		isolation(BufferedFileManager.class, SlottedPageTest.slottedPageSize, 16);
+	}
+
+	/**
+	 * Tests whether the iterators of a {@link Snapshot} are unaffected by concurrent updates using the specified type
+	 * of {@link FileManager}.
+	 *
+	 * @param c
+	 *            a {@link FileManager} class
+	 * @param args
+	 *            the arguments to the constructor of the class
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void isolation(Class<? extends FileManager> c, Object... args) throws Exception {
+		FileManager m = FileManagerTest.initialize(c, args);
+		List<Long> locations = new ArrayList<Long>();
+		for (int i = 0; i < objects; i++)
+			locations.add(m.add(0, i));
+		List<Object> before = SlottedPageTest.list(m.iterator(0));
+		Snapshot s1 = m.snapshot();
+		for (int i = 0; i < objects; i += 2)
+			m.put(0, locations.get(i), -i);
+		List<Object> middle = SlottedPageTest.list(m.iterator(0));
+		Snapshot s2 = m.snapshot();
+		Thread writer = new Thread(() -> { // updates the file while the snapshots are scanned
+			try {
+				for (int i = 1; i < objects; i += 2)
+					m.remove(0, locations.get(i));
+				for (int i = 0; i < objects / 10; i++)
+					m.add(0, objects + i);
+				m.vacuum(0, Integer.MAX_VALUE);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		Iterator<Object> i1 = s1.iterator(0);
+		Iterator<Object> i2 = s2.iterator(0);
+		List<Object> l1 = new ArrayList<Object>();
+		List<Object> l2 = new ArrayList<Object>();
+		for (int i = 0; i < objects / 2; i++) { // the scans are partially done before the updates
+			l1.add(i1.next());
+			l2.add(i2.next());
+		}
+		writer.start();
+		while (i1.hasNext())
+			l1.add(i1.next());
+		writer.join();
+		while (i2.hasNext())
+			l2.add(i2.next());
+		assertEquals(before, l1);
+		assertEquals(middle, l2);
+		assertEquals(before, SlottedPageTest.list(s1.iterator(0))); // repeatable
+		s1.close();
+		assertEquals(middle, SlottedPageTest.list(s2.iterator(0)));
+		s2.close();
+		try {
+			s2.iterator(0).hasNext();
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		List<Object> after = SlottedPageTest.list(m.iterator(0));
+		assertEquals(objects / 2 + objects / 10, after.size());
+		try (Snapshot s3 = m.snapshot()) {
+			assertEquals(after, SlottedPageTest.list(s3.iterator(0)));
+		}
+		m.shutdown();
+	}
+
+}